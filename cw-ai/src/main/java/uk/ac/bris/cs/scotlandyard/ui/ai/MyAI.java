@@ -1,6 +1,5 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
-import java.lang.reflect.Array;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -10,7 +9,6 @@ import uk.ac.bris.cs.scotlandyard.model.*;
 
 import uk.ac.bris.cs.gamekit.graph.Edge;
 import uk.ac.bris.cs.gamekit.graph.Graph;
-import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.gamekit.graph.Node;
 
 @ManagedAI("Vision")
@@ -23,8 +21,11 @@ public class MyAI implements PlayerFactory {
 
 	private static class MyPlayer implements Player {
 
-		// Declaration of array to be used in the Floyd Warshall Algorithm.
-		private int[][] dist = new int[200][200];
+		// Distance given for nodes without a path between them, longer than any path.
+		private static final int UNREACHABLE = 999999;
+
+		// Shortest distances between all nodes, computed on the first move only since the map does not change during a game.
+		private int[][] distances;
 
 		// Makemove function selects the move that you wish to make and hands it back to the model via the accept method.
 		@Override
@@ -41,7 +42,16 @@ public class MyAI implements PlayerFactory {
 			int valencyrectifier;
 			int closetodetective = 0;
 			int loopnumber = 0;
-			floydwarshall(view);
+			Graph<Integer, Transport> g = view.getGraph();
+			if (distances == null) {
+				distances = alldistances(g);
+			}
+
+			// Looks up the detective locations once instead of for every candidate move.
+			List<Optional<Integer>> detectivelocations = new ArrayList<>();
+			for (Colour colour : view.getPlayers()) {
+				detectivelocations.add(view.getPlayerLocation(colour));
+			}
 
 			// Assesses the score for each move given.
 			for (Move m : moves) {
@@ -59,13 +69,13 @@ public class MyAI implements PlayerFactory {
 
 				// Incorporates the distance to the detectives as a bias to different moves, forms an average distance of all detectives.
 				while (detectivenumber <= numberofdetectives) {
-					distancebulider += floydwarshallget((finaldestination), (view.getPlayerLocation(view.getPlayers().get(detectivenumber)))); //distance to mrx after move
-					if(floydwarshallget((finaldestination), (view.getPlayerLocation(view.getPlayers().get(detectivenumber)))) < 2){ closetodetective++; }
+					int distance = distanceget((finaldestination), detectivelocations.get(detectivenumber)); //distance to mrx after move
+					distancebulider += distance;
+					if(distance < 2){ closetodetective++; }
 					detectivenumber++;
 				}
 
 				// biases the chosen move towards nodes with high valency to facilitate escape if needed, stops MrX moving to one move from a detective.
-				Graph<Integer, Transport> g = view.getGraph();
 				valencyrectifier = g.getEdgesFrom(g.getNode(finaldestination)).size();
 				if (greatestfound1 < distancebulider / numberofdetectives + valencyrectifier) {
 					if(loopnumber == 0){
@@ -86,57 +96,39 @@ public class MyAI implements PlayerFactory {
 			callback.accept(greatestfound);
 		}
 
-		// Modified implementation of the Floyd Warshall distancing Algorithm, that produces a table of the shortest distances from every node to every other.
-		private void floydwarshall (ScotlandYardView view) { // Adapted from https://www.geeksforgeeks.org/floyd-warshall-algorithm-dp-16/
-
-			// Declaration of needed variables.
-			int i, j, k;
-			int V = 200;
-			int max = 999999;
-			int[][] graph = new int[V][V];
-
-			// creation of a start point graph made from the graph from getgraph() that displays connected nodes.
-			for (int t = 0; t < V; t++) {
-				for (int y = 0; y < V; y++) {
-					graph[t][y] = max;
-				}
-			}
-			for (int q = 0; q < V; q++) {
-				graph[q][q] = 0;
-			}
-			for (Edge<Integer, Transport> a : view.getGraph().getEdges()) {
-				graph[a.destination().value()][a.source().value()] = 1;
-				graph[a.source().value()][a.destination().value()] = 1;
-			}
-			for (i = 0; i < V; i++) {
-				for (j = 0; j < V; j++) {
-					dist[i][j] = graph[i][j];
-				}
+		// Lookup for the shortest path length between two places on the board.
+		private int distanceget (int mrxloc, Optional<Integer> detectloc) {
+			if (detectloc.isEmpty()) {
+				throw new IllegalArgumentException("Detective location concealed!");
 			}
+			return distances[mrxloc][detectloc.get()];
+		}
 
-			// Finds indirect paths that are improvements sand updates the dist array.
-			for (k = 0; k < V; k++) {
-				// Pick all vertices as source one by one
-				for (i = 0; i < V; i++) {
-					// Pick all vertices as destination for the
-					// above picked source
-					for (j = 0; j < V; j++) {
-						// If vertex k is on the shortest path from
-						// i to j, then update the value of dist[i][j]
-						if (dist[i][k] + dist[k][j] < dist[i][j]) {
-							dist[i][j] = dist[i][k] + dist[k][j];
+		// Breadth first search from every node, indexed by node value, UNREACHABLE where there is no path.
+		private static int[][] alldistances (Graph<Integer, Transport> g) {
+			int max = 0;
+			for (Node<Integer> node : g.getNodes()) {
+				max = Math.max(max, node.value());
+			}
+			int[][] dist = new int[max + 1][max + 1];
+			Deque<Node<Integer>> queue = new ArrayDeque<>();
+			for (Node<Integer> source : g.getNodes()) {
+				int[] row = dist[source.value()];
+				Arrays.fill(row, UNREACHABLE);
+				row[source.value()] = 0;
+				queue.add(source);
+				while (!queue.isEmpty()) {
+					Node<Integer> current = queue.poll();
+					for (Edge<Integer, Transport> e : g.getEdgesFrom(current)) {
+						int next = e.destination().value();
+						if (row[next] == UNREACHABLE) {
+							row[next] = row[current.value()] + 1;
+							queue.add(e.destination());
 						}
 					}
 				}
 			}
-		}
-
-		// Lookup for the array to find the shortest path length between two places on the board.
-		private int floydwarshallget (int mrxloc, Optional<Integer> detectloc) {
-			if (detectloc.isEmpty()) {
-				throw new IllegalArgumentException("Detective location concealed!");
-			}
-			return (dist[mrxloc][detectloc.get()]);
+			return dist;
 		}
 	}
 }
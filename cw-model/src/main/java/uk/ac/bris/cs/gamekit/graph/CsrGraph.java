@@ -0,0 +1,430 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable graph with integer node values stored in compressed sparse row
+ * form. Nodes are numbered by a dense index in insertion order; the edges
+ * leaving the node with index {@code i} are the positions
+ * {@link #edgeStart(int) edgeStart(i)} to {@link #edgeEnd(int) edgeEnd(i)} of
+ * one target index array and one byte array of edge data ordinals.
+ *
+ * <br>
+ * Search code should walk the graph through the primitive accessors, which
+ * neither allocate nor hash. The {@link Graph} methods are backed by
+ * {@link Node} and {@link Edge} instances created once when the graph is built,
+ * so {@link #getEdgesFrom(Node)} returns the same list every time.
+ *
+ * @param <D> the type for {@link Edge} data, an enum with at most 256 constants
+ */
+public final class CsrGraph<D extends Enum<D>> extends AbstractGraph<Integer, D>
+		implements
+		Graph<Integer, D>,
+		Serializable {
+
+	private static final long serialVersionUID = 2793419305462718235L;
+
+	private final Class<D> type;
+	private final D[] constants;
+	private final int[] values;
+	// index of each node value, -1 for values that are not in the graph
+	private final int[] indices;
+	private final int[] offsets;
+	private final int[] targets;
+	private final byte[] data;
+
+	private final Node<Integer>[] nodes;
+	private final Edge<Integer, D>[] edges;
+	private final List<Node<Integer>> nodeList;
+	private final List<Edge<Integer, D>> edgeList;
+	private final List<Edge<Integer, D>>[] edgesFrom;
+	private final List<Edge<Integer, D>>[] edgesTo;
+
+	@SuppressWarnings("unchecked")
+	private CsrGraph(Class<D> type, int[] values, int[] offsets, int[] targets, byte[] data) {
+		this.type = type;
+		this.constants = type.getEnumConstants();
+		this.values = values;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.data = data;
+		int max = -1;
+		for (int value : values) {
+			if (value < 0) throw new IllegalArgumentException("Negative node value " + value);
+			max = Math.max(max, value);
+		}
+		this.indices = new int[max + 1];
+		Arrays.fill(indices, -1);
+		this.nodes = (Node<Integer>[]) new Node<?>[values.length];
+		for (int i = 0; i < values.length; i++) {
+			if (indices[values[i]] != -1)
+				throw new IllegalArgumentException(nodeName(values[i]) + " is already in the graph");
+			indices[values[i]] = i;
+			nodes[i] = new Node<>(values[i]);
+		}
+		this.edges = (Edge<Integer, D>[]) new Edge<?, ?>[targets.length];
+		this.edgesFrom = (List<Edge<Integer, D>>[]) new List<?>[values.length];
+		int[] incoming = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+				edges[e] = new Edge<>(nodes[i], nodes[targets[e]], constants[data[e] & 0xff]);
+				incoming[targets[e]]++;
+			}
+			edgesFrom[i] = Collections.unmodifiableList(
+					Arrays.asList(Arrays.copyOfRange(edges, offsets[i], offsets[i + 1])));
+		}
+		Edge<Integer, D>[][] to = (Edge<Integer, D>[][]) new Edge<?, ?>[values.length][];
+		for (int i = 0; i < values.length; i++) to[i] = (Edge<Integer, D>[]) new Edge<?, ?>[incoming[i]];
+		Arrays.fill(incoming, 0);
+		for (Edge<Integer, D> edge : edges) {
+			int i = indices[edge.destination().value()];
+			to[i][incoming[i]++] = edge;
+		}
+		this.edgesTo = (List<Edge<Integer, D>>[]) new List<?>[values.length];
+		for (int i = 0; i < values.length; i++) {
+			edgesTo[i] = Collections.unmodifiableList(Arrays.asList(to[i]));
+		}
+		this.nodeList = Collections.unmodifiableList(Arrays.asList(nodes));
+		this.edgeList = Collections.unmodifiableList(Arrays.asList(edges));
+	}
+
+	private static String nodeName(int value) {
+		return "Node(" + value + ")";
+	}
+
+	/**
+	 * Creates a graph from its compressed sparse row arrays. An undirected
+	 * graph must list every edge from both of its ends. The arrays are copied.
+	 *
+	 * @param type the class of the edge data; not null
+	 * @param values node values in index order, distinct and not negative; not
+	 *        null
+	 * @param offsets {@code values.length + 1} non-decreasing edge positions
+	 *        starting at 0 and ending at {@code targets.length}; not null
+	 * @param targets node index of the destination of every edge; not null
+	 * @param data edge data ordinal of every edge; not null
+	 * @return the graph; never null
+	 */
+	public static <D extends Enum<D>> CsrGraph<D> of(Class<D> type, int[] values, int[] offsets,
+			int[] targets, byte[] data) {
+		Objects.requireNonNull(type);
+		if (type.getEnumConstants().length > 256)
+			throw new IllegalArgumentException(type + " has more than 256 constants");
+		if (offsets.length != values.length + 1)
+			throw new IllegalArgumentException("offsets.length != values.length + 1");
+		if (targets.length != data.length)
+			throw new IllegalArgumentException("targets.length != data.length");
+		if (offsets[0] != 0 || offsets[values.length] != targets.length)
+			throw new IllegalArgumentException("offsets must span the targets");
+		for (int i = 0; i < values.length; i++) {
+			if (offsets[i] > offsets[i + 1])
+				throw new IllegalArgumentException("offsets must not decrease at " + i);
+		}
+		for (int e = 0; e < targets.length; e++) {
+			if (targets[e] < 0 || targets[e] >= values.length)
+				throw new IllegalArgumentException("target of edge " + e + " is not a node index");
+			if ((data[e] & 0xff) >= type.getEnumConstants().length)
+				throw new IllegalArgumentException("data of edge " + e + " is not an ordinal");
+		}
+		return new CsrGraph<>(type, values.clone(), offsets.clone(), targets.clone(),
+				data.clone());
+	}
+
+	/**
+	 * Copies the given graph, keeping the order of its nodes and of the edges
+	 * from every node
+	 *
+	 * @param type the class of the edge data; not null
+	 * @param graph the graph; not null and node values must not be negative
+	 * @return the graph itself if it already is a {@link CsrGraph}, a copy
+	 *         otherwise; never null
+	 */
+	@SuppressWarnings("unchecked")
+	public static <D extends Enum<D>> CsrGraph<D> copyOf(Class<D> type, Graph<Integer, D> graph) {
+		if (graph instanceof CsrGraph && ((CsrGraph<?>) graph).type == type)
+			return (CsrGraph<D>) graph;
+		List<Node<Integer>> nodes = graph.getNodes();
+		Builder<D> builder = new Builder<>(type);
+		nodes.forEach(node -> builder.addNode(node.value()));
+		int[] offsets = new int[nodes.size() + 1];
+		int[] targets = new int[graph.getEdges().size()];
+		byte[] data = new byte[targets.length];
+		int size = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			offsets[i] = size;
+			for (Edge<Integer, D> edge : graph.getEdgesFrom(nodes.get(i))) {
+				if (size == targets.length) {
+					targets = Arrays.copyOf(targets, size * 2 + 1);
+					data = Arrays.copyOf(data, targets.length);
+				}
+				targets[size] = builder.index(edge.destination().value());
+				data[size++] = (byte) edge.data().ordinal();
+			}
+		}
+		offsets[nodes.size()] = size;
+		return of(type, builder.values(), offsets, Arrays.copyOf(targets, size),
+				Arrays.copyOf(data, size));
+	}
+
+	/**
+	 * @return the class of the edge data; never null
+	 */
+	public Class<D> type() {
+		return type;
+	}
+
+	/**
+	 * @param value a node value
+	 * @return the dense index of the node with the value or -1 if there is none
+	 */
+	public int index(int value) {
+		return value >= 0 && value < indices.length ? indices[value] : -1;
+	}
+
+	/**
+	 * @param index a node index, 0 to {@link #size()} exclusive
+	 * @return the value of the node
+	 */
+	public int value(int index) {
+		return values[index];
+	}
+
+	/**
+	 * @param index a node index
+	 * @return the position of the first edge leaving the node
+	 */
+	public int edgeStart(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * @param index a node index
+	 * @return the position after the last edge leaving the node
+	 */
+	public int edgeEnd(int index) {
+		return offsets[index + 1];
+	}
+
+	/**
+	 * @param index a node index
+	 * @return the number of edges leaving the node
+	 */
+	public int degree(int index) {
+		return offsets[index + 1] - offsets[index];
+	}
+
+	/**
+	 * @return the number of edges, counting both directions of an undirected
+	 *         edge
+	 */
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * @param edge an edge position
+	 * @return the node index of the destination of the edge
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * @param edge an edge position
+	 * @return the ordinal of the data of the edge
+	 */
+	public int dataOrdinal(int edge) {
+		return data[edge] & 0xff;
+	}
+
+	/**
+	 * @param edge an edge position
+	 * @return the data of the edge; never null
+	 */
+	public D data(int edge) {
+		return constants[data[edge] & 0xff];
+	}
+
+	@Override
+	public void addNode(Node<Integer> node) {
+		throw new UnsupportedOperationException("Adding node is not supported in a CsrGraph");
+	}
+
+	@Override
+	public void addEdge(Edge<Integer, D> edge) {
+		throw new UnsupportedOperationException("Adding edge is not supported in a CsrGraph");
+	}
+
+	@Override
+	public boolean removeEdge(Edge<Integer, D> edge) {
+		throw new UnsupportedOperationException("Removing edge is not supported in a CsrGraph");
+	}
+
+	@Override
+	public Node<Integer> getNode(Integer value) {
+		int index = index(value);
+		return index < 0 ? null : nodes[index];
+	}
+
+	@Override
+	public boolean containsNode(Integer value) {
+		return index(value) >= 0;
+	}
+
+	@Override
+	public int nodeIndex(Integer value) {
+		return index(value);
+	}
+
+	@Override
+	public List<Node<Integer>> getNodes() {
+		return nodeList;
+	}
+
+	@Override
+	public Collection<Edge<Integer, D>> getEdges() {
+		return edgeList;
+	}
+
+	@Override
+	public Collection<Edge<Integer, D>> getEdgesFrom(Node<Integer> source) {
+		int index = index(source.value());
+		return index < 0 ? Collections.emptyList() : edgesFrom[index];
+	}
+
+	@Override
+	public Collection<Edge<Integer, D>> getEdgesTo(Node<Integer> destination) {
+		int index = index(destination.value());
+		return index < 0 ? Collections.emptyList() : edgesTo[index];
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return values.length == 0;
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public String toString() {
+		return "CsrGraph{" + "nodes=" + nodeList + ", edges=" + edgeList + '}';
+	}
+
+	/**
+	 * Collects the nodes and undirected edges of a {@link CsrGraph}. The edges
+	 * from every node keep the order in which they were added, the same order
+	 * {@link UndirectedGraph} gives them.
+	 *
+	 * @param <D> the type for {@link Edge} data
+	 */
+	public static final class Builder<D extends Enum<D>> {
+
+		private final Class<D> type;
+		private int[] values = new int[16];
+		private int nodes;
+		private int[] indices = new int[0];
+		private int[] sources = new int[16];
+		private int[] destinations = new int[16];
+		private byte[] data = new byte[16];
+		private int edges;
+
+		public Builder(Class<D> type) {
+			this.type = Objects.requireNonNull(type);
+		}
+
+		/**
+		 * Adds a node
+		 *
+		 * @param value the value, not negative and not added before
+		 * @return this builder
+		 */
+		public Builder<D> addNode(int value) {
+			if (value < 0) throw new IllegalArgumentException("Negative node value " + value);
+			if (containsNode(value))
+				throw new IllegalArgumentException(nodeName(value) + " is already in the graph");
+			if (value >= indices.length) {
+				int old = indices.length;
+				indices = Arrays.copyOf(indices, Math.max(value + 1, old * 2));
+				Arrays.fill(indices, old, indices.length, -1);
+			}
+			if (nodes == values.length) values = Arrays.copyOf(values, nodes * 2);
+			indices[value] = nodes;
+			values[nodes++] = value;
+			return this;
+		}
+
+		/**
+		 * @param value a node value
+		 * @return true if a node with the value was added
+		 */
+		public boolean containsNode(int value) {
+			return index(value) >= 0;
+		}
+
+		int index(int value) {
+			return value >= 0 && value < indices.length ? indices[value] : -1;
+		}
+
+		int[] values() {
+			return Arrays.copyOf(values, nodes);
+		}
+
+		/**
+		 * Adds an undirected edge, it leaves both of its nodes
+		 *
+		 * @param source value of one node, must have been added
+		 * @param destination value of the other node, must have been added
+		 * @param data the edge data; not null
+		 * @return this builder
+		 */
+		public Builder<D> addEdge(int source, int destination, D data) {
+			Objects.requireNonNull(data);
+			if (!containsNode(source)) throw new IllegalArgumentException(
+					"source of edge(" + nodeName(source) + ") is not in the graph");
+			if (!containsNode(destination)) throw new IllegalArgumentException(
+					"destination of edge(" + nodeName(destination) + ") is not in the graph");
+			if (edges == sources.length) {
+				sources = Arrays.copyOf(sources, edges * 2);
+				destinations = Arrays.copyOf(destinations, edges * 2);
+				this.data = Arrays.copyOf(this.data, edges * 2);
+			}
+			sources[edges] = indices[source];
+			destinations[edges] = indices[destination];
+			this.data[edges++] = (byte) data.ordinal();
+			return this;
+		}
+
+		/**
+		 * @return the graph of the nodes and edges added so far; never null
+		 */
+		public CsrGraph<D> build() {
+			int[] offsets = new int[nodes + 1];
+			for (int e = 0; e < edges; e++) {
+				offsets[sources[e] + 1]++;
+				offsets[destinations[e] + 1]++;
+			}
+			for (int i = 0; i < nodes; i++) offsets[i + 1] += offsets[i];
+			int[] cursors = Arrays.copyOf(offsets, nodes);
+			int[] targets = new int[edges * 2];
+			byte[] ordinals = new byte[edges * 2];
+			for (int e = 0; e < edges; e++) {
+				int forward = cursors[sources[e]]++;
+				targets[forward] = destinations[e];
+				ordinals[forward] = data[e];
+				int backward = cursors[destinations[e]]++;
+				targets[backward] = sources[e];
+				ordinals[backward] = data[e];
+			}
+			return of(type, values(), offsets, targets, ordinals);
+		}
+	}
+
+}
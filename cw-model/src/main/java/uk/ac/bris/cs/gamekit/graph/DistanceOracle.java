@@ -0,0 +1,503 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Shortest path lengths, counted in edges, between every pair of nodes of a
+ * graph with integer node values. The table is computed once with a breadth
+ * first search from every node, optionally in parallel, and kept in a byte
+ * per pair, or a short per pair when some distance does not fit in a byte.
+ *
+ * <br>
+ * {@link #forGraph(Graph)} shares one oracle per graph instance, so every
+ * player and view of the same game reuses the same table. Variants that only
+ * follow edges with some data, for example a single transport, are shared
+ * the same way through {@link #forGraph(Graph, Set)}. The graph must not
+ * change after its oracle was created.
+ *
+ * <br>
+ * Instances are immutable and thread safe.
+ */
+public final class DistanceOracle {
+
+	/**
+	 * Distance between nodes that are not connected or not in the graph
+	 */
+	public static final int UNREACHABLE = -1;
+
+	private static final int BYTE_UNREACHABLE = 0xff;
+	private static final int SHORT_UNREACHABLE = 0xffff;
+
+	private static final LoadingCache<Graph<Integer, ?>, DistanceOracle> CACHE = CacheBuilder
+			.newBuilder().weakKeys().build(CacheLoader.from(graph -> of(graph, data -> true)));
+
+	private static final LoadingCache<Graph<Integer, ?>, Map<Set<?>, DistanceOracle>> FILTERED =
+			CacheBuilder.newBuilder().weakKeys()
+					.build(CacheLoader.from(graph -> new ConcurrentHashMap<>()));
+
+	private final int size;
+	// dense index of each node value, -1 for values that are not in the graph
+	private final int[] indices;
+	private final int maxDistance;
+	// distance from index i to index j at byte (i * size + j) * width, big endian
+	private final ByteBuffer table;
+	private final int width;
+
+	private DistanceOracle(int size, int[] indices, int maxDistance, ByteBuffer table,
+			int width) {
+		this.size = size;
+		this.indices = indices;
+		this.maxDistance = maxDistance;
+		this.table = table;
+		this.width = width;
+	}
+
+	private static int[] indices(int[] values) {
+		int max = -1;
+		for (int value : values) {
+			if (value < 0) throw new IllegalArgumentException("Unsupported node value " + value);
+			max = Math.max(max, value);
+		}
+		int[] indices = new int[max + 1];
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < values.length; i++) {
+			if (indices[values[i]] >= 0)
+				throw new IllegalArgumentException("Duplicate node value " + values[i]);
+			indices[values[i]] = i;
+		}
+		return indices;
+	}
+
+	/**
+	 * Computes the distances of the given graph over all of its edges
+	 *
+	 * @param graph the graph; not null and node values must not be negative
+	 * @return the oracle; never null
+	 */
+	public static DistanceOracle of(Graph<Integer, ?> graph) {
+		return of(graph, data -> true);
+	}
+
+	/**
+	 * Computes the distances of the given graph over the edges with accepted
+	 * data only
+	 *
+	 * @param graph the graph; not null and node values must not be negative
+	 * @param filter accepts the data of edges that may be followed; not null
+	 * @return the oracle; never null
+	 */
+	public static <D> DistanceOracle of(Graph<Integer, D> graph, Predicate<? super D> filter) {
+		return compute(graph, filter, null, Progress.NONE);
+	}
+
+	/**
+	 * Computes the distances of the given graph over the edges with accepted
+	 * data only, with the breadth first searches from different sources
+	 * running in parallel on the given pool. Every worker claims a few sources
+	 * at a time and reuses one queue for all of its searches, all workers
+	 * write their rows straight into the shared table.
+	 *
+	 * @param graph the graph; not null and node values must not be negative
+	 * @param filter accepts the data of edges that may be followed; not null
+	 * @param pool the pool to run on; not null
+	 * @param progress told about finished sources, may cancel; not null
+	 * @return the oracle; never null
+	 * @throws CancellationException if cancelled by the progress callback or
+	 *         if the calling thread is interrupted
+	 */
+	public static <D> DistanceOracle of(Graph<Integer, D> graph, Predicate<? super D> filter,
+			ForkJoinPool pool, Progress progress) {
+		return compute(graph, filter, requireNonNull(pool), requireNonNull(progress));
+	}
+
+	/**
+	 * Receives the progress of computing a table
+	 */
+	@FunctionalInterface
+	public interface Progress {
+
+		/**
+		 * Never cancels
+		 */
+		Progress NONE = (sources, total) -> true;
+
+		/**
+		 * Called after every few sources. Calls may come from different
+		 * worker threads but never at the same time, and {@code sources}
+		 * increases from call to call. A table that does not fit in a byte
+		 * per distance is searched a second time, counting from 0 again.
+		 *
+		 * @param sources the number of sources searched so far
+		 * @param total the number of nodes
+		 * @return true to go on, false to cancel
+		 */
+		boolean update(int sources, int total);
+
+	}
+
+	private static <D> DistanceOracle compute(Graph<Integer, D> graph,
+			Predicate<? super D> filter, ForkJoinPool pool, Progress progress) {
+		requireNonNull(graph);
+		requireNonNull(filter);
+		List<Node<Integer>> nodes = graph.getNodes();
+		int size = nodes.size();
+		if ((long) size * size > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many nodes for a distance table: " + size);
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) values[i] = nodes.get(i).value();
+		int[] indices = indices(values);
+		int max = indices.length - 1;
+
+		// adjacency by index, neighbours of i are targets[offsets[i] .. offsets[i + 1])
+		int[] offsets = new int[size + 1];
+		int[] targets = new int[16];
+		int edges = 0;
+		for (int i = 0; i < size; i++) {
+			offsets[i] = edges;
+			for (Edge<Integer, D> edge : graph.getEdgesFrom(nodes.get(i))) {
+				if (!filter.test(edge.data())) continue;
+				int target = edge.destination().value();
+				if (target > max || indices[target] < 0) continue;
+				if (edges == targets.length) targets = Arrays.copyOf(targets, edges * 2);
+				targets[edges++] = indices[target];
+			}
+		}
+		offsets[size] = edges;
+
+		// most maps fit in a byte per distance, only search again with shorts if not
+		Search search = new Search(size, offsets, targets, progress);
+		search.bytes = new byte[size * size];
+		if (search.run(pool)) {
+			return new DistanceOracle(size, indices, search.maxDistance.get(),
+					ByteBuffer.wrap(search.bytes), 1);
+		}
+		search.bytes = null;
+		if ((long) size * size * 2 > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Distances too long for a table of " + size);
+		search.shorts = new short[size * size];
+		search.run(pool);
+		ByteBuffer table = ByteBuffer.allocate(size * size * 2);
+		table.asShortBuffer().put(search.shorts);
+		return new DistanceOracle(size, indices, search.maxDistance.get(), table, 2);
+	}
+
+	/**
+	 * Breadth first searches from every source into a shared table of bytes
+	 * or shorts, on the calling thread or on the workers of a pool
+	 */
+	private static final class Search {
+
+		// sources a worker claims at a time
+		private static final int CHUNK = 16;
+
+		private final int size;
+		private final int[] offsets;
+		private final int[] targets;
+		private final Progress progress;
+		private byte[] bytes;
+		private short[] shorts;
+
+		private final AtomicInteger next = new AtomicInteger();
+		private final AtomicInteger maxDistance = new AtomicInteger();
+		private int done;
+		private volatile boolean stop;
+		private volatile boolean overflow;
+		private volatile boolean cancelled;
+		private volatile boolean interrupted;
+		// the thread waiting for the table, workers stop once it is interrupted
+		private Thread caller;
+
+		Search(int size, int[] offsets, int[] targets, Progress progress) {
+			this.size = size;
+			this.offsets = offsets;
+			this.targets = targets;
+			this.progress = progress;
+		}
+
+		// searches from every source, false if a distance did not fit in bytes
+		boolean run(ForkJoinPool pool) {
+			next.set(0);
+			maxDistance.set(0);
+			done = 0;
+			stop = false;
+			overflow = false;
+			interrupted = false;
+			caller = Thread.currentThread();
+			int workers = pool == null ? 1
+					: Math.min(pool.getParallelism(), (size + CHUNK - 1) / CHUNK);
+			if (workers <= 1) work();
+			else {
+				Callable<Void> worker = () -> {
+					work();
+					return null;
+				};
+				// invokeAll does not respond to interrupts, an interruptible get does
+				List<Future<Void>> futures = new ArrayList<>(workers);
+				for (int i = 0; i < workers; i++) futures.add(pool.submit(worker));
+				try {
+					for (Future<Void> future : futures) future.get();
+				} catch (InterruptedException e) {
+					stop = true;
+					Thread.currentThread().interrupt();
+					throw new CancellationException("Interrupted");
+				} catch (ExecutionException e) {
+					Throwables.throwIfUnchecked(e.getCause());
+					throw new RuntimeException(e.getCause());
+				}
+			}
+			if (interrupted) throw new CancellationException("Interrupted");
+			if (cancelled)
+				throw new CancellationException("Cancelled after " + done + " of " + size
+						+ " sources");
+			return !overflow;
+		}
+
+		private void work() {
+			// one queue per worker, reused for every source it searches
+			int[] queue = new int[size];
+			try {
+				while (!stop) {
+					if (caller.isInterrupted()) {
+						interrupted = true;
+						stop = true;
+						return;
+					}
+					int from = next.getAndAdd(CHUNK);
+					if (from >= size) return;
+					int to = Math.min(size, from + CHUNK);
+					int max = 0;
+					for (int source = from; source < to; source++) {
+						int distance = bytes != null ? searchBytes(source, queue)
+								: searchShorts(source, queue);
+						if (distance < 0) {
+							overflow = true;
+							stop = true;
+							return;
+						}
+						max = Math.max(max, distance);
+					}
+					maxDistance.accumulateAndGet(max, Math::max);
+					report(to - from);
+				}
+			} catch (RuntimeException | Error e) {
+				stop = true;
+				throw e;
+			}
+		}
+
+		private synchronized void report(int sources) {
+			done += sources;
+			if (!stop && !progress.update(done, size)) {
+				cancelled = true;
+				stop = true;
+			}
+		}
+
+		// returns the longest distance from the source, -1 if one does not fit in a byte
+		private int searchBytes(int source, int[] queue) {
+			int row = source * size;
+			Arrays.fill(bytes, row, row + size, (byte) BYTE_UNREACHABLE);
+			bytes[row + source] = 0;
+			int head = 0;
+			int tail = 0;
+			int max = 0;
+			queue[tail++] = source;
+			while (head < tail) {
+				int node = queue[head++];
+				int next = (bytes[row + node] & 0xff) + 1;
+				for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+					int target = targets[e];
+					if ((bytes[row + target] & 0xff) != BYTE_UNREACHABLE) continue;
+					if (next >= BYTE_UNREACHABLE) return -1;
+					bytes[row + target] = (byte) next;
+					max = next;
+					queue[tail++] = target;
+				}
+			}
+			return max;
+		}
+
+		// distances are below size, which the table size limits to fewer than SHORT_UNREACHABLE
+		private int searchShorts(int source, int[] queue) {
+			int row = source * size;
+			Arrays.fill(shorts, row, row + size, (short) SHORT_UNREACHABLE);
+			shorts[row + source] = 0;
+			int head = 0;
+			int tail = 0;
+			int max = 0;
+			queue[tail++] = source;
+			while (head < tail) {
+				int node = queue[head++];
+				int next = (shorts[row + node] & 0xffff) + 1;
+				for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+					int target = targets[e];
+					if ((shorts[row + target] & 0xffff) != SHORT_UNREACHABLE) continue;
+					shorts[row + target] = (short) next;
+					max = next;
+					queue[tail++] = target;
+				}
+			}
+			return max;
+		}
+	}
+
+	/**
+	 * Wraps a table written from {@link #table()} without copying it, for
+	 * example part of a memory mapped file
+	 *
+	 * @param values node values in index order, the order of
+	 *        {@link Graph#getNodes()} of the graph; not null
+	 * @param table the distances, big endian from position 0; not null and
+	 *        not modified afterwards
+	 * @param bytesPerDistance the width of a distance in the table, 1 or 2
+	 * @param maxDistance the longest distance in the table
+	 * @return the oracle; never null
+	 */
+	public static DistanceOracle wrap(int[] values, ByteBuffer table, int bytesPerDistance,
+			int maxDistance) {
+		if (bytesPerDistance != 1 && bytesPerDistance != 2)
+			throw new IllegalArgumentException("bytesPerDistance must be 1 or 2");
+		long length = (long) values.length * values.length * bytesPerDistance;
+		if (table.remaining() != length)
+			throw new IllegalArgumentException("Table has " + table.remaining()
+					+ " bytes instead of " + length);
+		return new DistanceOracle(values.length, indices(values), maxDistance,
+				table.slice(), bytesPerDistance);
+	}
+
+	/**
+	 * @return a read only view of the distance table, see
+	 *         {@link #wrap(int[], ByteBuffer, int, int)}; never null
+	 */
+	public ByteBuffer table() {
+		return table.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Makes an oracle that was created elsewhere, for example loaded with its
+	 * graph, the one {@link #forGraph(Graph)} returns for the graph. Does
+	 * nothing if the graph already has one.
+	 *
+	 * @param graph the graph; not null
+	 * @param oracle the oracle of all edges of the graph; not null
+	 */
+	public static void share(Graph<Integer, ?> graph, DistanceOracle oracle) {
+		CACHE.asMap().putIfAbsent(requireNonNull(graph), checkSize(graph, oracle));
+	}
+
+	/**
+	 * Makes an oracle that was created elsewhere the one
+	 * {@link #forGraph(Graph, Set)} returns for the graph and edge data. Does
+	 * nothing if the graph already has one for the data.
+	 *
+	 * @param graph the graph; not null
+	 * @param data the edge data the oracle follows; not null
+	 * @param oracle the oracle; not null
+	 */
+	public static <D> void share(Graph<Integer, D> graph, Set<? extends D> data,
+			DistanceOracle oracle) {
+		Set<?> key = Collections.unmodifiableSet(new HashSet<>(requireNonNull(data)));
+		FILTERED.getUnchecked(requireNonNull(graph)).putIfAbsent(key, checkSize(graph, oracle));
+	}
+
+	private static DistanceOracle checkSize(Graph<Integer, ?> graph, DistanceOracle oracle) {
+		if (oracle.size != graph.size())
+			throw new IllegalArgumentException("Oracle of " + oracle.size + " nodes for a graph of "
+					+ graph.size());
+		return oracle;
+	}
+
+	/**
+	 * Returns the shared oracle over all edges of the given graph, computing
+	 * it on first use. Oracles are kept until their graph is garbage
+	 * collected.
+	 *
+	 * @param graph the graph; not null
+	 * @return the oracle of the graph; never null
+	 */
+	public static DistanceOracle forGraph(Graph<Integer, ?> graph) {
+		return CACHE.getUnchecked(requireNonNull(graph));
+	}
+
+	/**
+	 * Returns the shared oracle over the edges of the given graph whose data is
+	 * one of the given values, computing it on first use
+	 *
+	 * @param graph the graph; not null
+	 * @param data the edge data that may be followed, for example a single
+	 *        transport; not null
+	 * @return the oracle of the graph and data; never null
+	 */
+	public static <D> DistanceOracle forGraph(Graph<Integer, D> graph, Set<? extends D> data) {
+		Set<?> key = Collections.unmodifiableSet(new HashSet<>(requireNonNull(data)));
+		return FILTERED.getUnchecked(requireNonNull(graph))
+				.computeIfAbsent(key, k -> of(graph, key::contains));
+	}
+
+	/**
+	 * @param from the value of the source node
+	 * @param to the value of the destination node
+	 * @return the number of edges on a shortest path from source to
+	 *         destination, or {@link #UNREACHABLE}
+	 */
+	public int distance(int from, int to) {
+		int i = index(from);
+		int j = index(to);
+		if (i < 0 || j < 0) return UNREACHABLE;
+		int at = i * size + j;
+		if (width == 1) {
+			int distance = table.get(at) & 0xff;
+			return distance == BYTE_UNREACHABLE ? UNREACHABLE : distance;
+		}
+		int distance = table.getShort(at << 1) & 0xffff;
+		return distance == SHORT_UNREACHABLE ? UNREACHABLE : distance;
+	}
+
+	private int index(int value) {
+		return value >= 0 && value < indices.length ? indices[value] : -1;
+	}
+
+	/**
+	 * @return the number of nodes in the graph
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the longest distance between two connected nodes
+	 */
+	public int maxDistance() {
+		return maxDistance;
+	}
+
+	/**
+	 * @return the bytes taken by one distance in the table, 1 or 2
+	 */
+	public int bytesPerDistance() {
+		return width;
+	}
+
+}
@@ -0,0 +1,328 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Shortest path lengths between every pair of nodes of an
+ * {@link UndirectedGraph} that stay correct while edges are removed and
+ * restored, for example roads that are closed for a few rounds. Edges must
+ * be removed and restored through {@link #removeEdge(Edge)} and
+ * {@link #restoreEdge(Edge)}, which change the graph and repair the table.
+ *
+ * <br>
+ * Neither change recomputes the table. A restored edge can only shorten
+ * paths, so a breadth first search from its nearer end visits just the
+ * nodes that get closer. A removed edge only matters to sources for which
+ * it was the last shortest path edge into its farther end; for those the
+ * nodes that lost every shortest path are found level by level and given
+ * new distances from their unaffected neighbours. All other sources cost a
+ * few table lookups.
+ *
+ * <br>
+ * Distances are kept in a short per pair. Nodes must not be added to the
+ * graph afterwards, and other caches of the graph such as
+ * {@link DistanceOracle#forGraph(Graph)} do not see the changes; use
+ * {@link #snapshot()} instead. Instances are not thread safe.
+ *
+ * @param <D> the type for {@link Edge} data
+ */
+public final class DynamicDistances<D> {
+
+	private static final int UNREACHABLE = 0xffff;
+
+	private final UndirectedGraph<Integer, D> graph;
+	private final Predicate<? super D> filter;
+	private final int size;
+	private final int[] values;
+	// node indices of the followed neighbours of every node, duplicates for parallel edges
+	private final int[][] adjacency;
+	private final int[] degrees;
+	// distance from index i to index j at i * size + j, UNREACHABLE if not connected
+	private final short[] table;
+
+	// scratch space for repairs, marks compare against the current epoch
+	private final int[] affected;
+	private final int[] finished;
+	private int epoch;
+	private final int[] queue;
+	private final int[] keys;
+	private final long[] starts;
+
+	private DynamicDistances(UndirectedGraph<Integer, D> graph, Predicate<? super D> filter) {
+		this.graph = graph;
+		this.filter = filter;
+		List<Node<Integer>> nodes = graph.getNodes();
+		this.size = nodes.size();
+		this.values = new int[size];
+		for (int i = 0; i < size; i++) values[i] = nodes.get(i).value();
+		this.adjacency = new int[size][];
+		this.degrees = new int[size];
+		for (int i = 0; i < size; i++) {
+			adjacency[i] = new int[Math.max(4, graph.degree(i))];
+			for (Edge<Integer, D> edge : graph.edgesFrom(i)) {
+				if (filter.test(edge.data()))
+					link(i, graph.nodeIndex(edge.destination().value()));
+			}
+		}
+
+		DistanceOracle oracle = DistanceOracle.of(graph, filter);
+		ByteBuffer distances = oracle.table();
+		this.table = new short[size * size];
+		for (int i = 0; i < table.length; i++) {
+			int distance = oracle.bytesPerDistance() == 1 ? distances.get(i) & 0xff
+					: distances.getShort(i * 2) & 0xffff;
+			table[i] = (short) (distance == (oracle.bytesPerDistance() == 1 ? 0xff : 0xffff)
+					? UNREACHABLE : distance);
+		}
+
+		this.affected = new int[size];
+		this.finished = new int[size];
+		this.queue = new int[size];
+		this.keys = new int[size];
+		this.starts = new long[size];
+	}
+
+	/**
+	 * Computes the distances over all edges of the given graph
+	 *
+	 * @param graph the graph; not null, node values must not be negative
+	 * @return the distances; never null
+	 */
+	public static <D> DynamicDistances<D> of(UndirectedGraph<Integer, D> graph) {
+		return of(graph, data -> true);
+	}
+
+	/**
+	 * Computes the distances over the edges of the given graph with accepted
+	 * data only
+	 *
+	 * @param graph the graph; not null, node values must not be negative
+	 * @param filter accepts the data of edges that may be followed; not null
+	 * @return the distances; never null
+	 */
+	public static <D> DynamicDistances<D> of(UndirectedGraph<Integer, D> graph,
+			Predicate<? super D> filter) {
+		return new DynamicDistances<>(requireNonNull(graph), requireNonNull(filter));
+	}
+
+	private void link(int a, int b) {
+		if (degrees[a] == adjacency[a].length)
+			adjacency[a] = Arrays.copyOf(adjacency[a], degrees[a] * 2);
+		adjacency[a][degrees[a]++] = b;
+	}
+
+	private void unlink(int a, int b) {
+		int[] neighbours = adjacency[a];
+		for (int e = 0; e < degrees[a]; e++) {
+			if (neighbours[e] == b) {
+				neighbours[e] = neighbours[--degrees[a]];
+				return;
+			}
+		}
+	}
+
+	private boolean adjacent(int a, int b) {
+		int[] neighbours = adjacency[a];
+		for (int e = 0; e < degrees[a]; e++) if (neighbours[e] == b) return true;
+		return false;
+	}
+
+	private int distanceAt(int at) {
+		return table[at] & 0xffff;
+	}
+
+	/**
+	 * Removes an edge from the graph, see {@link UndirectedGraph#removeEdge(Edge)},
+	 * and repairs the distances that depended on it
+	 *
+	 * @param edge the edge; not null
+	 * @return true if the graph had the edge
+	 */
+	public boolean removeEdge(Edge<Integer, D> edge) {
+		if (!graph.removeEdge(edge)) return false;
+		if (!filter.test(edge.data())) return true;
+		int a = graph.nodeIndex(edge.source().value());
+		int b = graph.nodeIndex(edge.destination().value());
+		// a loop is listed twice from its node, like in the graph
+		unlink(a, b);
+		unlink(b, a);
+		// a parallel edge keeps every distance
+		if (a == b || adjacent(a, b)) return true;
+		for (int source = 0; source < size; source++) {
+			int row = source * size;
+			int da = distanceAt(row + a);
+			int db = distanceAt(row + b);
+			if (da == db) continue;
+			int child = da < db ? b : a;
+			if (!hasParent(row, child, -1)) repair(row, child);
+		}
+		return true;
+	}
+
+	// true if a neighbour of the node that is not affected is one step closer to the source
+	private boolean hasParent(int row, int node, int marks) {
+		int parent = distanceAt(row + node) - 1;
+		int[] neighbours = adjacency[node];
+		for (int e = 0; e < degrees[node]; e++) {
+			int neighbour = neighbours[e];
+			if (distanceAt(row + neighbour) == parent && affected[neighbour] != marks) return true;
+		}
+		return false;
+	}
+
+	// finds the nodes below root that lost every shortest path and gives them new distances
+	private void repair(int row, int root) {
+		int marks = ++epoch;
+		int count = 0;
+		affected[root] = marks;
+		queue[count++] = root;
+		// levels are visited in order, so all affected parents of a node are marked before it is checked
+		for (int head = 0; head < count; head++) {
+			int node = queue[head];
+			int child = distanceAt(row + node) + 1;
+			int[] neighbours = adjacency[node];
+			for (int e = 0; e < degrees[node]; e++) {
+				int neighbour = neighbours[e];
+				if (affected[neighbour] == marks || finished[neighbour] == marks) continue;
+				if (distanceAt(row + neighbour) != child) continue;
+				finished[neighbour] = marks;
+				if (!hasParent(row, neighbour, marks)) {
+					affected[neighbour] = marks;
+					queue[count++] = neighbour;
+				}
+			}
+		}
+
+		// nearest unaffected neighbour of every affected node, then a search in distance order
+		for (int i = 0; i < count; i++) table[row + queue[i]] = (short) UNREACHABLE;
+		int startCount = 0;
+		for (int i = 0; i < count; i++) {
+			int node = queue[i];
+			int best = UNREACHABLE;
+			int[] neighbours = adjacency[node];
+			for (int e = 0; e < degrees[node]; e++) {
+				int neighbour = neighbours[e];
+				if (affected[neighbour] == marks) continue;
+				best = Math.min(best, distanceAt(row + neighbour) + 1);
+			}
+			if (best < UNREACHABLE) starts[startCount++] = (long) best << 32 | node;
+		}
+		Arrays.sort(starts, 0, startCount);
+
+		int done = ++epoch;
+		int head = 0;
+		int tail = 0;
+		int next = 0;
+		while (next < startCount || head < tail) {
+			int node;
+			int distance;
+			if (head < tail && (next == startCount || keys[head] <= (int) (starts[next] >>> 32))) {
+				node = queue[head];
+				distance = keys[head++];
+			}
+			else {
+				node = (int) starts[next];
+				distance = (int) (starts[next++] >>> 32);
+			}
+			if (finished[node] == done) continue;
+			finished[node] = done;
+			table[row + node] = (short) distance;
+			int[] neighbours = adjacency[node];
+			for (int e = 0; e < degrees[node]; e++) {
+				int neighbour = neighbours[e];
+				if (affected[neighbour] != marks || finished[neighbour] == done) continue;
+				if (distance + 1 < distanceAt(row + neighbour)) {
+					table[row + neighbour] = (short) (distance + 1);
+					queue[tail] = neighbour;
+					keys[tail++] = distance + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds an edge back to the graph, at the end of the edges of both nodes,
+	 * see {@link UndirectedGraph#addEdge(Edge)}, and shortens the distances
+	 * that go through it
+	 *
+	 * @param edge the edge; not null and both nodes must be in the graph
+	 */
+	public void restoreEdge(Edge<Integer, D> edge) {
+		graph.addEdge(edge);
+		if (!filter.test(edge.data())) return;
+		int a = graph.nodeIndex(edge.source().value());
+		int b = graph.nodeIndex(edge.destination().value());
+		boolean parallel = adjacent(a, b);
+		link(a, b);
+		link(b, a);
+		if (a == b || parallel) return;
+		for (int source = 0; source < size; source++) {
+			int row = source * size;
+			int da = distanceAt(row + a);
+			int db = distanceAt(row + b);
+			if (da + 1 < db) shorten(row, b, da + 1);
+			else if (db + 1 < da) shorten(row, a, db + 1);
+		}
+	}
+
+	// breadth first search from a node that got closer, through the nodes that get closer too
+	private void shorten(int row, int node, int distance) {
+		table[row + node] = (short) distance;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = node;
+		while (head < tail) {
+			int current = queue[head++];
+			int next = distanceAt(row + current) + 1;
+			int[] neighbours = adjacency[current];
+			for (int e = 0; e < degrees[current]; e++) {
+				int neighbour = neighbours[e];
+				if (next < distanceAt(row + neighbour)) {
+					table[row + neighbour] = (short) next;
+					queue[tail++] = neighbour;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param from the value of the source node
+	 * @param to the value of the destination node
+	 * @return the number of edges on a shortest path from source to
+	 *         destination, or {@link DistanceOracle#UNREACHABLE}
+	 */
+	public int distance(int from, int to) {
+		int i = graph.nodeIndex(from);
+		int j = graph.nodeIndex(to);
+		if (i < 0 || j < 0) return DistanceOracle.UNREACHABLE;
+		int distance = distanceAt(i * size + j);
+		return distance == UNREACHABLE ? DistanceOracle.UNREACHABLE : distance;
+	}
+
+	/**
+	 * @return the number of nodes in the graph
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return an immutable copy of the current distances; never null
+	 */
+	public DistanceOracle snapshot() {
+		ByteBuffer copy = ByteBuffer.allocate(table.length * 2);
+		copy.asShortBuffer().put(table);
+		int maxDistance = 0;
+		for (short distance : table) {
+			int value = distance & 0xffff;
+			if (value != UNREACHABLE) maxDistance = Math.max(maxDistance, value);
+		}
+		return DistanceOracle.wrap(values, copy, 2, maxDistance);
+	}
+
+}
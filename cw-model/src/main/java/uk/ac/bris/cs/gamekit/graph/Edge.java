@@ -9,6 +9,8 @@ public class Edge<N, D> implements Serializable {
 	private final Node<N> source;
 	private final Node<N> destination;
 	private final D data;
+	// cached hash code, 0 until first computed; not serialised so older streams still read
+	private transient int hash;
 
 	public Edge(Node<N> source, Node<N> destination, D data) {
 		this.source = source;
@@ -52,13 +54,20 @@ public class Edge<N, D> implements Serializable {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		Edge<?, ?> edge = (Edge<?, ?>) o;
-		return Objects.equals(source, edge.source) && Objects.equals(destination, edge.destination)
+		return hashCode() == edge.hashCode() && Objects.equals(source, edge.source) && Objects.equals(destination, edge.destination)
 				&& Objects.equals(data, edge.data);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(source, destination, data);
+		int h = hash;
+		if (h == 0) {
+			// same value as Objects.hash(source, destination, data) without the varargs array
+			h = 31 * (31 * (31 + Objects.hashCode(source)) + Objects.hashCode(destination))
+					+ Objects.hashCode(data);
+			hash = h;
+		}
+		return h;
 	}
 
 	@Override
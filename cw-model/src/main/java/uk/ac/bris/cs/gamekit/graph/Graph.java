@@ -28,6 +28,27 @@ public interface Graph<V, D> {
 	 */
 	void addEdge(Edge<V, D> edge);
 
+	/**
+	 * Removes an {@link Edge} from the graph, for example a road that is
+	 * closed for a while. Adding it again with {@link #addEdge(Edge)} makes it
+	 * part of the graph again, but at the end of the edges, so the order of
+	 * the edges is not restored. Only one of several equal edges is removed.
+	 * Not supported by default.
+	 *
+	 * <br>
+	 * Caches keyed by graph such as {@link DistanceOracle#forGraph(Graph)} do
+	 * not see removed edges, so a graph that is in use by a game, directly or
+	 * through an {@link ImmutableGraph}, must not be changed; see
+	 * {@link DynamicDistances} for distances that follow the changes.
+	 *
+	 * @param edge the edge to remove, must not be null
+	 * @return true if the graph had the edge
+	 * @throws UnsupportedOperationException if the graph cannot remove edges
+	 */
+	default boolean removeEdge(Edge<V, D> edge) {
+		throw new UnsupportedOperationException("Removing edge is not supported");
+	}
+
 	/**
 	 * Retrieves the node associated with the given value, see
 	 * {@link Node#value()}
@@ -42,6 +63,20 @@ public interface Graph<V, D> {
 	 */
 	boolean containsNode(V value);
 
+	/**
+	 * Finds the dense index of the node with the given value, its position in
+	 * {@link #getNodes()}. Implementations should override the default, which
+	 * searches the nodes.
+	 *
+	 * @param value the value the node holds
+	 * @return the index, 0 to {@link #size()} exclusive, or -1 if no node has
+	 *         the value
+	 */
+	default int nodeIndex(V value) {
+		Node<V> node = getNode(value);
+		return node == null ? -1 : getNodes().indexOf(node);
+	}
+
 	/**
 	 * @return immutable list of all nodes in this graph in insertion order;
 	 *         could be empty but never null
@@ -36,6 +36,12 @@ public final class ImmutableGraph<V, D> extends AbstractGraph<V, D>
 				"Adding edge is not supported in an ImmutableGraph");
 	}
 
+	@Override
+	public boolean removeEdge(Edge<V, D> edge) {
+		throw new UnsupportedOperationException(
+				"Removing edge is not supported in an ImmutableGraph");
+	}
+
 	@Override
 	public Node<V> getNode(V value) {
 		return graph.getNode(value);
@@ -46,6 +52,11 @@ public final class ImmutableGraph<V, D> extends AbstractGraph<V, D>
 		return graph.containsNode(value);
 	}
 
+	@Override
+	public int nodeIndex(V value) {
+		return graph.nodeIndex(value);
+	}
+
 	@Override
 	public List<Node<V>> getNodes() {
 		return graph == null ? Collections.emptyList() : graph.getNodes();
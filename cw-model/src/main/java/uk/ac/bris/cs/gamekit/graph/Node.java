@@ -12,6 +12,8 @@ public final class Node<V> implements Serializable{
 
 	private static final long serialVersionUID = 6923768108710951907L;
 	private final V value;
+	// cached hash code, 0 until first computed; not serialised so older streams still read
+	private transient int hash;
 
 	public Node(V value) {
 		this.value = Objects.requireNonNull(value);
@@ -29,12 +31,18 @@ public final class Node<V> implements Serializable{
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		Node<?> node = (Node<?>) o;
-		return Objects.equals(value, node.value);
+		return hashCode() == node.hashCode() && Objects.equals(value, node.value);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(value);
+		int h = hash;
+		if (h == 0) {
+			// same value as Objects.hash(value) without the varargs array
+			h = 31 + value.hashCode();
+			hash = h;
+		}
+		return h;
 	}
 
 	@Override
@@ -2,26 +2,43 @@ package uk.ac.bris.cs.gamekit.graph;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * An undirected graph implementation
  *
+ * <br>
+ * Nodes are numbered by a dense index, 0 to {@link #size()} exclusive, in
+ * insertion order; see {@link #nodeIndex(Object)}. Traversals can stay on
+ * indices with {@link #degree(int)} and {@link #neighbourIndex(int, int)}.
+ *
  * @param <V> the type for {@link Node} values
  * @param <D> the type for {@link Edge} data
  */
 public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements Graph<V, D> , Serializable{
 
-	private static final long serialVersionUID = 6932837778781276092L;
-	private final Map<V, Node<V>> valueNodeMap = new LinkedHashMap<>();
-	private final Map<Node<V>, List<Edge<V, D>>> sourceEdges = new HashMap<>();
-	private final Map<Node<V>, List<Edge<V, D>>> destinationEdges = new HashMap<>();
+	private static final long serialVersionUID = -3162541935224850126L;
+	// Integer values below this are indexed by an array instead of the map
+	private static final int SMALL_VALUES = 1 << 16;
+
+	private final List<Node<V>> nodes = new ArrayList<>();
+	private final List<Node<V>> nodesView = Collections.unmodifiableList(nodes);
+	private final Map<V, Integer> valueIndices = new HashMap<>();
+	// index + 1 of small Integer values, 0 where there is no node
+	private int[] smallIndices = new int[0];
+	private final List<List<Edge<V, D>>> sourceEdges = new ArrayList<>();
+	private final List<List<Edge<V, D>>> destinationEdges = new ArrayList<>();
+	private final List<Collection<Edge<V, D>>> sourceViews = new ArrayList<>();
+	private final List<Collection<Edge<V, D>>> destinationViews = new ArrayList<>();
+	// node index of the destination of every edge in sourceEdges, in the same order
+	private final List<int[]> neighbours = new ArrayList<>();
 	private final List<Edge<V, D>> edges = new ArrayList<>();
+	private final Collection<Edge<V, D>> edgesView = Collections.unmodifiableList(edges);
 
 	/**
 	 * Creates a new undirected graph
@@ -39,11 +56,34 @@ public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements
 	@Override
 	public void addNode(Node<V> node) {
 		if (node == null) throw new NullPointerException("node == null");
-		if (valueNodeMap.containsKey(node.value()))
+		if (containsNode(node.value()))
 			throw new IllegalArgumentException(node + " is already in the graph");
-		valueNodeMap.put(node.value(), node);
-		sourceEdges.put(node, new ArrayList<>());
-		destinationEdges.put(node, new ArrayList<>());
+		int index = nodes.size();
+		nodes.add(node);
+		V value = node.value();
+		if (isSmall(value)) {
+			int small = (Integer) value;
+			if (small >= smallIndices.length)
+				smallIndices = Arrays.copyOf(smallIndices,
+						Math.min(SMALL_VALUES, Math.max(small + 1, smallIndices.length * 2)));
+			smallIndices[small] = index + 1;
+		}
+		else {
+			valueIndices.put(value, index);
+		}
+		List<Edge<V, D>> from = new ArrayList<>();
+		List<Edge<V, D>> to = new ArrayList<>();
+		sourceEdges.add(from);
+		destinationEdges.add(to);
+		sourceViews.add(Collections.unmodifiableList(from));
+		destinationViews.add(Collections.unmodifiableList(to));
+		neighbours.add(new int[0]);
+	}
+
+	private static boolean isSmall(Object value) {
+		if (!(value instanceof Integer)) return false;
+		int small = (Integer) value;
+		return small >= 0 && small < SMALL_VALUES;
 	}
 
 	/**
@@ -66,39 +106,136 @@ public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements
 	}
 
 	private void appendEdge(Node<V> node, Edge<V, D> edge) {
-		sourceEdges.get(node).add(edge);
-		destinationEdges.get(node).add(edge);
+		int index = nodeIndex(node.value());
+		List<Edge<V, D>> from = sourceEdges.get(index);
+		int[] targets = neighbours.get(index);
+		if (from.size() == targets.length) {
+			targets = Arrays.copyOf(targets, Math.max(4, targets.length * 2));
+			neighbours.set(index, targets);
+		}
+		targets[from.size()] = nodeIndex(edge.destination().value());
+		from.add(edge);
+		destinationEdges.get(index).add(edge);
 		edges.add(edge);
 	}
 
+	/**
+	 * Removes an edge and its twin with source and destination swapped, the
+	 * other edges from both nodes keep their order. See
+	 * {@link Graph#removeEdge(Edge)} for graphs that are in use by a game.
+	 *
+	 * @param edge the edge to remove in either direction, must not be null
+	 * @return true if the graph had the edge
+	 */
+	@Override
+	public boolean removeEdge(Edge<V, D> edge) {
+		if (edge == null) throw new NullPointerException("edge == null");
+		int source = nodeIndex(edge.source().value());
+		int destination = nodeIndex(edge.destination().value());
+		if (source < 0 || destination < 0 || !sourceEdges.get(source).contains(edge))
+			return false;
+		unlinkEdge(source, edge);
+		unlinkEdge(destination, edge.swap());
+		return true;
+	}
+
+	private void unlinkEdge(int index, Edge<V, D> edge) {
+		List<Edge<V, D>> from = sourceEdges.get(index);
+		int position = from.indexOf(edge);
+		from.remove(position);
+		int[] targets = neighbours.get(index);
+		System.arraycopy(targets, position + 1, targets, position, from.size() - position);
+		destinationEdges.get(index).remove(edge);
+		edges.remove(edge);
+	}
+
+	/**
+	 * @param value the value of a node
+	 * @return the index of the node, 0 to {@link #size()} exclusive, or -1 if
+	 *         the graph has no node with the value
+	 */
+	@Override
+	public int nodeIndex(V value) {
+		if (isSmall(value)) {
+			int small = (Integer) value;
+			return small < smallIndices.length ? smallIndices[small] - 1 : -1;
+		}
+		Integer index = valueIndices.get(value);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @param index a node index
+	 * @return the node with the index
+	 */
+	public Node<V> nodeAt(int index) {
+		return nodes.get(index);
+	}
+
+	/**
+	 * @param index a node index
+	 * @return the number of edges from the node
+	 */
+	public int degree(int index) {
+		return sourceEdges.get(index).size();
+	}
+
+	/**
+	 * @param index a node index
+	 * @param edge the position of an edge from the node, 0 to
+	 *        {@link #degree(int)} exclusive, in the order of
+	 *        {@link #getEdgesFrom(Node)}
+	 * @return the node index of the destination of the edge
+	 */
+	public int neighbourIndex(int index, int edge) {
+		if (edge >= degree(index)) throw new IndexOutOfBoundsException("edge " + edge);
+		return neighbours.get(index)[edge];
+	}
+
+	/**
+	 * @param index a node index
+	 * @return immutable view of the edges from the node, the same as
+	 *         {@link #getEdgesFrom(Node)}
+	 */
+	public Collection<Edge<V, D>> edgesFrom(int index) {
+		return sourceViews.get(index);
+	}
+
 	@Override
 	public Node<V> getNode(V value) {
-		return valueNodeMap.get(value);
+		int index = nodeIndex(value);
+		return index < 0 ? null : nodes.get(index);
 	}
 
 	@Override
 	public boolean containsNode(V value) {
-		return valueNodeMap.containsKey(value);
+		return nodeIndex(value) >= 0;
 	}
 
+	/**
+	 * @return immutable view of all nodes in this graph in index order, it
+	 *         shows nodes added later
+	 */
 	@Override
 	public List<Node<V>> getNodes() {
-		return Collections.unmodifiableList(new ArrayList<>(valueNodeMap.values()));
+		return nodesView;
 	}
 
 	@Override
 	public Collection<Edge<V, D>> getEdges() {
-		return Collections.unmodifiableList(edges);
+		return edgesView;
 	}
 
 	@Override
 	public Collection<Edge<V, D>> getEdgesFrom(Node<V> source) {
-		return Collections.unmodifiableList(sourceEdges.get(source));
+		int index = nodeIndex(source.value());
+		return index < 0 ? Collections.emptyList() : sourceViews.get(index);
 	}
 
 	@Override
 	public Collection<Edge<V, D>> getEdgesTo(Node<V> destination) {
-		return Collections.unmodifiableList(destinationEdges.get(destination));
+		int index = nodeIndex(destination.value());
+		return index < 0 ? Collections.emptyList() : destinationViews.get(index);
 	}
 
 	@Override
@@ -108,11 +245,11 @@ public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements
 
 	@Override
 	public int size() {
-		return valueNodeMap.size();
+		return nodes.size();
 	}
 
 	@Override
 	public String toString() {
-		return "UndirectedGraph{" + "nodes=" + valueNodeMap.values() + ", edges=" + edges + '}';
+		return "UndirectedGraph{" + "nodes=" + nodes + ", edges=" + edges + '}';
 	}
 }
@@ -16,6 +16,7 @@ import javafx.scene.image.Image;
 import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+import uk.ac.bris.cs.scotlandyard.model.MapBundle;
 import uk.ac.bris.cs.scotlandyard.model.StandardGame;
 import uk.ac.bris.cs.scotlandyard.model.Ticket;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
@@ -54,8 +55,15 @@ public final class ResourceManager implements ResourceProvider {
 				identity(),
 				ticket -> loadImage(format("/tickets/%s.png", ticket.name().toLowerCase())))));
 
-		mapCoordinates = ImmutableMap.copyOf(StandardGame.pngMapPositionEntries());
-		graph = new ImmutableGraph<>(StandardGame.standardGraph());
+		try {
+			// precompiled map with distance tables, skips parsing on later starts
+			MapBundle bundle = StandardGame.standardBundle();
+			mapCoordinates = ImmutableMap.copyOf(StandardGame.pngMapPositionEntries(bundle));
+			graph = bundle.graph();
+		} catch (IOException | RuntimeException e) {
+			mapCoordinates = ImmutableMap.copyOf(StandardGame.pngMapPositionEntries());
+			graph = new ImmutableGraph<>(StandardGame.standardGraph());
+		}
 	}
 
 	private static Image loadImage(String path) {
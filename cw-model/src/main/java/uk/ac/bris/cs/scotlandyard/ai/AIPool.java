@@ -23,7 +23,9 @@ import uk.ac.bris.cs.scotlandyard.model.Colour;
 import uk.ac.bris.cs.scotlandyard.model.Move;
 import uk.ac.bris.cs.scotlandyard.model.Player;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGame;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.ViewSnapshot;
 
 /**
  * <b> Not a public API, do not use!</b> <br>
@@ -124,6 +126,11 @@ public class AIPool<G> {
 
 	}
 
+	/**
+	 * Runs a player on the shared pool. The player gets an immutable snapshot
+	 * of the game instead of the game itself, so it can keep reading while the
+	 * game moves on.
+	 */
 	static class ThreadedPlayer implements Player {
 
 		final static ExecutorService service = Executors.newWorkStealingPool();
@@ -141,9 +148,11 @@ public class AIPool<G> {
 				int location,
 				Set<Move> moves,
 				Consumer<Move> callback) {
+			ScotlandYardView snapshot = snapshot(view);
+			Set<Move> copy = ImmutableSet.copyOf(moves);
 			service.submit((Callable<Void>) () -> {
 				try {
-					player.makeMove(view, location, ImmutableSet.copyOf(moves), callback);
+					player.makeMove(snapshot, location, copy, callback);
 				} catch (Throwable e) {
 					e.printStackTrace();
 					exceptionHandler.accept(e);
@@ -151,6 +160,12 @@ public class AIPool<G> {
 				return null;
 			});
 		}
+
+		// the model copies its state when first asked after a move, other games are copied here on the calling thread
+		static ScotlandYardView snapshot(ScotlandYardView view) {
+			if (view instanceof ScotlandYardModel) return ((ScotlandYardModel) view).snapshot();
+			return ViewSnapshot.of(view);
+		}
 	}
 
 }
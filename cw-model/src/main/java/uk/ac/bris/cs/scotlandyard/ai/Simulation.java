@@ -0,0 +1,432 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javafx.geometry.Point2D;
+import javafx.scene.image.Image;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameMetrics;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.RecordingGameMetrics;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Plays many standard games without a UI, e.g. to evaluate AIs on a build
+ * server. Each game is a fresh {@link ScotlandYardModel} set up from
+ * {@link StandardGame} with its own {@link PlayerFactory} instances, games run
+ * concurrently on a fixed pool of threads.
+ *
+ * <br>
+ * Players may hand back their move on any thread; the game waits up to
+ * {@link Builder#moveTimeout(Duration)} for each rotation. A game is counted
+ * as failed if a player throws or does not respond in time.
+ *
+ * <br>
+ * Usage from the command line:
+ * <pre>
+ * java -cp ... uk.ac.bris.cs.scotlandyard.ai.Simulation &lt;Mr.X AI&gt; &lt;detective AI&gt; [games] [detectives]
+ * </pre>
+ * where the AIs are the names given in {@link ManagedAI#value()}.
+ */
+public final class Simulation {
+
+	private static final Colour[] DETECTIVES = Arrays.stream(Colour.values())
+			.filter(Colour::isDetective).toArray(Colour[]::new);
+
+	private final Supplier<? extends PlayerFactory> mrX;
+	private final Supplier<? extends PlayerFactory> detectives;
+	private final int games;
+	private final int detectiveCount;
+	private final int threads;
+	private final int seed;
+	private final Duration moveTimeout;
+	private final GameMetrics metrics;
+
+	private Simulation(Builder builder) {
+		this.mrX = builder.mrX;
+		this.detectives = builder.detectives;
+		this.games = builder.games;
+		this.detectiveCount = builder.detectiveCount;
+		this.threads = builder.threads;
+		this.seed = builder.seed;
+		this.moveTimeout = builder.moveTimeout;
+		this.metrics = builder.metrics;
+	}
+
+	/**
+	 * Builder for {@link Simulation}
+	 */
+	public static final class Builder {
+
+		private final Supplier<? extends PlayerFactory> mrX;
+		private final Supplier<? extends PlayerFactory> detectives;
+		private int games = 1000;
+		private int detectiveCount = DETECTIVES.length;
+		private int threads = Runtime.getRuntime().availableProcessors();
+		private int seed = 0;
+		private Duration moveTimeout = Duration.ofSeconds(30);
+		private GameMetrics metrics = GameMetrics.NONE;
+
+		/**
+		 * @param mrX creates the factory of Mr.X, called once per game; not null
+		 * @param detectives creates the factory shared by all detectives of a
+		 *        game, called once per game; not null
+		 */
+		public Builder(Supplier<? extends PlayerFactory> mrX,
+				Supplier<? extends PlayerFactory> detectives) {
+			this.mrX = requireNonNull(mrX);
+			this.detectives = requireNonNull(detectives);
+		}
+
+		/**
+		 * @param games number of games to play, defaults to 1000
+		 * @return this builder
+		 */
+		public Builder games(int games) {
+			if (games < 0) throw new IllegalArgumentException("games < 0");
+			this.games = games;
+			return this;
+		}
+
+		/**
+		 * @param detectives number of detectives per game between 1 and 5,
+		 *        defaults to 5
+		 * @return this builder
+		 */
+		public Builder detectives(int detectives) {
+			if (detectives < 1 || detectives > DETECTIVES.length)
+				throw new IllegalArgumentException("detectives must be within 1 and "
+						+ DETECTIVES.length);
+			this.detectiveCount = detectives;
+			return this;
+		}
+
+		/**
+		 * @param threads number of games played at the same time, defaults to
+		 *        the number of available processors
+		 * @return this builder
+		 */
+		public Builder threads(int threads) {
+			if (threads < 1) throw new IllegalArgumentException("threads < 1");
+			this.threads = threads;
+			return this;
+		}
+
+		/**
+		 * @param seed seed of the first game, game {@code i} uses
+		 *        {@code seed + i} for its starting locations; defaults to 0
+		 * @return this builder
+		 */
+		public Builder seed(int seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * @param timeout the longest a rotation may take before the game is
+		 *        abandoned, defaults to 30 seconds; not null
+		 * @return this builder
+		 */
+		public Builder moveTimeout(Duration timeout) {
+			if (timeout.isNegative() || timeout.isZero())
+				throw new IllegalArgumentException("timeout must be positive");
+			this.moveTimeout = timeout;
+			return this;
+		}
+
+		/**
+		 * @param metrics receives timings from every game, must be thread safe;
+		 *        defaults to {@link GameMetrics#NONE}; not null
+		 * @return this builder
+		 */
+		public Builder metrics(GameMetrics metrics) {
+			this.metrics = requireNonNull(metrics);
+			return this;
+		}
+
+		public Simulation build() {
+			return new Simulation(this);
+		}
+
+	}
+
+	/**
+	 * Plays all games and blocks until they are finished
+	 *
+	 * @return the report; never null
+	 * @throws IOException if the standard game resources cannot be read
+	 * @throws InterruptedException if interrupted while waiting for games
+	 */
+	public SimulationReport run() throws IOException, InterruptedException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		ResourceProvider provider = new HeadlessResources(graph,
+				StandardGame.pngMapPositionEntries());
+		ExecutorService service = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("simulation-%d").build());
+		long start = System.nanoTime();
+		try {
+			List<Future<Outcome>> futures = new ArrayList<>(games);
+			for (int i = 0; i < games; i++) {
+				int gameSeed = seed + i;
+				futures.add(service.submit(() -> play(graph, provider, gameSeed)));
+			}
+			int mrXWins = 0, detectiveWins = 0, failures = 0, moves = 0;
+			Throwable firstFailure = null;
+			List<Outcome> outcomes = new ArrayList<>(games);
+			for (Future<Outcome> future : futures) {
+				Outcome outcome;
+				try {
+					outcome = future.get();
+				} catch (ExecutionException e) {
+					outcome = new Outcome(null, new long[0], 0, e.getCause());
+				}
+				outcomes.add(outcome);
+				moves += outcome.moves;
+				if (outcome.failure != null) {
+					failures++;
+					if (firstFailure == null) firstFailure = outcome.failure;
+				} else if (outcome.winners.contains(Colour.BLACK)) mrXWins++;
+				else detectiveWins++;
+			}
+			Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+			long[] latencies = new long[moves];
+			int offset = 0;
+			for (Outcome outcome : outcomes) {
+				System.arraycopy(outcome.latencies, 0, latencies, offset, outcome.moves);
+				offset += outcome.moves;
+			}
+			return new SimulationReport(games, mrXWins, detectiveWins, failures, elapsed,
+					latencies, firstFailure);
+		} finally {
+			service.shutdownNow();
+		}
+	}
+
+	private Outcome play(Graph<Integer, Transport> graph, ResourceProvider provider,
+			int gameSeed) throws InterruptedException {
+		Recorder recorder = new Recorder();
+		PlayerFactory mrXFactory = mrX.get();
+		PlayerFactory detectiveFactory = detectives.get();
+		List<Integer> locations = StandardGame.generateDetectiveLocations(gameSeed,
+				detectiveCount);
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		for (int i = 0; i < detectiveCount; i++) {
+			configurations.add(new PlayerConfiguration.Builder(DETECTIVES[i])
+					.using(recorder.wrap(detectiveFactory.createPlayer(DETECTIVES[i])))
+					.with(StandardGame.generateDetectiveTickets())
+					.at(locations.get(i))
+					.build());
+		}
+		PlayerConfiguration black = new PlayerConfiguration.Builder(Colour.BLACK)
+				.using(recorder.wrap(mrXFactory.createPlayer(Colour.BLACK)))
+				.with(StandardGame.generateMrXTickets())
+				.at(StandardGame.generateMrXLocation(gameSeed))
+				.build();
+		ScotlandYardModel game = new ScotlandYardModel(StandardGame.ROUNDS, graph, black,
+				configurations.get(0), configurations.subList(1, detectiveCount)
+				.toArray(new PlayerConfiguration[0]));
+		game.setMetrics(metrics);
+		for (PlayerFactory factory : Arrays.asList(mrXFactory, detectiveFactory)) {
+			factory.createSpectators(game).forEach(game::registerSpectator);
+			factory.ready(HeadlessResources.VISUALISER, provider);
+		}
+		game.registerSpectator(recorder);
+		try {
+			while (!game.isGameOver()) {
+				CompletableFuture<Void> rotation = recorder.nextRotation();
+				game.startRotate();
+				rotation.get(moveTimeout.toNanos(), TimeUnit.NANOSECONDS);
+			}
+			return recorder.outcome(game.getWinningPlayers(), null);
+		} catch (ExecutionException e) {
+			return recorder.outcome(null, e.getCause());
+		} catch (TimeoutException e) {
+			return recorder.outcome(null, new TimeoutException(
+					"No move within " + moveTimeout + " in game with seed " + gameSeed));
+		} catch (RuntimeException e) {
+			return recorder.outcome(null, e);
+		} finally {
+			mrXFactory.finish();
+			detectiveFactory.finish();
+		}
+	}
+
+	private static final class Outcome {
+
+		final Set<Colour> winners;
+		final long[] latencies;
+		final int moves;
+		final Throwable failure;
+
+		Outcome(Set<Colour> winners, long[] latencies, int moves, Throwable failure) {
+			this.winners = winners;
+			this.latencies = latencies;
+			this.moves = moves;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * Times the moves of one game and signals the end of each rotation. Moves
+	 * of a game are made one after the other but possibly on different threads
+	 * so access is synchronized.
+	 */
+	private static final class Recorder implements Spectator {
+
+		private long[] latencies = new long[64];
+		private int moves;
+		private CompletableFuture<Void> rotation;
+
+		synchronized CompletableFuture<Void> nextRotation() {
+			rotation = new CompletableFuture<>();
+			return rotation;
+		}
+
+		private synchronized void record(long nanos) {
+			if (moves == latencies.length) latencies = Arrays.copyOf(latencies, moves * 2);
+			latencies[moves++] = nanos;
+		}
+
+		private synchronized void complete(Throwable failure) {
+			if (failure == null) rotation.complete(null);
+			else rotation.completeExceptionally(failure);
+		}
+
+		synchronized Outcome outcome(Set<Colour> winners, Throwable failure) {
+			return new Outcome(winners, latencies, moves, failure);
+		}
+
+		Player wrap(Player player) {
+			requireNonNull(player);
+			return (view, location, moves, callback) -> {
+				// the model clears the move set once a move is accepted
+				if (moves.isEmpty()) {
+					// Mr.X is stuck, the model has already ended the game
+					complete(null);
+					return;
+				}
+				Set<Move> copy = ImmutableSet.copyOf(moves);
+				long start = System.nanoTime();
+				Consumer<Move> timed = move -> {
+					record(System.nanoTime() - start);
+					try {
+						callback.accept(move);
+					} catch (RuntimeException e) {
+						complete(e);
+					}
+				};
+				try {
+					player.makeMove(view, location, copy, timed);
+				} catch (RuntimeException e) {
+					complete(e);
+				}
+			};
+		}
+
+		@Override
+		public void onRotationComplete(ScotlandYardView view) {
+			complete(null);
+		}
+
+		@Override
+		public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+			complete(null);
+		}
+	}
+
+	/**
+	 * Resources for AIs running without JavaFX; images and the visualiser
+	 * surface are not available
+	 */
+	private static final class HeadlessResources implements ResourceProvider {
+
+		static final Visualiser VISUALISER = () -> {
+			throw new UnsupportedOperationException("No visualiser in a headless simulation");
+		};
+
+		private final Graph<Integer, Transport> graph;
+		private final Map<Integer, Entry<Integer, Integer>> positions;
+
+		HeadlessResources(Graph<Integer, Transport> graph,
+				Map<Integer, Entry<Integer, Integer>> positions) {
+			this.graph = graph;
+			this.positions = positions;
+		}
+
+		@Override
+		public Image getMap() {
+			throw new UnsupportedOperationException("No images in a headless simulation");
+		}
+
+		@Override
+		public Image getTicket(Ticket ticket) {
+			throw new UnsupportedOperationException("No images in a headless simulation");
+		}
+
+		@Override
+		public Graph<Integer, Transport> getGraph() {
+			return graph;
+		}
+
+		@Override
+		public Point2D coordinateAtNode(int node) {
+			Entry<Integer, Integer> position = positions.get(node);
+			return position == null ? null : new Point2D(position.getKey(), position.getValue());
+		}
+	}
+
+	private static AI find(List<AI> ais, String name) {
+		return ais.stream().filter(ai -> ai.getName().equals(name)).findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("No AI named " + name
+						+ ", available: " + ais.stream().map(AI::getName).collect(joining(", "))));
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: Simulation <Mr.X AI> <detective AI> [games] [detectives]");
+			System.exit(2);
+		}
+		List<AI> ais = AI.scanClasspath();
+		AI mrX = find(ais, args[0]);
+		AI detectives = find(ais, args[1]);
+		RecordingGameMetrics metrics = new RecordingGameMetrics();
+		Builder builder = new Builder(mrX::instantiate, detectives::instantiate).metrics(metrics);
+		if (args.length > 2) builder.games(Integer.parseInt(args[2]));
+		if (args.length > 3) builder.detectives(Integer.parseInt(args[3]));
+		SimulationReport report = builder.build().run();
+		System.out.println(report);
+		System.out.print(metrics);
+		report.firstFailure().ifPresent(Throwable::printStackTrace);
+	}
+
+}
@@ -0,0 +1,142 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Results of a {@link Simulation} run: game outcomes, throughput and the
+ * latency of every move made by the players
+ */
+public final class SimulationReport {
+
+	private final int games;
+	private final int mrXWins;
+	private final int detectiveWins;
+	private final int failures;
+	private final Duration elapsed;
+	// sorted ascending
+	private final long[] latencies;
+	private final Throwable firstFailure;
+
+	SimulationReport(int games, int mrXWins, int detectiveWins, int failures,
+			Duration elapsed, long[] latencies, Throwable firstFailure) {
+		this.games = games;
+		this.mrXWins = mrXWins;
+		this.detectiveWins = detectiveWins;
+		this.failures = failures;
+		this.elapsed = requireNonNull(elapsed);
+		this.latencies = latencies.clone();
+		Arrays.sort(this.latencies);
+		this.firstFailure = firstFailure;
+	}
+
+	/**
+	 * @return number of games played, failed games included
+	 */
+	public int games() {
+		return games;
+	}
+
+	/**
+	 * @return number of games won by Mr.X
+	 */
+	public int mrXWins() {
+		return mrXWins;
+	}
+
+	/**
+	 * @return number of games won by the detectives
+	 */
+	public int detectiveWins() {
+		return detectiveWins;
+	}
+
+	/**
+	 * @return number of games that were aborted because a player threw an
+	 *         exception or did not respond in time
+	 */
+	public int failures() {
+		return failures;
+	}
+
+	/**
+	 * @return the first exception that aborted a game, if any
+	 */
+	public Optional<Throwable> firstFailure() {
+		return Optional.ofNullable(firstFailure);
+	}
+
+	/**
+	 * @return wall clock time of the whole run
+	 */
+	public Duration elapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * @return games completed per second of wall clock time
+	 */
+	public double gamesPerSecond() {
+		long nanos = elapsed.toNanos();
+		return nanos == 0 ? 0 : games * 1e9 / nanos;
+	}
+
+	/**
+	 * @return fraction of completed games won by Mr.X, 0 if no game completed
+	 */
+	public double mrXWinRate() {
+		int completed = mrXWins + detectiveWins;
+		return completed == 0 ? 0 : (double) mrXWins / completed;
+	}
+
+	/**
+	 * @return fraction of completed games won by the detectives, 0 if no game
+	 *         completed
+	 */
+	public double detectiveWinRate() {
+		int completed = mrXWins + detectiveWins;
+		return completed == 0 ? 0 : (double) detectiveWins / completed;
+	}
+
+	/**
+	 * @return number of moves made across all games
+	 */
+	public int moves() {
+		return latencies.length;
+	}
+
+	/**
+	 * Returns the move latency at the given percentile using the nearest rank
+	 * method. Latency is measured from the call to
+	 * {@link uk.ac.bris.cs.scotlandyard.model.Player#makeMove} until the
+	 * player hands back a move.
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the latency; {@link Duration#ZERO} if no move was made
+	 */
+	public Duration latencyPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile " + percentile + " out of range");
+		if (latencies.length == 0) return Duration.ZERO;
+		int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+		return Duration.ofNanos(latencies[Math.max(rank - 1, 0)]);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("games: %d (%d failed) in %.2fs, %.1f games/s%n"
+						+ "Mr.X wins: %d (%.1f%%), detective wins: %d (%.1f%%)%n"
+						+ "moves: %d, latency p50: %.3fms, p90: %.3fms, p99: %.3fms, max: %.3fms",
+				games, failures, elapsed.toNanos() / 1e9, gamesPerSecond(),
+				mrXWins, mrXWinRate() * 100, detectiveWins, detectiveWinRate() * 100,
+				moves(), millis(50), millis(90), millis(99), millis(100));
+	}
+
+	private double millis(double percentile) {
+		return latencyPercentile(percentile).toNanos() / 1e6;
+	}
+
+}
@@ -23,6 +23,7 @@ import uk.ac.bris.cs.scotlandyard.model.PassMove;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
 import uk.ac.bris.cs.scotlandyard.model.Ticket;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
+import uk.ac.bris.cs.scotlandyard.model.Zobrist;
 
 import static java.util.Comparator.comparingInt;
 import static java.util.Objects.hash;
@@ -51,11 +52,16 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		final Colour colour;
 		final int location;
 		final ImmutableMap<Ticket, Integer> tickets;
+		final long zobrist;
 		ImmutablePlayer(Colour colour, int location,
 		                ImmutableMap<Ticket, Integer> tickets) {
 			this.colour = colour;
 			this.location = location;
 			this.tickets = tickets;
+			long zobrist = Zobrist.location(colour, location);
+			for (Entry<Ticket, Integer> entry : tickets.entrySet())
+				zobrist ^= Zobrist.tickets(colour, entry.getKey(), entry.getValue());
+			this.zobrist = zobrist;
 		}
 		//		ColourAbbr colour() { return ColourAbbr.from(colour); }
 		ImmutableMap<TicketAbbr, Integer> tickets() {
@@ -69,10 +75,12 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 			if (this == o) return true;
 			if (o == null || getClass() != o.getClass()) return false;
 			ImmutablePlayer player = (ImmutablePlayer) o;
-			return location == player.location &&
+			return zobrist == player.zobrist &&
+					colour == player.colour &&
+					location == player.location &&
 					Objects.equals(tickets, player.tickets);
 		}
-		@Override public int hashCode() { return hash(location, tickets); }
+		@Override public int hashCode() { return Long.hashCode(zobrist); }
 		@Override public String toString() {
 			return String.format("%s@%d{%s}", colour, location,
 					tickets().entrySet().stream().map(Entry::toString).collect(joining(",")));
@@ -88,6 +96,9 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 	final boolean gameOver;
 	final Colour currentPlayer;
 	final int currentRound;
+	// hash of the players, the current player and the round, compared first
+	// in equals as it is cheaper than comparing the graph
+	private final long zobrist;
 
 	public static ImmutableScotlandYardView snapshot(ScotlandYardView view) {
 		return new ImmutableScotlandYardView(view);
@@ -108,6 +119,7 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		this.gameOver = gameOver;
 		this.currentPlayer = currentPlayer;
 		this.currentRound = currentRound;
+		this.zobrist = zobrist(players, currentPlayer, currentRound);
 	}
 	private ImmutableScotlandYardView(ScotlandYardView view) {
 //		Thread.dumpStack();
@@ -128,6 +140,13 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		currentPlayer = view.getCurrentPlayer();
 		rounds = ImmutableList.copyOf((view.getRounds()));
 		graph = new ImmutableGraph<>(new UndirectedGraph<>(view.getGraph()));
+		zobrist = zobrist(players, currentPlayer, currentRound);
+	}
+
+	private static long zobrist(List<ImmutablePlayer> players, Colour currentPlayer, int currentRound) {
+		long zobrist = Zobrist.round(currentRound) ^ Zobrist.toMove(currentPlayer);
+		for (ImmutablePlayer player : players) zobrist ^= player.zobrist;
+		return zobrist;
 	}
 
 	@Override public List<Colour> getPlayers() { return colours; }
@@ -234,7 +253,8 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		ImmutableScotlandYardView that = (ImmutableScotlandYardView) o;
-		return gameOver == that.gameOver &&
+		return zobrist == that.zobrist &&
+				gameOver == that.gameOver &&
 				currentRound == that.currentRound &&
 				Objects.equals(players, that.players) &&
 				Objects.equals(winning, that.winning) &&
@@ -245,7 +265,7 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 
 	@Override
 	public int hashCode() {
-		return hash(players, winning, gameOver, currentPlayer, currentRound, rounds, graph);
+		return hash(zobrist, winning, gameOver);
 	}
 
 	@Override
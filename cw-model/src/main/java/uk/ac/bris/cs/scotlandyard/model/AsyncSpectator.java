@@ -0,0 +1,461 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link Spectator} that hands notifications to another spectator on a
+ * different thread so a slow spectator does not hold up the game. Register
+ * the {@code AsyncSpectator} with the game instead of the spectator itself.
+ *
+ * <br>
+ * Every notification is queued together with a {@link ViewSnapshot} of the
+ * game at the time of the notification and delivered in order. The queue is
+ * bounded, what happens when it is full is decided by the
+ * {@link OverflowPolicy}.
+ *
+ * <br>
+ * The wrapped spectator is never called concurrently, but not necessarily
+ * always from the same thread.
+ */
+public final class AsyncSpectator implements Spectator, AutoCloseable {
+
+	/**
+	 * What to do with a new notification when the queue is full
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * The game waits until there is room in the queue; nothing is lost
+		 */
+		BLOCK,
+
+		/**
+		 * The oldest queued notification is discarded
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * The oldest queued {@link Spectator#onRotationComplete} or
+		 * {@link Spectator#onRoundStarted} notification is discarded as the
+		 * notifications after it carry a newer view of the game; if there is
+		 * none the oldest notification is discarded
+		 */
+		COALESCE
+	}
+
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(
+			new ThreadFactoryBuilder().setDaemon(true).setNameFormat("spectator-%d").build());
+
+	// notifications delivered before the drain task gives up its thread
+	private static final int BATCH = 64;
+
+	private final Spectator spectator;
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private final Executor executor;
+	private final Consumer<Throwable> exceptionHandler;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final Condition idle = lock.newCondition();
+	private final ArrayDeque<Event> queue = new ArrayDeque<>();
+	// whether a drain task is scheduled or running
+	private boolean draining;
+	private boolean closed;
+
+	private long delivered;
+	private long dropped;
+	private long failures;
+	private int maxPending;
+	private long maxLagNanos;
+
+	private AsyncSpectator(Builder builder) {
+		this.spectator = builder.spectator;
+		this.capacity = builder.capacity;
+		this.policy = builder.policy;
+		this.executor = builder.executor;
+		this.exceptionHandler = builder.exceptionHandler;
+	}
+
+	/**
+	 * Builder for {@link AsyncSpectator}
+	 */
+	public static final class Builder {
+
+		private final Spectator spectator;
+		private int capacity = 256;
+		private OverflowPolicy policy = OverflowPolicy.BLOCK;
+		private Executor executor = DEFAULT_EXECUTOR;
+		private Consumer<Throwable> exceptionHandler = Throwable::printStackTrace;
+
+		/**
+		 * @param spectator the spectator to notify; not null
+		 */
+		public Builder(Spectator spectator) {
+			this.spectator = requireNonNull(spectator);
+		}
+
+		/**
+		 * @param capacity maximum number of queued notifications, defaults to
+		 *        256
+		 * @return this builder
+		 */
+		public Builder capacity(int capacity) {
+			if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+			this.capacity = capacity;
+			return this;
+		}
+
+		/**
+		 * @param policy what to do when the queue is full, defaults to
+		 *        {@link OverflowPolicy#BLOCK}; not null
+		 * @return this builder
+		 */
+		public Builder overflow(OverflowPolicy policy) {
+			this.policy = requireNonNull(policy);
+			return this;
+		}
+
+		/**
+		 * @param executor runs the notifications, defaults to a shared pool of
+		 *        daemon threads; not null
+		 * @return this builder
+		 */
+		public Builder executor(Executor executor) {
+			this.executor = requireNonNull(executor);
+			return this;
+		}
+
+		/**
+		 * @param handler receives exceptions and errors thrown by the spectator
+		 *        and executors rejecting a delivery, defaults to printing the
+		 *        stack trace; not null
+		 * @return this builder
+		 */
+		public Builder onError(Consumer<Throwable> handler) {
+			this.exceptionHandler = requireNonNull(handler);
+			return this;
+		}
+
+		public AsyncSpectator build() {
+			return new AsyncSpectator(this);
+		}
+
+	}
+
+	private enum Kind {MOVE_MADE, ROUND_STARTED, ROTATION_COMPLETE, GAME_OVER}
+
+	private static final class Event {
+
+		final Kind kind;
+		final ViewSnapshot view;
+		final Move move;
+		final int round;
+		final Set<Colour> winners;
+		final long queuedAt = System.nanoTime();
+
+		Event(Kind kind, ScotlandYardView view, Move move, int round, Set<Colour> winners) {
+			this.kind = kind;
+			this.view = ViewSnapshot.of(view);
+			this.move = move;
+			this.round = round;
+			this.winners = winners;
+		}
+
+		void deliver(Spectator spectator) {
+			switch (kind) {
+				case MOVE_MADE:
+					spectator.onMoveMade(view, move);
+					break;
+				case ROUND_STARTED:
+					spectator.onRoundStarted(view, round);
+					break;
+				case ROTATION_COMPLETE:
+					spectator.onRotationComplete(view);
+					break;
+				case GAME_OVER:
+					spectator.onGameOver(view, winners);
+					break;
+			}
+		}
+	}
+
+	@Override
+	public void onMoveMade(ScotlandYardView view, Move move) {
+		offer(new Event(Kind.MOVE_MADE, view, requireNonNull(move), 0, null));
+	}
+
+	@Override
+	public void onRoundStarted(ScotlandYardView view, int round) {
+		offer(new Event(Kind.ROUND_STARTED, view, null, round, null));
+	}
+
+	@Override
+	public void onRotationComplete(ScotlandYardView view) {
+		offer(new Event(Kind.ROTATION_COMPLETE, view, null, 0, null));
+	}
+
+	@Override
+	public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+		offer(new Event(Kind.GAME_OVER, view, null, 0, ImmutableSet.copyOf(winningPlayers)));
+	}
+
+	private void offer(Event event) {
+		boolean schedule = false;
+		lock.lock();
+		try {
+			while (!closed && queue.size() >= capacity) {
+				if (policy == OverflowPolicy.BLOCK) {
+					try {
+						notFull.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						dropped++;
+						return;
+					}
+				} else {
+					if (policy == OverflowPolicy.DROP_OLDEST || !removeSuperseded()) queue.pollFirst();
+					dropped++;
+				}
+			}
+			if (closed) {
+				dropped++;
+				return;
+			}
+			queue.addLast(event);
+			maxPending = Math.max(maxPending, queue.size());
+			if (!draining) {
+				draining = true;
+				schedule = true;
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (schedule) schedule();
+	}
+
+	// runs a drain task, if the executor rejects it the queue waits for the next notification
+	private void schedule() {
+		try {
+			executor.execute(this::drain);
+		} catch (Throwable e) {
+			stopped();
+			exceptionHandler.accept(e);
+		}
+	}
+
+	private void stopped() {
+		lock.lock();
+		try {
+			draining = false;
+			idle.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean removeSuperseded() {
+		for (Iterator<Event> it = queue.iterator(); it.hasNext(); ) {
+			Kind kind = it.next().kind;
+			if (kind == Kind.ROTATION_COMPLETE || kind == Kind.ROUND_STARTED) {
+				it.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void drain() {
+		// set once the queue was found empty or the next task was scheduled
+		boolean handedOver = false;
+		try {
+			for (int i = 0; i < BATCH; i++) {
+				Event event;
+				lock.lock();
+				try {
+					event = queue.pollFirst();
+					if (event == null) {
+						// under the same lock as the check, so no notification is left behind
+						draining = false;
+						idle.signalAll();
+						handedOver = true;
+						return;
+					}
+					maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - event.queuedAt);
+					notFull.signal();
+				} finally {
+					lock.unlock();
+				}
+				boolean failed = false;
+				try {
+					event.deliver(spectator);
+				} catch (Throwable e) {
+					failed = true;
+					exceptionHandler.accept(e);
+				}
+				lock.lock();
+				try {
+					if (failed) failures++;
+					else delivered++;
+				} finally {
+					lock.unlock();
+				}
+			}
+			// give other tasks on the executor a turn
+			executor.execute(this::drain);
+			handedOver = true;
+		} catch (Throwable e) {
+			exceptionHandler.accept(e);
+		} finally {
+			// if no task follows, the next notification schedules one
+			if (!handedOver) stopped();
+		}
+	}
+
+	/**
+	 * Waits until all queued notifications have been delivered
+	 *
+	 * @param timeout maximum time to wait; not null
+	 * @return true if the queue was drained, false on timeout
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean flush(Duration timeout) throws InterruptedException {
+		long nanos = timeout.toNanos();
+		lock.lock();
+		try {
+			while (draining) {
+				if (nanos <= 0) return false;
+				nanos = idle.awaitNanos(nanos);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops accepting notifications, the ones already queued are still
+	 * delivered. Notifications received afterwards are counted as dropped.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of notifications waiting to be delivered
+	 */
+	public int pending() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the most notifications that were waiting at the same time
+	 */
+	public int maxPending() {
+		lock.lock();
+		try {
+			return maxPending;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of notifications the spectator has handled without
+	 *         throwing
+	 */
+	public long delivered() {
+		lock.lock();
+		try {
+			return delivered;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of notifications discarded because the queue was full or
+	 *         the spectator closed
+	 */
+	public long dropped() {
+		lock.lock();
+		try {
+			return dropped;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of notifications on which the spectator threw
+	 */
+	public long failures() {
+		lock.lock();
+		try {
+			return failures;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return how long the oldest waiting notification has been queued,
+	 *         {@link Duration#ZERO} if nothing is waiting
+	 */
+	public Duration lag() {
+		lock.lock();
+		try {
+			Event oldest = queue.peekFirst();
+			return oldest == null ? Duration.ZERO
+					: Duration.ofNanos(System.nanoTime() - oldest.queuedAt);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the longest time a notification waited in the queue before it
+	 *         was delivered
+	 */
+	public Duration maxLag() {
+		lock.lock();
+		try {
+			return Duration.ofNanos(maxLagNanos);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AsyncSpectator{" + spectator + ", policy=" + policy + ", capacity=" + capacity
+				+ ", pending=" + pending() + ", delivered=" + delivered()
+				+ ", dropped=" + dropped() + ", maxLag=" + maxLag() + "}";
+	}
+
+}
@@ -10,6 +10,8 @@ public class DoubleMove extends Move {
 	private static final long serialVersionUID = 8857602351332595005L;
 	private final TicketMove firstMove;
 	private final TicketMove secondMove;
+	// not serialised, recomputed by hashCode after reading
+	private transient int hash;
 
 	/**
 	 * Create a new double move from two individual ticket moves
@@ -22,6 +24,7 @@ public class DoubleMove extends Move {
 		super(player);
 		this.firstMove = firstMove;
 		this.secondMove = secondMove;
+		this.hash = hash(player, this.firstMove, this.secondMove);
 	}
 
 	/**
@@ -38,6 +41,11 @@ public class DoubleMove extends Move {
 		super(player);
 		this.firstMove = new TicketMove(player, first, firstDestination);
 		this.secondMove = new TicketMove(player, second, secondDestination);
+		this.hash = hash(player, this.firstMove, this.secondMove);
+	}
+
+	private static int hash(Colour player, TicketMove firstMove, TicketMove secondMove) {
+		return 31 * (31 * ordinal(player) + Objects.hashCode(firstMove)) + Objects.hashCode(secondMove);
 	}
 
 	/**
@@ -78,15 +86,16 @@ public class DoubleMove extends Move {
 	public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
 		DoubleMove that = (DoubleMove) o;
-		return Objects.equals(firstMove, that.firstMove)
+		return hashCode() == that.hashCode() && colour() == that.colour()
+				&& Objects.equals(firstMove, that.firstMove)
 				&& Objects.equals(secondMove, that.secondMove);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(super.hashCode(), firstMove, secondMove);
+		if (hash == 0) hash = hash(colour(), firstMove, secondMove);
+		return hash;
 	}
 
 	@Override
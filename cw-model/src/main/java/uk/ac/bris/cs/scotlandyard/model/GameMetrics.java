@@ -0,0 +1,67 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+/**
+ * Receives timings of the hot paths of a game, see
+ * {@link ScotlandYardModel#setMetrics(GameMetrics)}. Implementations must be
+ * thread safe if they are shared between games running on different threads.
+ */
+public interface GameMetrics {
+
+	/**
+	 * The measured operations
+	 */
+	enum Operation {
+		/**
+		 * Generating the valid moves of the current player
+		 */
+		MOVE_GENERATION,
+
+		/**
+		 * Checking a move handed back by a player
+		 */
+		VALIDATION,
+
+		/**
+		 * Moving a player and transferring its ticket, once per leg of a
+		 * {@link DoubleMove}
+		 */
+		MOVE_APPLICATION,
+
+		/**
+		 * Checking whether the game is over
+		 */
+		GAME_OVER_CHECK,
+
+		/**
+		 * Notifying all spectators of one event
+		 */
+		SPECTATOR_DISPATCH
+	}
+
+	/**
+	 * Metrics that record nothing, games do not read the clock at all when
+	 * using this instance
+	 */
+	GameMetrics NONE = new GameMetrics() {
+		@Override public boolean enabled() { return false; }
+		@Override public void record(Operation operation, long nanos) {}
+		@Override public String toString() { return "GameMetrics.NONE"; }
+	};
+
+	/**
+	 * @return false if timings are ignored so there is no need to measure
+	 *         them; defaults to true
+	 */
+	default boolean enabled() {
+		return true;
+	}
+
+	/**
+	 * Records one execution of an operation
+	 *
+	 * @param operation the operation; never null
+	 * @param nanos how long it took in nanoseconds
+	 */
+	void record(Operation operation, long nanos);
+
+}
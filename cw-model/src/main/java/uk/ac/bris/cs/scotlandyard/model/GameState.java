@@ -0,0 +1,395 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A compact, mutable game state for search based players. Locations and
+ * ticket counts are kept in int arrays so moves can be applied and undone
+ * without allocating; moves are passed around as codes (see
+ * {@link MoveCodes}).
+ *
+ * <br>
+ * The rules follow {@link ScotlandYardModel}: Mr.X moves first, a double move
+ * counts as two rounds, tickets used by detectives are given to Mr.X and a
+ * detective without moves passes. The game is over when Mr.X is caught or
+ * cannot move (detectives win), or when all detectives are out of tickets or
+ * all rounds have been played (Mr.X wins).
+ *
+ * <br>
+ * A {@link Zobrist} hash of the state is kept up to date as moves are applied
+ * and undone, see {@link #hash()}.
+ *
+ * <br>
+ * Instances are not thread safe, use {@link #copy()} to hand a state to
+ * another thread.
+ */
+public final class GameState {
+
+	private static final Ticket[] TICKET_VALUES = Ticket.values();
+	private static final int TICKETS = TICKET_VALUES.length;
+	private static final int TAXI = Ticket.TAXI.ordinal();
+	private static final int UNDERGROUND = Ticket.UNDERGROUND.ordinal();
+	private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+	private static final int MRX = 0;
+
+	private final MoveGenerator generator;
+	private final int maxRounds;
+	private final Colour[] colours;
+	private final int[] indices = new int[Colour.values().length];
+	private final int[] locations;
+	// ticket count of player p for ticket t is tickets[p * TICKETS + t]
+	private final int[] tickets;
+	private final BitSet detectives = new BitSet();
+	// scratch copy of the current player's tickets handed to the generator
+	private final int[] current = new int[TICKETS];
+	private int round;
+	private int player;
+	private long hash;
+
+	// undo history, one entry per applied move
+	private long[] history = new long[32];
+	// hash before each applied move
+	private long[] hashes = new long[32];
+	// previous location, player and round of each applied move
+	private int[] previous = new int[32 * 3];
+	private int depth;
+
+	private GameState(MoveGenerator generator, int maxRounds, Colour[] colours,
+			int[] locations, int[] tickets, int round, int player) {
+		this.generator = generator;
+		this.maxRounds = maxRounds;
+		this.colours = colours;
+		this.locations = locations;
+		this.tickets = tickets;
+		this.round = round;
+		this.player = player;
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < colours.length; i++) {
+			indices[colours[i].ordinal()] = i;
+			if (i != MRX) detectives.set(locations[i]);
+		}
+		this.hash = Zobrist.round(round) ^ Zobrist.toMove(colours[player]);
+		for (int p = 0; p < colours.length; p++) {
+			hash ^= Zobrist.location(colours[p], locations[p]);
+			for (int t = 0; t < TICKETS; t++) {
+				hash ^= Zobrist.tickets(colours[p], TICKET_VALUES[t], tickets[p * TICKETS + t]);
+			}
+		}
+	}
+
+	/**
+	 * Creates a state from a view. Mr.X's location is taken from
+	 * {@link ScotlandYardView#getPlayerLocation(Colour)} which is only his
+	 * last revealed location, see {@link #from(ScotlandYardView, int)}.
+	 *
+	 * @param view the view; not null
+	 * @return a new state; never null
+	 */
+	public static GameState from(ScotlandYardView view) {
+		return from(view, view.getPlayerLocation(Colour.BLACK).orElse(0));
+	}
+
+	/**
+	 * Creates a state from a view with Mr.X at the given location, e.g. the
+	 * location given to Mr.X in
+	 * {@link Player#makeMove(ScotlandYardView, int, java.util.Set, java.util.function.Consumer)}
+	 * or a location guessed by the detectives
+	 *
+	 * @param view the view; not null
+	 * @param mrXLocation the location of Mr.X
+	 * @return a new state; never null
+	 */
+	public static GameState from(ScotlandYardView view, int mrXLocation) {
+		requireNonNull(view);
+		List<Colour> players = view.getPlayers();
+		Colour[] colours = players.toArray(new Colour[0]);
+		if (colours.length == 0 || colours[MRX] != Colour.BLACK)
+			throw new IllegalArgumentException("Mr.X must be the first player");
+		int[] locations = new int[colours.length];
+		int[] tickets = new int[colours.length * TICKETS];
+		for (int i = 0; i < colours.length; i++) {
+			Colour colour = colours[i];
+			locations[i] = i == MRX ? mrXLocation
+					: view.getPlayerLocation(colour).orElseThrow(
+					() -> new IllegalArgumentException("No location for " + colour));
+			for (Ticket ticket : Ticket.values()) {
+				tickets[i * TICKETS + ticket.ordinal()] =
+						view.getPlayerTickets(colours[i], ticket).orElse(0);
+			}
+		}
+		return new GameState(MoveGenerator.forGraph(view.getGraph()),
+				view.getRounds().size(), colours, locations, tickets,
+				view.getCurrentRound(), players.indexOf(view.getCurrentPlayer()));
+	}
+
+	/**
+	 * Creates an independent copy of this state; the undo history is not
+	 * copied
+	 *
+	 * @return a new state; never null
+	 */
+	public GameState copy() {
+		return new GameState(generator, maxRounds, colours, locations.clone(),
+				tickets.clone(), round, player);
+	}
+
+	/**
+	 * @return number of players, Mr.X included
+	 */
+	public int playerCount() {
+		return colours.length;
+	}
+
+	/**
+	 * @param index the player index, 0 is Mr.X
+	 * @return the colour of the player
+	 */
+	public Colour colour(int index) {
+		return colours[index];
+	}
+
+	/**
+	 * @return the colour of the player to move
+	 */
+	public Colour currentPlayer() {
+		return colours[player];
+	}
+
+	/**
+	 * @return the rounds played so far, see
+	 *         {@link ScotlandYardView#getCurrentRound()}
+	 */
+	public int round() {
+		return round;
+	}
+
+	/**
+	 * @return the number of rounds in the game
+	 */
+	public int maxRounds() {
+		return maxRounds;
+	}
+
+	/**
+	 * @param colour the colour of a player in this game
+	 * @return the location of the player
+	 */
+	public int location(Colour colour) {
+		return locations[index(colour)];
+	}
+
+	/**
+	 * @param colour the colour of a player in this game
+	 * @param ticket the ticket
+	 * @return the number of tickets the player holds
+	 */
+	public int tickets(Colour colour, Ticket ticket) {
+		return tickets[index(colour) * TICKETS + ticket.ordinal()];
+	}
+
+	/**
+	 * @return the {@link Zobrist} hash of this state with Mr.X at his actual
+	 *         location; equal states have equal hashes
+	 */
+	public long hash() {
+		return hash;
+	}
+
+	private int index(Colour colour) {
+		int index = indices[colour.ordinal()];
+		if (index < 0) throw new IllegalArgumentException(colour + " is not in this game");
+		return index;
+	}
+
+	/**
+	 * Appends the legal moves of the current player to the given buffer. A
+	 * detective without moves gets a single {@link PassMove}; nothing is
+	 * appended once the game is over.
+	 *
+	 * @param out the buffer; not null
+	 * @return number of moves appended
+	 */
+	public int legalMoves(MoveBuffer out) {
+		if (isGameOver()) return 0;
+		int count = generator.generate(colours[player], locations[player], currentTickets(),
+				detectives, doubleAllowed(), out);
+		if (count == 0 && player != MRX) {
+			out.add(MoveCodes.pass(colours[player]));
+			count = 1;
+		}
+		return count;
+	}
+
+	/**
+	 * @param code the move code
+	 * @return true if the current player may make the move
+	 */
+	public boolean isLegal(long code) {
+		return !isGameOver() && generator.isLegal(code, colours[player], locations[player],
+				currentTickets(), detectives, doubleAllowed());
+	}
+
+	private boolean doubleAllowed() {
+		return round < maxRounds - 1;
+	}
+
+	private int[] currentTickets() {
+		System.arraycopy(tickets, player * TICKETS, current, 0, TICKETS);
+		return current;
+	}
+
+	/**
+	 * Applies a move of the current player. The move is not validated, see
+	 * {@link #isLegal(long)}.
+	 *
+	 * @param code the move code
+	 */
+	public void apply(long code) {
+		if (depth == history.length) {
+			history = Arrays.copyOf(history, depth * 2);
+			hashes = Arrays.copyOf(hashes, depth * 2);
+			previous = Arrays.copyOf(previous, depth * 2 * 3);
+		}
+		history[depth] = code;
+		hashes[depth] = hash;
+		previous[depth * 3] = locations[player];
+		previous[depth * 3 + 1] = player;
+		previous[depth * 3 + 2] = round;
+		depth++;
+
+		hash ^= Zobrist.round(round) ^ Zobrist.toMove(colours[player]);
+		switch (MoveCodes.kind(code)) {
+			case MoveCodes.TICKET: {
+				int ticket = MoveCodes.firstTicketOrdinal(code);
+				addTickets(player, ticket, -1);
+				if (player == MRX) round++;
+				else addTickets(MRX, ticket, 1);
+				move(MoveCodes.firstDestination(code));
+				break;
+			}
+			case MoveCodes.DOUBLE:
+				addTickets(player, DOUBLE, -1);
+				addTickets(player, MoveCodes.firstTicketOrdinal(code), -1);
+				addTickets(player, MoveCodes.secondTicketOrdinal(code), -1);
+				round += 2;
+				move(MoveCodes.secondDestination(code));
+				break;
+			default:
+				break;
+		}
+		player = (player + 1) % colours.length;
+		hash ^= Zobrist.round(round) ^ Zobrist.toMove(colours[player]);
+	}
+
+	private void addTickets(int p, int ticket, int delta) {
+		int i = p * TICKETS + ticket;
+		int before = tickets[i];
+		tickets[i] = before + delta;
+		hash ^= Zobrist.ticketChange(colours[p], TICKET_VALUES[ticket], before, before + delta);
+	}
+
+	/**
+	 * Applies a move of the current player, see {@link #apply(long)}
+	 *
+	 * @param move the move; not null
+	 */
+	public void apply(Move move) {
+		apply(MoveCodes.encode(move));
+	}
+
+	/**
+	 * Reverts the last applied move
+	 *
+	 * @throws IllegalStateException if there is no move to undo
+	 */
+	public void undo() {
+		if (depth == 0) throw new IllegalStateException("No move to undo");
+		depth--;
+		long code = history[depth];
+		player = previous[depth * 3 + 1];
+		round = previous[depth * 3 + 2];
+		int base = player * TICKETS;
+		switch (MoveCodes.kind(code)) {
+			case MoveCodes.TICKET: {
+				int ticket = MoveCodes.firstTicketOrdinal(code);
+				tickets[base + ticket]++;
+				if (player != MRX) tickets[MRX * TICKETS + ticket]--;
+				break;
+			}
+			case MoveCodes.DOUBLE:
+				tickets[base + DOUBLE]++;
+				tickets[base + MoveCodes.firstTicketOrdinal(code)]++;
+				tickets[base + MoveCodes.secondTicketOrdinal(code)]++;
+				break;
+			default:
+				break;
+		}
+		move(previous[depth * 3]);
+		hash = hashes[depth];
+	}
+
+	/**
+	 * @return number of moves that can be undone
+	 */
+	public int depth() {
+		return depth;
+	}
+
+	private void move(int destination) {
+		if (player != MRX) {
+			detectives.clear(locations[player]);
+			detectives.set(destination);
+		}
+		hash ^= Zobrist.location(colours[player], locations[player])
+				^ Zobrist.location(colours[player], destination);
+		locations[player] = destination;
+	}
+
+	/**
+	 * @return true if either side has won
+	 */
+	public boolean isGameOver() {
+		return detectivesWin() || mrXWins();
+	}
+
+	/**
+	 * @return true if Mr.X has been caught or cannot move on his turn
+	 */
+	public boolean detectivesWin() {
+		if (detectives.get(locations[MRX])) return true;
+		return player == MRX && !generator.hasMoves(Colour.BLACK, locations[MRX],
+				currentTickets(), detectives);
+	}
+
+	/**
+	 * @return true if Mr.X has not been caught and either all rounds have been
+	 *         played or no detective has a ticket left to move with
+	 */
+	public boolean mrXWins() {
+		if (detectivesWin()) return false;
+		if (player == MRX && round >= maxRounds) return true;
+		for (int p = 1; p < colours.length; p++) {
+			for (int t = TAXI; t <= UNDERGROUND; t++) {
+				if (tickets[p * TICKETS + t] > 0) return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("GameState{round=").append(round)
+				.append(", current=").append(colours[player]);
+		for (int p = 0; p < colours.length; p++) {
+			sb.append(", ").append(colours[p]).append('@').append(locations[p])
+					.append(Arrays.toString(
+							Arrays.copyOfRange(tickets, p * TICKETS, (p + 1) * TICKETS)));
+		}
+		return sb.append('}').toString();
+	}
+
+}
@@ -0,0 +1,412 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle;
+
+/**
+ * A precompiled map: the {@link CsrGraph} arrays of graph.txt, the node
+ * positions of pos.txt and the {@link DistanceOracle} tables over all edges
+ * and over every single {@link Transport}, together with a CRC32 of both text
+ * files so a stale bundle can be detected and a CRC32 of its own content so a
+ * corrupt one is rejected.
+ *
+ * <br>
+ * A bundle is written once with {@link #write(Path, byte[], byte[])} and
+ * loaded with {@link #map(Path)}, which maps the file read only. The distance
+ * tables are used straight from the mapped file without copying and are
+ * shared through {@link DistanceOracle#forGraph} for {@link #graph()},
+ * so loading a bundle skips both parsing and computing the tables. The
+ * adjacency is small and is copied into the graph.
+ *
+ * <br>
+ * The layout is big endian, with every section aligned to 4 bytes:
+ * <pre>
+ * int magic, version, CRC32 of everything after it, graph.txt CRC32, pos.txt CRC32
+ * int nodes, edges, positions, tables
+ * int values[nodes], offsets[nodes + 1], targets[edges]
+ * byte data[edges]
+ * int (node, x, y)[positions]
+ * tables times: int transport mask, bytes per distance, max distance
+ *               byte distances[nodes * nodes * bytes per distance]
+ * </pre>
+ *
+ * Instances are immutable and thread safe.
+ */
+public final class MapBundle {
+
+	static final int MAGIC = 0x53594D42;
+	static final int VERSION = 2;
+
+	// largest node value accepted when reading, bounds the node index arrays
+	static final int MAX_NODE_VALUE = 1 << 24;
+
+	private static final int HEADER = 9 * Integer.BYTES;
+	// the content CRC covers everything from the graph.txt CRC to the end
+	private static final int CHECKED = 3 * Integer.BYTES;
+	private static final int ALL = (1 << Transport.values().length) - 1;
+
+	private final int graphChecksum;
+	private final int positionChecksum;
+	private final CsrGraph<Transport> graph;
+	private final Map<Integer, Entry<Integer, Integer>> positions;
+	private final DistanceOracle distances;
+	private final Map<Transport, DistanceOracle> transportDistances;
+
+	private MapBundle(int graphChecksum, int positionChecksum, CsrGraph<Transport> graph,
+			Map<Integer, Entry<Integer, Integer>> positions, DistanceOracle distances,
+			Map<Transport, DistanceOracle> transportDistances) {
+		this.graphChecksum = graphChecksum;
+		this.positionChecksum = positionChecksum;
+		this.graph = graph;
+		this.positions = positions;
+		this.distances = distances;
+		this.transportDistances = transportDistances;
+	}
+
+	/**
+	 * @param text the content of a file
+	 * @return the CRC32 of the content, as stored in a bundle
+	 */
+	public static int checksum(byte[] text) {
+		CRC32 crc = new CRC32();
+		crc.update(text);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Parses the text files and computes the distance tables
+	 *
+	 * @param graphText the content of graph.txt; not null
+	 * @param positionText the content of pos.txt; not null
+	 * @return the bundle, a heap buffer positioned at 0; never null
+	 * @throws IllegalArgumentException if either file is malformed
+	 */
+	public static ByteBuffer compile(byte[] graphText, byte[] positionText) {
+		CsrGraph<Transport> graph = ScotlandYardGraphReader.csrFromLines(lines(graphText));
+		Map<Integer, Entry<Integer, Integer>> positions = parsePositions(lines(positionText));
+		List<DistanceOracle> tables = new ArrayList<>();
+		List<Integer> masks = new ArrayList<>();
+		tables.add(DistanceOracle.of(graph));
+		masks.add(ALL);
+		for (Transport transport : Transport.values()) {
+			tables.add(DistanceOracle.of(graph, transport::equals));
+			masks.add(1 << transport.ordinal());
+		}
+
+		int nodes = graph.size();
+		int edges = graph.edgeCount();
+		long length = HEADER + 4L * (nodes + nodes + 1 + edges) + align(edges)
+				+ 12L * positions.size();
+		for (DistanceOracle table : tables) length += 12 + align(table.table().remaining());
+		if (length > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Bundle of " + length + " bytes is too large");
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) length);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(0);
+		buffer.putInt(checksum(graphText)).putInt(checksum(positionText));
+		buffer.putInt(nodes).putInt(edges).putInt(positions.size()).putInt(tables.size());
+		for (int i = 0; i < nodes; i++) buffer.putInt(graph.value(i));
+		for (int i = 0; i < nodes; i++) buffer.putInt(graph.edgeStart(i));
+		buffer.putInt(edges);
+		for (int e = 0; e < edges; e++) buffer.putInt(graph.target(e));
+		for (int e = 0; e < edges; e++) buffer.put((byte) graph.dataOrdinal(e));
+		pad(buffer);
+		for (Entry<Integer, Entry<Integer, Integer>> position : positions.entrySet()) {
+			buffer.putInt(position.getKey());
+			buffer.putInt(position.getValue().getKey()).putInt(position.getValue().getValue());
+		}
+		for (int i = 0; i < tables.size(); i++) {
+			DistanceOracle table = tables.get(i);
+			buffer.putInt(masks.get(i)).putInt(table.bytesPerDistance())
+					.putInt(table.maxDistance());
+			buffer.put(table.table());
+			pad(buffer);
+		}
+		buffer.flip();
+		buffer.putInt(2 * Integer.BYTES, contentChecksum(buffer));
+		return buffer;
+	}
+
+	private static int contentChecksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		ByteBuffer content = buffer.duplicate();
+		content.position(CHECKED);
+		crc.update(content);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Compiles the text files into a bundle file. The file is replaced
+	 * atomically where the file system supports it, so concurrent readers
+	 * never map a partly written bundle.
+	 *
+	 * @param path the bundle file; not null
+	 * @param graphText the content of graph.txt; not null
+	 * @param positionText the content of pos.txt; not null
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path path, byte[] graphText, byte[] positionText)
+			throws IOException {
+		ByteBuffer buffer = compile(graphText, positionText);
+		Path directory = path.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				while (buffer.hasRemaining()) channel.write(buffer);
+				channel.force(false);
+			}
+			try {
+				Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, path, REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Maps a bundle file read only and loads it, see {@link #read(ByteBuffer)}
+	 *
+	 * @param path the bundle file; not null
+	 * @return the bundle; never null
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if the file is not a valid bundle
+	 */
+	public static MapBundle map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Loads a bundle. The distance tables keep referring to the buffer, which
+	 * must not be modified afterwards.
+	 *
+	 * @param bundle the bundle from its position to its limit; not null and
+	 *        not modified
+	 * @return the bundle; never null
+	 * @throws IllegalArgumentException if the buffer is not a valid bundle,
+	 *         is corrupt or has node values above {@value #MAX_NODE_VALUE}
+	 */
+	public static MapBundle read(ByteBuffer bundle) {
+		ByteBuffer buffer = bundle.slice().order(ByteOrder.BIG_ENDIAN);
+		try {
+			if (buffer.getInt() != MAGIC)
+				throw new IllegalArgumentException("Not a map bundle");
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IllegalArgumentException("Unsupported map bundle version " + version);
+			if (buffer.getInt() != contentChecksum(buffer))
+				throw new IllegalArgumentException("Map bundle is corrupt");
+			int graphChecksum = buffer.getInt();
+			int positionChecksum = buffer.getInt();
+			int nodes = count(buffer, "nodes");
+			int edges = count(buffer, "edges");
+			int positionCount = count(buffer, "positions");
+			int tables = count(buffer, "tables");
+			if (4L * (nodes + nodes + 1 + edges) + align(edges) + 12L * positionCount
+					> buffer.remaining())
+				throw new IllegalArgumentException("Map bundle is truncated");
+
+			int[] values = ints(buffer, nodes);
+			for (int value : values) {
+				if (value < 0 || value > MAX_NODE_VALUE)
+					throw new IllegalArgumentException("Unsupported node value " + value);
+			}
+			int[] offsets = ints(buffer, nodes + 1);
+			int[] targets = ints(buffer, edges);
+			byte[] data = new byte[edges];
+			buffer.get(data);
+			skip(buffer);
+			CsrGraph<Transport> graph = CsrGraph.of(Transport.class, values, offsets, targets,
+					data);
+
+			Map<Integer, Entry<Integer, Integer>> positions = new LinkedHashMap<>();
+			for (int i = 0; i < positionCount; i++) {
+				int node = buffer.getInt();
+				positions.put(node,
+						new SimpleImmutableEntry<>(buffer.getInt(), buffer.getInt()));
+			}
+
+			DistanceOracle distances = null;
+			Map<Transport, DistanceOracle> transportDistances = new EnumMap<>(Transport.class);
+			for (int i = 0; i < tables; i++) {
+				int mask = buffer.getInt();
+				int width = buffer.getInt();
+				int maxDistance = buffer.getInt();
+				long length = (long) nodes * nodes * width;
+				if (length > buffer.remaining())
+					throw new IllegalArgumentException("Map bundle is truncated");
+				ByteBuffer table = buffer.duplicate();
+				table.limit(buffer.position() + (int) length);
+				buffer.position(table.limit());
+				skip(buffer);
+				DistanceOracle oracle = DistanceOracle.wrap(values, table, width, maxDistance);
+				if (mask == ALL) distances = oracle;
+				else if (Integer.bitCount(mask) == 1 && (mask & ALL) != 0)
+					transportDistances.put(Transport.values()[Integer.numberOfTrailingZeros(mask)],
+							oracle);
+			}
+			if (distances == null || transportDistances.size() != Transport.values().length)
+				throw new IllegalArgumentException("Map bundle is missing distance tables");
+
+			DistanceOracle.share(graph, distances);
+			DistanceOracle.share(graph, EnumSet.allOf(Transport.class), distances);
+			transportDistances.forEach((transport, oracle) ->
+					DistanceOracle.share(graph, EnumSet.of(transport), oracle));
+			return new MapBundle(graphChecksum, positionChecksum, graph,
+					Collections.unmodifiableMap(positions),
+					distances, Collections.unmodifiableMap(transportDistances));
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Map bundle is truncated", e);
+		}
+	}
+
+	private static int count(ByteBuffer buffer, String name) {
+		int count = buffer.getInt();
+		if (count < 0) throw new IllegalArgumentException("Negative number of " + name);
+		return count;
+	}
+
+	private static int[] ints(ByteBuffer buffer, int length) {
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + length * Integer.BYTES);
+		return values;
+	}
+
+	private static long align(long length) {
+		return (length + 3) & ~3L;
+	}
+
+	private static void pad(ByteBuffer buffer) {
+		while ((buffer.position() & 3) != 0) buffer.put((byte) 0);
+	}
+
+	private static void skip(ByteBuffer buffer) {
+		long position = align(buffer.position());
+		if (position > buffer.limit()) throw new IllegalArgumentException("Map bundle is truncated");
+		buffer.position((int) position);
+	}
+
+	private static List<String> lines(byte[] text) {
+		return new String(text, UTF_8).lines().collect(toList());
+	}
+
+	// same rules as StandardGame.pngMapPositionEntries, without the offset
+	private static Map<Integer, Entry<Integer, Integer>> parsePositions(List<String> lines) {
+		Map<Integer, Entry<Integer, Integer>> positions = new LinkedHashMap<>();
+		for (int i = 0; i < lines.size(); i++) {
+			String[] values = lines.get(i).split("\\s+");
+			if (values.length != 3) continue;
+			try {
+				positions.put(Integer.parseInt(values[0]), new SimpleImmutableEntry<>(
+						Integer.parseInt(values[1]), Integer.parseInt(values[2])));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Expected integer at line " + i + "\n\t" + lines.get(i));
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * @param graphText the content of graph.txt; not null
+	 * @param positionText the content of pos.txt; not null
+	 * @return true if the bundle was compiled from exactly these files
+	 */
+	public boolean matches(byte[] graphText, byte[] positionText) {
+		return checksum(graphText) == graphChecksum && checksum(positionText) == positionChecksum;
+	}
+
+	/**
+	 * @return the CRC32 of the graph.txt the bundle was compiled from
+	 */
+	public int graphChecksum() {
+		return graphChecksum;
+	}
+
+	/**
+	 * @return the CRC32 of the pos.txt the bundle was compiled from
+	 */
+	public int positionChecksum() {
+		return positionChecksum;
+	}
+
+	/**
+	 * @return the map; never null
+	 */
+	public CsrGraph<Transport> graph() {
+		return graph;
+	}
+
+	/**
+	 * @return the positions of pos.txt by node, without
+	 *         {@link StandardGame#MAP_OFFSET}; never null
+	 */
+	public Map<Integer, Entry<Integer, Integer>> positions() {
+		return positions;
+	}
+
+	/**
+	 * @return the distances over all edges of {@link #graph()}; never null
+	 */
+	public DistanceOracle distances() {
+		return distances;
+	}
+
+	/**
+	 * @param transport the transport; not null
+	 * @return the distances over the edges of {@link #graph()} with the given
+	 *         transport only; never null
+	 */
+	public DistanceOracle distances(Transport transport) {
+		return transportDistances.get(requireNonNull(transport));
+	}
+
+	/**
+	 * Compiles a bundle file from text files
+	 *
+	 * @param args the bundle file, graph.txt and pos.txt
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("usage: MapBundle <bundle> <graph.txt> <pos.txt>");
+			System.exit(1);
+		}
+		Path path = Paths.get(args[0]);
+		write(path, Files.readAllBytes(Paths.get(args[1])), Files.readAllBytes(Paths.get(args[2])));
+		System.out.println("Wrote " + Files.size(path) + " bytes to " + path);
+	}
+
+}
@@ -0,0 +1,365 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
+
+/**
+ * Generates city maps of any size with the layering of the standard map: a
+ * connected street grid of TAXI edges, a denser than average BUS network
+ * between about a third of the nodes, a sparse UNDERGROUND network with long
+ * hops and a few FERRY crossings. The same size and seed always give the same
+ * map.
+ *
+ * <br>
+ * Nodes are numbered from 1 and laid out row by row on a square grid, taxi
+ * edges join grid neighbours, sometimes diagonally, and always include a
+ * random spanning tree so every node can be reached by taxi. Maps are written
+ * in the format of {@link ScotlandYardGraphReader} and, for {@link MapBundle},
+ * of pos.txt:
+ * <pre>
+ * MapGenerator map = MapGenerator.generate(10_000, 42);
+ * map.writeGraph(Paths.get("graph-10k.txt"));
+ * CsrGraph&lt;Transport&gt; graph = ScotlandYardGraphReader.csrFromPath(Paths.get("graph-10k.txt"));
+ * </pre>
+ */
+public final class MapGenerator {
+
+	// distance between grid cells in pos.txt coordinates
+	private static final int SPACING = 40;
+
+	// chance of keeping a taxi edge that is not needed to connect the map
+	private static final double EXTRA_TAXI = 0.55;
+	private static final double DIAGONAL_TAXI = 0.2;
+	private static final double BUS_STOP = 0.35;
+	private static final int BUS_REACH = 4;
+	private static final double STATION = 0.9;
+	private static final int STATION_GRID = 4;
+	private static final int UNDERGROUND_REACH = 3 * STATION_GRID;
+
+	private final int nodes;
+	private final int width;
+	private final int[] sources;
+	private final int[] destinations;
+	private final byte[] transports;
+
+	private MapGenerator(int nodes, int width, int[] sources, int[] destinations,
+			byte[] transports) {
+		this.nodes = nodes;
+		this.width = width;
+		this.sources = sources;
+		this.destinations = destinations;
+		this.transports = transports;
+	}
+
+	/**
+	 * Generates a map
+	 *
+	 * @param nodes the number of nodes, at least 2
+	 * @param seed the seed of the layout
+	 * @return the map; never null
+	 */
+	public static MapGenerator generate(int nodes, long seed) {
+		if (nodes < 2) throw new IllegalArgumentException("Need at least 2 nodes");
+		return new Edges(nodes, new Random(seed)).generate();
+	}
+
+	/**
+	 * Collects the edges of a map without duplicates
+	 */
+	private static final class Edges {
+
+		private final int nodes;
+		private final int width;
+		private final Random random;
+		private final Set<Long> keys = new HashSet<>();
+		private int[] sources = new int[16];
+		private int[] destinations = new int[16];
+		private byte[] transports = new byte[16];
+		private int size;
+		// union find over node values for the taxi spanning tree
+		private final int[] parents;
+
+		Edges(int nodes, Random random) {
+			this.nodes = nodes;
+			this.width = (int) Math.ceil(Math.sqrt(nodes));
+			this.random = random;
+			this.parents = new int[nodes + 1];
+			for (int i = 0; i <= nodes; i++) parents[i] = i;
+		}
+
+		MapGenerator generate() {
+			taxis();
+			buses();
+			undergrounds();
+			ferries();
+			return new MapGenerator(nodes, width, Arrays.copyOf(sources, size),
+					Arrays.copyOf(destinations, size), Arrays.copyOf(transports, size));
+		}
+
+		private int node(int x, int y) {
+			if (x < 0 || x >= width || y < 0) return -1;
+			int node = y * width + x + 1;
+			return node <= nodes ? node : -1;
+		}
+
+		private void taxis() {
+			// right, down and some diagonal neighbours, visited in random order
+			long[] candidates = new long[nodes * 3];
+			int count = 0;
+			for (int node = 1; node <= nodes; node++) {
+				int x = (node - 1) % width;
+				int y = (node - 1) / width;
+				int right = node(x + 1, y);
+				int down = node(x, y + 1);
+				int diagonal = random.nextBoolean() ? node(x + 1, y + 1) : node(x - 1, y + 1);
+				if (right > 0) candidates[count++] = (long) node << 32 | right;
+				if (down > 0) candidates[count++] = (long) node << 32 | down;
+				if (diagonal > 0 && random.nextDouble() < DIAGONAL_TAXI)
+					candidates[count++] = (long) node << 32 | diagonal;
+			}
+			for (int i = count - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				long swap = candidates[i];
+				candidates[i] = candidates[j];
+				candidates[j] = swap;
+			}
+			for (int i = 0; i < count; i++) {
+				int source = (int) (candidates[i] >>> 32);
+				int destination = (int) candidates[i];
+				if (union(source, destination) || random.nextDouble() < EXTRA_TAXI)
+					add(source, destination, Transport.TAXI);
+			}
+		}
+
+		private int find(int node) {
+			while (parents[node] != node) {
+				parents[node] = parents[parents[node]];
+				node = parents[node];
+			}
+			return node;
+		}
+
+		// joins the trees of both nodes, false if they were joined already
+		private boolean union(int a, int b) {
+			int rootA = find(a);
+			int rootB = find(b);
+			if (rootA == rootB) return false;
+			parents[rootA] = rootB;
+			return true;
+		}
+
+		private void buses() {
+			boolean[] stops = new boolean[nodes + 1];
+			for (int node = 1; node <= nodes; node++) stops[node] = random.nextDouble() < BUS_STOP;
+			lines(stops, 1, BUS_REACH, Transport.BUS);
+		}
+
+		private void undergrounds() {
+			boolean[] stations = new boolean[nodes + 1];
+			for (int node = 1; node <= nodes; node++) {
+				int x = (node - 1) % width;
+				int y = (node - 1) / width;
+				stations[node] = x % STATION_GRID == STATION_GRID / 2
+						&& y % STATION_GRID == STATION_GRID / 2 && random.nextDouble() < STATION;
+			}
+			lines(stations, STATION_GRID, UNDERGROUND_REACH, Transport.UNDERGROUND);
+		}
+
+		// joins every stop to the nearest stop to its right and below within reach
+		private void lines(boolean[] stops, int step, int reach, Transport transport) {
+			for (int node = 1; node <= nodes; node++) {
+				if (!stops[node]) continue;
+				int x = (node - 1) % width;
+				int y = (node - 1) / width;
+				for (int d = step; d <= reach; d += step) {
+					int right = node(x + d, y);
+					if (right < 0) break;
+					if (stops[right]) {
+						add(node, right, transport);
+						break;
+					}
+				}
+				for (int d = step; d <= reach; d += step) {
+					int down = node(x, y + d);
+					if (down < 0) break;
+					if (stops[down]) {
+						add(node, down, transport);
+						break;
+					}
+				}
+			}
+		}
+
+		// crossings between random nodes at least half the map apart
+		private void ferries() {
+			int ferries = Math.max(2, width / 5);
+			for (int attempts = ferries * 10; ferries > 0 && attempts > 0; attempts--) {
+				int source = random.nextInt(nodes) + 1;
+				int destination = random.nextInt(nodes) + 1;
+				int dx = Math.abs((source - 1) % width - (destination - 1) % width);
+				int dy = Math.abs((source - 1) / width - (destination - 1) / width);
+				if (dx + dy < width / 2 || source == destination) continue;
+				if (add(source, destination, Transport.FERRY)) ferries--;
+			}
+		}
+
+		private boolean add(int source, int destination, Transport transport) {
+			long low = Math.min(source, destination);
+			long high = Math.max(source, destination);
+			if (!keys.add(((low * (nodes + 1) + high) << 2) + transport.ordinal())) return false;
+			if (size == sources.length) {
+				sources = Arrays.copyOf(sources, size * 2);
+				destinations = Arrays.copyOf(destinations, size * 2);
+				transports = Arrays.copyOf(transports, size * 2);
+			}
+			sources[size] = source;
+			destinations[size] = destination;
+			transports[size++] = (byte) transport.ordinal();
+			return true;
+		}
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int nodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the number of undirected edges
+	 */
+	public int edges() {
+		return sources.length;
+	}
+
+	/**
+	 * @param transport the transport; not null
+	 * @return the number of undirected edges with the transport
+	 */
+	public int edges(Transport transport) {
+		int count = 0;
+		for (byte ordinal : transports) if (ordinal == transport.ordinal()) count++;
+		return count;
+	}
+
+	/**
+	 * Builds the map directly, the same graph as reading
+	 * {@link #writeGraph(Writer)} back with
+	 * {@link ScotlandYardGraphReader#csrFromLines(List)}
+	 *
+	 * @return the graph; never null
+	 */
+	public CsrGraph<Transport> graph() {
+		CsrGraph.Builder<Transport> builder = new CsrGraph.Builder<>(Transport.class);
+		for (int node = 1; node <= nodes; node++) builder.addNode(node);
+		Transport[] values = Transport.values();
+		for (int e = 0; e < sources.length; e++)
+			builder.addEdge(sources[e], destinations[e], values[transports[e]]);
+		return builder.build();
+	}
+
+	/**
+	 * Writes the map in the format of {@link ScotlandYardGraphReader}
+	 *
+	 * @param writer the writer, not closed; not null
+	 * @throws IOException if the writer fails
+	 */
+	public void writeGraph(Writer writer) throws IOException {
+		writer.write(nodes + " " + sources.length + "\n");
+		for (int node = 1; node <= nodes; node++) writer.write(node + "\n");
+		Transport[] values = Transport.values();
+		for (int e = 0; e < sources.length; e++) {
+			writer.write(sources[e] + " " + destinations[e] + " " + values[transports[e]].name()
+					+ "\n");
+		}
+	}
+
+	/**
+	 * Writes the map in the format of {@link ScotlandYardGraphReader}
+	 *
+	 * @param path the file; not null
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeGraph(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+			writeGraph(writer);
+		}
+	}
+
+	/**
+	 * @return the lines of {@link #writeGraph(Writer)}; never null
+	 */
+	public List<String> graphLines() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeGraph(writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return Arrays.asList(writer.toString().split("\n"));
+	}
+
+	/**
+	 * Writes the grid position of every node in the format of pos.txt
+	 *
+	 * @param writer the writer, not closed; not null
+	 * @throws IOException if the writer fails
+	 */
+	public void writePositions(Writer writer) throws IOException {
+		writer.write(nodes + "\n");
+		for (int node = 1; node <= nodes; node++) {
+			int x = (node - 1) % width;
+			int y = (node - 1) / width;
+			writer.write(node + " " + (x * SPACING + SPACING / 2) + " "
+					+ (y * SPACING + SPACING / 2) + "\n");
+		}
+	}
+
+	/**
+	 * Writes the grid position of every node in the format of pos.txt
+	 *
+	 * @param path the file; not null
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writePositions(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+			writePositions(writer);
+		}
+	}
+
+	/**
+	 * Writes a generated map
+	 *
+	 * @param args {@code nodes seed graph.txt [pos.txt]}
+	 * @throws IOException if a file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("usage: MapGenerator <nodes> <seed> <graph.txt> [pos.txt]");
+			System.exit(1);
+		}
+		MapGenerator map = generate(Integer.parseInt(args[0]), Long.parseLong(args[1]));
+		map.writeGraph(Paths.get(args[2]));
+		if (args.length > 3) map.writePositions(Paths.get(args[3]));
+		System.out.printf("%d nodes, %d taxi, %d bus, %d underground, %d ferry edges%n",
+				map.nodes(), map.edges(Transport.TAXI), map.edges(Transport.BUS),
+				map.edges(Transport.UNDERGROUND), map.edges(Transport.FERRY));
+	}
+
+}
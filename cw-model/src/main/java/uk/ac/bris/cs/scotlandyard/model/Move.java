@@ -1,7 +1,6 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
 import java.io.Serializable;
-import java.util.Objects;
 
 /**
  * Base class for all kind of move in the Scotland Yard game
@@ -44,6 +43,11 @@ public abstract class Move implements Serializable {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(colour);
+		return ordinal(colour);
+	}
+
+	// hash of an enum constant that does not change between runs, unlike its identity hash
+	static int ordinal(Enum<?> value) {
+		return value == null ? -1 : value.ordinal();
 	}
 }
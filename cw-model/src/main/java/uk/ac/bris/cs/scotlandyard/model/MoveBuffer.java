@@ -0,0 +1,121 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A reusable, growable buffer of move codes (see {@link MoveCodes}). The
+ * buffer never shrinks so once it has grown large enough for the largest move
+ * set, filling it does not allocate.
+ */
+public final class MoveBuffer {
+
+	private long[] codes;
+	private int size;
+
+	/**
+	 * Creates a buffer with a default capacity
+	 */
+	public MoveBuffer() {
+		this(64);
+	}
+
+	/**
+	 * @param capacity the initial capacity
+	 */
+	public MoveBuffer(int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+		this.codes = new long[capacity];
+	}
+
+	/**
+	 * Appends a move code
+	 *
+	 * @param code the code
+	 */
+	public void add(long code) {
+		if (size == codes.length) codes = Arrays.copyOf(codes, size * 2);
+		codes[size++] = code;
+	}
+
+	/**
+	 * @param index the index, must be less than {@link #size()}
+	 * @return the code at the given index
+	 */
+	public long get(int index) {
+		if (index >= size) throw new IndexOutOfBoundsException(index + " >= " + size);
+		return codes[index];
+	}
+
+	/**
+	 * @param code the code to look for
+	 * @return true if the buffer contains the code
+	 */
+	public boolean contains(long code) {
+		for (int i = 0; i < size; i++) {
+			if (codes[i] == code) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return number of codes in this buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this buffer has no codes
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all codes, retaining the capacity
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Decodes all codes into a <b>new</b> set of moves
+	 *
+	 * @return a mutable set of moves; never null
+	 */
+	public Set<Move> toMoves() {
+		Set<Move> moves = new LinkedHashSet<>();
+		for (int i = 0; i < size; i++) {
+			moves.add(MoveCodes.toMove(codes[i]));
+		}
+		return moves;
+	}
+
+	/**
+	 * Decodes all codes into a <b>new</b> set of the shared moves of the given
+	 * table
+	 *
+	 * @param table the table; not null
+	 * @return a mutable set of moves; never null
+	 */
+	public Set<Move> toMoves(MoveTable table) {
+		Set<Move> moves = new LinkedHashSet<>();
+		for (int i = 0; i < size; i++) {
+			moves.add(table.move(codes[i]));
+		}
+		return moves;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("MoveBuffer[");
+		for (int i = 0; i < size; i++) {
+			if (i != 0) sb.append(", ");
+			sb.append(MoveCodes.toString(codes[i]));
+		}
+		return sb.append(']').toString();
+	}
+
+}
@@ -0,0 +1,222 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Objects;
+
+/**
+ * Encodes moves as primitive {@code long} codes so that they can be stored in a
+ * {@link MoveBuffer} without allocating {@link Move} objects.
+ *
+ * <br>
+ * Layout of a code (least significant bit first):
+ * <pre>
+ *  bits  0-1   kind (pass, ticket or double)
+ *  bits  2-4   colour ordinal
+ *  bits  5-7   first ticket ordinal
+ *  bits  8-10  second ticket ordinal (double moves only)
+ *  bits 11-36  first destination
+ *  bits 37-62  second destination (double moves only)
+ * </pre>
+ * Two codes are equal if and only if the moves they represent are equal.
+ */
+public final class MoveCodes {
+
+	/**
+	 * Largest destination that can be encoded
+	 */
+	public static final int MAX_DESTINATION = (1 << 26) - 1;
+
+	static final int PASS = 0;
+	static final int TICKET = 1;
+	static final int DOUBLE = 2;
+
+	private static final Colour[] COLOURS = Colour.values();
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private MoveCodes() {}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @return the code of a pass move for the given colour
+	 */
+	public static long pass(Colour colour) {
+		return PASS | (long) colour.ordinal() << 2;
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @param ticket the ticket used; not null
+	 * @param destination the destination
+	 * @return the code of the ticket move
+	 */
+	public static long ticket(Colour colour, Ticket ticket, int destination) {
+		return ticket(colour.ordinal(), ticket.ordinal(), destination);
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @param first the first ticket; not null
+	 * @param firstDestination the first destination
+	 * @param second the second ticket; not null
+	 * @param secondDestination the final destination
+	 * @return the code of the double move
+	 */
+	public static long doubleMove(Colour colour, Ticket first, int firstDestination,
+			Ticket second, int secondDestination) {
+		return doubleMove(colour.ordinal(), first.ordinal(), firstDestination,
+				second.ordinal(), secondDestination);
+	}
+
+	static long ticket(int colour, int ticket, int destination) {
+		return TICKET | (long) colour << 2 | (long) ticket << 5
+				| (long) checkDestination(destination) << 11;
+	}
+
+	static long doubleMove(int colour, int first, int firstDestination,
+			int second, int secondDestination) {
+		return DOUBLE | (long) colour << 2 | (long) first << 5 | (long) second << 8
+				| (long) checkDestination(firstDestination) << 11
+				| (long) checkDestination(secondDestination) << 37;
+	}
+
+	private static int checkDestination(int destination) {
+		if (destination < 0 || destination > MAX_DESTINATION)
+			throw new IllegalArgumentException("Destination " + destination + " out of range");
+		return destination;
+	}
+
+	static int kind(long code) {
+		return (int) (code & 0b11);
+	}
+
+	/**
+	 * @return true if the code represents a {@link PassMove}
+	 */
+	public static boolean isPass(long code) {
+		return kind(code) == PASS;
+	}
+
+	/**
+	 * @return true if the code represents a {@link TicketMove}
+	 */
+	public static boolean isTicket(long code) {
+		return kind(code) == TICKET;
+	}
+
+	/**
+	 * @return true if the code represents a {@link DoubleMove}
+	 */
+	public static boolean isDouble(long code) {
+		return kind(code) == DOUBLE;
+	}
+
+	/**
+	 * @return the colour of the player making the move
+	 */
+	public static Colour colour(long code) {
+		return COLOURS[(int) (code >>> 2 & 0b111)];
+	}
+
+	/**
+	 * @return the ticket of a ticket move or the first ticket of a double move
+	 */
+	public static Ticket firstTicket(long code) {
+		return TICKETS[firstTicketOrdinal(code)];
+	}
+
+	/**
+	 * @return the second ticket of a double move
+	 */
+	public static Ticket secondTicket(long code) {
+		return TICKETS[secondTicketOrdinal(code)];
+	}
+
+	static int firstTicketOrdinal(long code) {
+		return (int) (code >>> 5 & 0b111);
+	}
+
+	static int secondTicketOrdinal(long code) {
+		return (int) (code >>> 8 & 0b111);
+	}
+
+	/**
+	 * @return the destination of a ticket move or the first destination of a
+	 *         double move
+	 */
+	public static int firstDestination(long code) {
+		return (int) (code >>> 11 & MAX_DESTINATION);
+	}
+
+	/**
+	 * @return the final destination of a double move
+	 */
+	public static int secondDestination(long code) {
+		return (int) (code >>> 37 & MAX_DESTINATION);
+	}
+
+	/**
+	 * @return the location of the player after the move is made, or -1 for a
+	 *         pass move
+	 */
+	public static int finalDestination(long code) {
+		switch (kind(code)) {
+			case TICKET:
+				return firstDestination(code);
+			case DOUBLE:
+				return secondDestination(code);
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Decodes the given code into a <b>new</b> move
+	 *
+	 * @param code the code
+	 * @return the move; never null
+	 */
+	public static Move toMove(long code) {
+		Colour colour = colour(code);
+		switch (kind(code)) {
+			case PASS:
+				return new PassMove(colour);
+			case TICKET:
+				return new TicketMove(colour, firstTicket(code), firstDestination(code));
+			case DOUBLE:
+				return new DoubleMove(colour,
+						firstTicket(code), firstDestination(code),
+						secondTicket(code), secondDestination(code));
+			default:
+				throw new IllegalArgumentException("Invalid move code " + code);
+		}
+	}
+
+	/**
+	 * Encodes the given move
+	 *
+	 * @param move the move; not null
+	 * @return the code
+	 */
+	public static long encode(Move move) {
+		Objects.requireNonNull(move);
+		if (move instanceof TicketMove) {
+			TicketMove m = (TicketMove) move;
+			return ticket(m.colour(), m.ticket(), m.destination());
+		} else if (move instanceof DoubleMove) {
+			DoubleMove m = (DoubleMove) move;
+			return doubleMove(m.colour(),
+					m.firstMove().ticket(), m.firstMove().destination(),
+					m.secondMove().ticket(), m.secondMove().destination());
+		} else if (move instanceof PassMove) {
+			return pass(move.colour());
+		}
+		throw new IllegalArgumentException("Unknown move type " + move.getClass());
+	}
+
+	/**
+	 * @return a human readable representation of the code
+	 */
+	public static String toString(long code) {
+		return toMove(code).toString();
+	}
+
+}
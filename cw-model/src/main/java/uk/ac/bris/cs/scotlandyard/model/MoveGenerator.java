@@ -0,0 +1,278 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * Generates legal moves into a {@link MoveBuffer} using adjacency lists that
+ * are precomputed per node and per {@link Transport}. Generation does not
+ * allocate once the buffer has grown to fit the move set.
+ *
+ * <br>
+ * Instances are immutable and may be shared between games and threads that
+ * use the same graph.
+ */
+public final class MoveGenerator {
+
+	private static final int TAXI = Ticket.TAXI.ordinal();
+	private static final int BUS = Ticket.BUS.ordinal();
+	private static final int UNDERGROUND = Ticket.UNDERGROUND.ordinal();
+	private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+	private static final int SECRET = Ticket.SECRET.ordinal();
+
+	// one adjacency list per transport plus one holding every distinct neighbour;
+	// TAXI, BUS and UNDERGROUND have the same ordinal in Ticket and Transport so
+	// their lists are indexed by ticket ordinal
+	private static final int ANY = Transport.values().length;
+	private static final int LISTS = ANY + 1;
+
+	private static final LoadingCache<Graph<Integer, Transport>, MoveGenerator> CACHE =
+			CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(MoveGenerator::of));
+
+	private final int maxNode;
+	// destinations of list l of node n are targets[offsets[n*LISTS+l] .. offsets[n*LISTS+l+1])
+	private final int[] offsets;
+	private final int[] targets;
+
+	private MoveGenerator(int maxNode, int[] offsets, int[] targets) {
+		this.maxNode = maxNode;
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	/**
+	 * Precomputes the adjacency of the given graph
+	 *
+	 * @param graph the graph; not null and node values must not be negative
+	 * @return a generator for the graph; never null
+	 */
+	public static MoveGenerator of(Graph<Integer, Transport> graph) {
+		requireNonNull(graph);
+		int maxNode = 0;
+		for (Node<Integer> node : graph.getNodes()) {
+			if (node.value() < 0 || node.value() > MoveCodes.MAX_DESTINATION)
+				throw new IllegalArgumentException("Unsupported node value " + node.value());
+			maxNode = Math.max(maxNode, node.value());
+		}
+		int[] offsets = new int[(maxNode + 1) * LISTS + 1];
+		int[] targets = new int[0];
+		int[] scratch = new int[16];
+		int size = 0;
+		for (int n = 0; n <= maxNode; n++) {
+			Node<Integer> node = graph.getNode(n);
+			for (int list = 0; list < LISTS; list++) {
+				offsets[n * LISTS + list] = size;
+				if (node == null) continue;
+				int count = 0;
+				for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node)) {
+					if (list != ANY && edge.data().ordinal() != list) continue;
+					int destination = edge.destination().value();
+					if (indexOf(scratch, count, destination) >= 0) continue;
+					if (count == scratch.length) scratch = Arrays.copyOf(scratch, count * 2);
+					scratch[count++] = destination;
+				}
+				if (size + count > targets.length)
+					targets = Arrays.copyOf(targets, Math.max(size + count, targets.length * 2));
+				System.arraycopy(scratch, 0, targets, size, count);
+				size += count;
+			}
+		}
+		offsets[offsets.length - 1] = size;
+		return new MoveGenerator(maxNode, offsets, Arrays.copyOf(targets, size));
+	}
+
+	/**
+	 * Returns a shared generator for the given graph, computing it on first
+	 * use. Graphs are compared by identity so this is only useful for graph
+	 * instances that are kept around, such as
+	 * {@link ScotlandYardView#getGraph()}.
+	 *
+	 * @param graph the graph; not null and must not be modified afterwards
+	 * @return a generator for the graph; never null
+	 */
+	public static MoveGenerator forGraph(Graph<Integer, Transport> graph) {
+		return CACHE.getUnchecked(requireNonNull(graph));
+	}
+
+	private static int indexOf(int[] values, int length, int value) {
+		for (int i = 0; i < length; i++) {
+			if (values[i] == value) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Appends all legal moves of a player to the given buffer. The buffer is
+	 * not cleared; a player without any legal move produces nothing (in
+	 * particular no {@link PassMove}).
+	 *
+	 * @param colour the colour of the player; not null
+	 * @param location the location of the player
+	 * @param tickets ticket counts of the player indexed by
+	 *        {@link Ticket#ordinal()}; not null
+	 * @param occupied nodes occupied by detectives; not null
+	 * @param doubleAllowed whether there are enough rounds left for a double
+	 *        move
+	 * @param out the buffer to append to; not null
+	 * @return number of moves appended
+	 */
+	public int generate(Colour colour, int location, int[] tickets, BitSet occupied,
+			boolean doubleAllowed, MoveBuffer out) {
+		if (location < 0 || location > maxNode) return 0;
+		int before = out.size();
+		int c = colour.ordinal();
+		boolean mrX = colour.isMrX();
+		int secretList = mrX ? ANY : Transport.FERRY.ordinal();
+		for (int t = TAXI; t <= UNDERGROUND; t++) {
+			if (tickets[t] > 0) singles(c, location, t, t, occupied, out);
+		}
+		if (tickets[SECRET] > 0) singles(c, location, secretList, SECRET, occupied, out);
+
+		if (mrX && doubleAllowed && tickets[DOUBLE] > 0) {
+			for (int t = TAXI; t <= UNDERGROUND; t++) {
+				if (tickets[t] > 0) doubles(c, location, t, t, tickets, occupied, out);
+			}
+			if (tickets[SECRET] > 0) doubles(c, location, ANY, SECRET, tickets, occupied, out);
+		}
+		return out.size() - before;
+	}
+
+	/**
+	 * Checks whether the player has at least one legal move; cheaper than
+	 * {@link #generate(Colour, int, int[], BitSet, boolean, MoveBuffer)} as it
+	 * stops at the first move found and never looks at double moves (there
+	 * can be no double move without a single move).
+	 *
+	 * @param colour the colour of the player; not null
+	 * @param location the location of the player
+	 * @param tickets ticket counts of the player indexed by
+	 *        {@link Ticket#ordinal()}; not null
+	 * @param occupied nodes occupied by detectives; not null
+	 * @return true if there is a legal move
+	 */
+	public boolean hasMoves(Colour colour, int location, int[] tickets, BitSet occupied) {
+		if (location < 0 || location > maxNode) return false;
+		for (int t = TAXI; t <= UNDERGROUND; t++) {
+			if (tickets[t] > 0 && anyFree(location, t, occupied)) return true;
+		}
+		return tickets[SECRET] > 0
+				&& anyFree(location, colour.isMrX() ? ANY : Transport.FERRY.ordinal(), occupied);
+	}
+
+	/**
+	 * Checks a single move against the graph, the player's tickets and the
+	 * detective locations without generating the move set. The result is the
+	 * same as generating all moves (plus a {@link PassMove} for a detective
+	 * without moves) and testing whether the set contains the move.
+	 *
+	 * @param code the move code, see {@link MoveCodes}
+	 * @param colour the colour of the player; not null
+	 * @param location the location of the player
+	 * @param tickets ticket counts of the player indexed by
+	 *        {@link Ticket#ordinal()}; not null
+	 * @param occupied nodes occupied by detectives; not null
+	 * @param doubleAllowed whether there are enough rounds left for a double
+	 *        move
+	 * @return true if the move is legal
+	 */
+	public boolean isLegal(long code, Colour colour, int location, int[] tickets,
+			BitSet occupied, boolean doubleAllowed) {
+		if (MoveCodes.colour(code) != colour) return false;
+		if (location < 0 || location > maxNode) return false;
+		boolean mrX = colour.isMrX();
+		switch (MoveCodes.kind(code)) {
+			case MoveCodes.PASS:
+				return !mrX && !hasMoves(colour, location, tickets, occupied);
+			case MoveCodes.TICKET: {
+				int ticket = MoveCodes.firstTicketOrdinal(code);
+				return tickets[ticket] > 0
+						&& isLegLegal(mrX, location, ticket, MoveCodes.firstDestination(code),
+						occupied);
+			}
+			case MoveCodes.DOUBLE: {
+				if (!mrX || !doubleAllowed || tickets[DOUBLE] == 0) return false;
+				int first = MoveCodes.firstTicketOrdinal(code);
+				int second = MoveCodes.secondTicketOrdinal(code);
+				int middle = MoveCodes.firstDestination(code);
+				return tickets[first] > 0 && remaining(tickets, first, second) > 0
+						&& isLegLegal(true, location, first, middle, occupied)
+						&& isLegLegal(true, middle, second, MoveCodes.secondDestination(code),
+						occupied);
+			}
+			default:
+				return false;
+		}
+	}
+
+	private boolean isLegLegal(boolean mrX, int from, int ticket, int to, BitSet occupied) {
+		if (to > maxNode || occupied.get(to)) return false;
+		int list;
+		if (ticket == SECRET) list = mrX ? ANY : Transport.FERRY.ordinal();
+		else if (ticket == DOUBLE) return false;
+		else list = ticket;
+		int slot = from * LISTS + list;
+		for (int i = offsets[slot], end = offsets[slot + 1]; i < end; i++) {
+			if (targets[i] == to) return true;
+		}
+		return false;
+	}
+
+	private boolean anyFree(int from, int list, BitSet occupied) {
+		int slot = from * LISTS + list;
+		for (int i = offsets[slot], end = offsets[slot + 1]; i < end; i++) {
+			if (!occupied.get(targets[i])) return true;
+		}
+		return false;
+	}
+
+	private void singles(int colour, int from, int list, int ticket, BitSet occupied,
+			MoveBuffer out) {
+		int slot = from * LISTS + list;
+		for (int i = offsets[slot], end = offsets[slot + 1]; i < end; i++) {
+			int destination = targets[i];
+			if (!occupied.get(destination))
+				out.add(MoveCodes.ticket(colour, ticket, destination));
+		}
+	}
+
+	private void doubles(int colour, int from, int list, int first, int[] tickets,
+			BitSet occupied, MoveBuffer out) {
+		int slot = from * LISTS + list;
+		for (int i = offsets[slot], end = offsets[slot + 1]; i < end; i++) {
+			int middle = targets[i];
+			if (occupied.get(middle)) continue;
+			for (int second = TAXI; second <= UNDERGROUND; second++) {
+				if (remaining(tickets, first, second) > 0)
+					seconds(colour, first, middle, second, second, occupied, out);
+			}
+			if (remaining(tickets, first, SECRET) > 0)
+				seconds(colour, first, middle, ANY, SECRET, occupied, out);
+		}
+	}
+
+	private void seconds(int colour, int first, int middle, int list, int second,
+			BitSet occupied, MoveBuffer out) {
+		int slot = middle * LISTS + list;
+		for (int i = offsets[slot], end = offsets[slot + 1]; i < end; i++) {
+			int destination = targets[i];
+			if (!occupied.get(destination))
+				out.add(MoveCodes.doubleMove(colour, first, middle, second, destination));
+		}
+	}
+
+	// tickets of the given type left for the second move once the first is made
+	private static int remaining(int[] tickets, int first, int second) {
+		return first == second ? tickets[second] - 1 : tickets[second];
+	}
+
+}
@@ -0,0 +1,179 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * Flyweight table of {@link Move}s: returns the same move instance for the
+ * same move code (see {@link MoveCodes}), so turning generated codes into
+ * moves allocates only the first time a move is seen.
+ *
+ * <br>
+ * Interned moves are immutable and may be shared freely. The table covers
+ * destinations up to the largest node of its graph; moves outside that
+ * range, and double moves on very large graphs, are created on every call
+ * but are still equal to any other move with the same code.
+ *
+ * <br>
+ * Instances are thread safe. Two threads looking up the same move for the
+ * first time at the same time may get equal but distinct instances.
+ */
+public final class MoveTable {
+
+	private static final Colour[] COLOURS = Colour.values();
+	private static final Ticket[] TICKETS = Ticket.values();
+	// largest number of destinations for which double moves are interned, the
+	// row of second legs for one first leg has TICKETS entries per destination
+	private static final int MAX_DOUBLE_DESTINATIONS = 1 << 12;
+
+	private static final LoadingCache<Graph<Integer, Transport>, MoveTable> CACHE =
+			CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(MoveTable::of));
+
+	private final int destinations;
+	private final PassMove[] passes = new PassMove[COLOURS.length];
+	// ticket moves of row colour * TICKETS + ticket, indexed by destination
+	private final AtomicReferenceArray<TicketMove[]> tickets;
+	// double moves of row (colour * TICKETS + first) * destinations + first
+	// destination, indexed by second * destinations + second destination
+	private final AtomicReferenceArray<DoubleMove[]> doubles;
+
+	/**
+	 * @param maxDestination the largest destination to intern moves for
+	 */
+	public MoveTable(int maxDestination) {
+		if (maxDestination < 0 || maxDestination > MoveCodes.MAX_DESTINATION)
+			throw new IllegalArgumentException("Unsupported destination " + maxDestination);
+		this.destinations = maxDestination + 1;
+		for (Colour colour : COLOURS) passes[colour.ordinal()] = new PassMove(colour);
+		this.tickets = new AtomicReferenceArray<>(COLOURS.length * TICKETS.length);
+		this.doubles = new AtomicReferenceArray<>(destinations > MAX_DOUBLE_DESTINATIONS ? 0
+				: COLOURS.length * TICKETS.length * destinations);
+	}
+
+	/**
+	 * @param graph the graph; not null and node values must not be negative
+	 * @return a table covering every node of the graph; never null
+	 */
+	public static MoveTable of(Graph<Integer, ?> graph) {
+		int maxNode = 0;
+		for (Node<Integer> node : requireNonNull(graph).getNodes()) {
+			maxNode = Math.max(maxNode, node.value());
+		}
+		return new MoveTable(maxNode);
+	}
+
+	/**
+	 * Returns a shared table for the given graph, see
+	 * {@link MoveGenerator#forGraph(Graph)}
+	 *
+	 * @param graph the graph; not null
+	 * @return a table for the graph; never null
+	 */
+	public static MoveTable forGraph(Graph<Integer, Transport> graph) {
+		return CACHE.getUnchecked(requireNonNull(graph));
+	}
+
+	/**
+	 * @param code the move code
+	 * @return the move with the given code; never null
+	 */
+	public Move move(long code) {
+		int colour = (int) (code >>> 2 & 0b111);
+		switch (MoveCodes.kind(code)) {
+			case MoveCodes.PASS:
+				return passes[colour];
+			case MoveCodes.TICKET:
+				return ticketMove(colour, MoveCodes.firstTicketOrdinal(code),
+						MoveCodes.firstDestination(code));
+			case MoveCodes.DOUBLE:
+				return doubleMove(colour, MoveCodes.firstTicketOrdinal(code),
+						MoveCodes.firstDestination(code), MoveCodes.secondTicketOrdinal(code),
+						MoveCodes.secondDestination(code));
+			default:
+				throw new IllegalArgumentException("Invalid move code " + code);
+		}
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @return the pass move of the player; never null
+	 */
+	public PassMove passMove(Colour colour) {
+		return passes[colour.ordinal()];
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @param ticket the ticket used; not null
+	 * @param destination the destination
+	 * @return the ticket move; never null
+	 */
+	public TicketMove ticketMove(Colour colour, Ticket ticket, int destination) {
+		return ticketMove(colour.ordinal(), ticket.ordinal(), destination);
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @param first the first ticket; not null
+	 * @param firstDestination the first destination
+	 * @param second the second ticket; not null
+	 * @param secondDestination the final destination
+	 * @return the double move; never null
+	 */
+	public DoubleMove doubleMove(Colour colour, Ticket first, int firstDestination,
+			Ticket second, int secondDestination) {
+		return doubleMove(colour.ordinal(), first.ordinal(), firstDestination,
+				second.ordinal(), secondDestination);
+	}
+
+	private TicketMove ticketMove(int colour, int ticket, int destination) {
+		if (destination < 0 || destination >= destinations)
+			return new TicketMove(COLOURS[colour], TICKETS[ticket], destination);
+		TicketMove[] row = row(tickets, colour * TICKETS.length + ticket, destinations,
+				TicketMove[]::new);
+		TicketMove move = row[destination];
+		if (move == null) {
+			// moves only have final fields so publishing them through a race is safe
+			row[destination] = move = new TicketMove(COLOURS[colour], TICKETS[ticket], destination);
+		}
+		return move;
+	}
+
+	private DoubleMove doubleMove(int colour, int first, int firstDestination,
+			int second, int secondDestination) {
+		TicketMove firstMove = ticketMove(colour, first, firstDestination);
+		TicketMove secondMove = ticketMove(colour, second, secondDestination);
+		if (doubles.length() == 0 || firstDestination < 0 || firstDestination >= destinations
+				|| secondDestination < 0 || secondDestination >= destinations)
+			return new DoubleMove(COLOURS[colour], firstMove, secondMove);
+		DoubleMove[] row = row(doubles,
+				(colour * TICKETS.length + first) * destinations + firstDestination,
+				TICKETS.length * destinations, DoubleMove[]::new);
+		int index = second * destinations + secondDestination;
+		DoubleMove move = row[index];
+		if (move == null) {
+			row[index] = move = new DoubleMove(COLOURS[colour], firstMove, secondMove);
+		}
+		return move;
+	}
+
+	private static <T> T[] row(AtomicReferenceArray<T[]> rows, int index, int length,
+			IntFunction<T[]> factory) {
+		T[] row = rows.get(index);
+		if (row == null) {
+			T[] created = factory.apply(length);
+			row = rows.compareAndSet(index, null, created) ? created : rows.get(index);
+		}
+		return row;
+	}
+
+}
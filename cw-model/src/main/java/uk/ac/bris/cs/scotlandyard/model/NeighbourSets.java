@@ -0,0 +1,285 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * Precomputed neighbours of every node of a graph as bitsets, one per
+ * {@link Transport} plus one for any transport. A node set is a
+ * {@code long[]} of {@link #words()} words where bit {@code n} stands for the
+ * node with value {@code n}; the standard map fits in four words.
+ *
+ * <br>
+ * Expanding a set of nodes by one move is a few word-wise ORs per node in
+ * the set instead of a walk over {@link Edge}s, for example all locations
+ * Mr.X can reach with a BUS ticket from any of his possible locations:
+ * <pre>
+ * long[] reached = sets.newSet();
+ * sets.expand(candidates, Ticket.BUS, reached);
+ * NeighbourSets.andNot(reached, detectives);
+ * </pre>
+ *
+ * Instances are immutable and thread safe. Sets passed in must have
+ * {@link #words()} words and belong to the caller.
+ */
+public final class NeighbourSets {
+
+	// TAXI, BUS and UNDERGROUND have the same ordinal in Ticket and Transport
+	private static final int ANY = Transport.values().length;
+	private static final int ROWS = ANY + 1;
+
+	private static final LoadingCache<Graph<Integer, Transport>, NeighbourSets> CACHE =
+			CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(NeighbourSets::of));
+
+	private final int maxNode;
+	private final int words;
+	// neighbours of node n by row r are words (n * ROWS + r) * words onwards
+	private final long[] rows;
+
+	private NeighbourSets(int maxNode, long[] rows) {
+		this.maxNode = maxNode;
+		this.words = words(maxNode);
+		this.rows = rows;
+	}
+
+	private static int words(int maxNode) {
+		return (maxNode >>> 6) + 1;
+	}
+
+	/**
+	 * Precomputes the neighbour sets of the given graph. The sets grow with
+	 * the square of the largest node value, so they only suit maps of up to
+	 * a few ten thousand nodes.
+	 *
+	 * @param graph the graph; not null and node values must not be negative
+	 * @return the neighbour sets; never null
+	 * @throws IllegalArgumentException if the largest node value is too large
+	 *         for the sets to fit in an array
+	 */
+	public static NeighbourSets of(Graph<Integer, Transport> graph) {
+		requireNonNull(graph);
+		int maxNode = 0;
+		for (Node<Integer> node : graph.getNodes()) {
+			if (node.value() < 0)
+				throw new IllegalArgumentException("Unsupported node value " + node.value());
+			maxNode = Math.max(maxNode, node.value());
+		}
+		int words = words(maxNode);
+		if ((long) (maxNode + 1) * ROWS * words > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Node value too large for neighbour sets: " + maxNode);
+		long[] rows = new long[(maxNode + 1) * ROWS * words];
+		for (Node<Integer> node : graph.getNodes()) {
+			int base = node.value() * ROWS * words;
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node)) {
+				int destination = edge.destination().value();
+				add(rows, base + edge.data().ordinal() * words, destination);
+				add(rows, base + ANY * words, destination);
+			}
+		}
+		return new NeighbourSets(maxNode, rows);
+	}
+
+	/**
+	 * Returns shared neighbour sets for the given graph, see
+	 * {@link MoveGenerator#forGraph(Graph)}
+	 *
+	 * @param graph the graph; not null
+	 * @return the neighbour sets of the graph; never null
+	 */
+	public static NeighbourSets forGraph(Graph<Integer, Transport> graph) {
+		return CACHE.getUnchecked(requireNonNull(graph));
+	}
+
+	/**
+	 * @return the largest node value of the graph
+	 */
+	public int maxNode() {
+		return maxNode;
+	}
+
+	/**
+	 * @return the number of words in a node set of this graph
+	 */
+	public int words() {
+		return words;
+	}
+
+	/**
+	 * @return an empty node set for this graph; never null
+	 */
+	public long[] newSet() {
+		return new long[words];
+	}
+
+	/**
+	 * Adds the neighbours of a node reachable by the given transport
+	 *
+	 * @param node the node value, 0 to {@link #maxNode()}
+	 * @param transport the transport; not null
+	 * @param into the set to add to
+	 */
+	public void neighbours(int node, Transport transport, long[] into) {
+		row(into, (node * ROWS + transport.ordinal()) * words);
+	}
+
+	/**
+	 * Adds the neighbours of a node reachable by any transport
+	 *
+	 * @param node the node value, 0 to {@link #maxNode()}
+	 * @param into the set to add to
+	 */
+	public void neighbours(int node, long[] into) {
+		row(into, (node * ROWS + ANY) * words);
+	}
+
+	/**
+	 * Adds every node reachable from a node in {@code from} by the given
+	 * transport
+	 *
+	 * @param from the nodes to expand; not modified
+	 * @param transport the transport; not null
+	 * @param into the set to add to, must not be {@code from}
+	 */
+	public void expand(long[] from, Transport transport, long[] into) {
+		expand(from, transport.ordinal(), into);
+	}
+
+	/**
+	 * Adds every node reachable from a node in {@code from} with the given
+	 * ticket, a SECRET ticket can be used for any transport
+	 *
+	 * @param from the nodes to expand; not modified
+	 * @param ticket the ticket, not DOUBLE
+	 * @param into the set to add to, must not be {@code from}
+	 */
+	public void expand(long[] from, Ticket ticket, long[] into) {
+		if (ticket == Ticket.SECRET) expand(from, ANY, into);
+		else if (ticket == Ticket.DOUBLE)
+			throw new IllegalArgumentException("DOUBLE does not move along an edge");
+		else expand(from, ticket.ordinal(), into);
+	}
+
+	/**
+	 * Adds every node reachable from a node in {@code from} by any transport
+	 *
+	 * @param from the nodes to expand; not modified
+	 * @param into the set to add to, must not be {@code from}
+	 */
+	public void expand(long[] from, long[] into) {
+		expand(from, ANY, into);
+	}
+
+	private void expand(long[] from, int row, long[] into) {
+		if (from == into) throw new IllegalArgumentException("from and into are the same set");
+		for (int w = 0; w < from.length; w++) {
+			long bits = from[w];
+			while (bits != 0) {
+				int node = (w << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				if (node > maxNode) return;
+				row(into, (node * ROWS + row) * words);
+			}
+		}
+	}
+
+	private void row(long[] into, int offset) {
+		for (int w = 0; w < words; w++) into[w] |= rows[offset + w];
+	}
+
+	private static void add(long[] set, int offset, int node) {
+		set[offset + (node >>> 6)] |= 1L << node;
+	}
+
+	/**
+	 * @param set a node set
+	 * @param node the node value to add
+	 */
+	public static void add(long[] set, int node) {
+		set[node >>> 6] |= 1L << node;
+	}
+
+	/**
+	 * @param set a node set
+	 * @param node the node value to remove
+	 */
+	public static void remove(long[] set, int node) {
+		set[node >>> 6] &= ~(1L << node);
+	}
+
+	/**
+	 * @param set a node set
+	 * @param node a node value, may be outside the set's range
+	 * @return true if the node is in the set
+	 */
+	public static boolean contains(long[] set, int node) {
+		int word = node >>> 6;
+		return node >= 0 && word < set.length && (set[word] & 1L << node) != 0;
+	}
+
+	/**
+	 * @param set a node set
+	 * @return the number of nodes in the set
+	 */
+	public static int count(long[] set) {
+		int count = 0;
+		for (long word : set) count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * @param set a node set
+	 * @return true if the set has no nodes
+	 */
+	public static boolean isEmpty(long[] set) {
+		for (long word : set) if (word != 0) return false;
+		return true;
+	}
+
+	/**
+	 * Iterates a set like {@link java.util.BitSet#nextSetBit(int)}
+	 *
+	 * @param set a node set
+	 * @param from the smallest node value to return, not negative
+	 * @return the first node in the set not smaller than {@code from}, or -1
+	 */
+	public static int next(long[] set, int from) {
+		int w = from >>> 6;
+		if (w >= set.length) return -1;
+		long bits = set[w] & -1L << from;
+		while (bits == 0) {
+			if (++w == set.length) return -1;
+			bits = set[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Adds every node of {@code other} to {@code set}
+	 */
+	public static void or(long[] set, long[] other) {
+		for (int w = 0; w < set.length; w++) set[w] |= other[w];
+	}
+
+	/**
+	 * Keeps only the nodes of {@code set} that are in {@code other}
+	 */
+	public static void and(long[] set, long[] other) {
+		for (int w = 0; w < set.length; w++) set[w] &= other[w];
+	}
+
+	/**
+	 * Removes every node of {@code other} from {@code set}, for example the
+	 * locations of the detectives
+	 */
+	public static void andNot(long[] set, long[] other) {
+		for (int w = 0; w < set.length; w++) set[w] &= ~other[w];
+	}
+
+}
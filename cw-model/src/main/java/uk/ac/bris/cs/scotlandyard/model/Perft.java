@@ -0,0 +1,176 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
+
+/**
+ * Counts the positions reachable in a given number of moves (plies), like
+ * perft in chess engines. Counts exercise move generation and
+ * {@link GameState#apply(long)}/{@link GameState#undo()} exhaustively, so a
+ * change to either that alters a known count is a bug; the time taken
+ * measures how fast the rules can walk the game tree.
+ *
+ * <br>
+ * Every legal move counts as one edge of the tree, including each
+ * {@link PassMove} of a stuck detective. Positions where the game is over
+ * have no moves, so they end their branch early and are not counted at the
+ * full depth.
+ */
+public final class Perft {
+
+	// subtrees this deep or shallower are counted by a single task
+	private static final int SEQUENTIAL_DEPTH = 3;
+
+	private Perft() {}
+
+	/**
+	 * Creates the start of a game with the standard graph, rounds and tickets
+	 *
+	 * @param mrXLocation Mr.X's location
+	 * @param detectiveLocations locations of the detectives, 1 to 5; not null
+	 * @return the state before Mr.X's first move; never null
+	 * @throws IOException if the standard graph cannot be read
+	 */
+	public static GameState standardStart(int mrXLocation, List<Integer> detectiveLocations)
+			throws IOException {
+		return start(StandardGame.standardGraph(), mrXLocation, detectiveLocations);
+	}
+
+	/**
+	 * Creates the start of a game with the standard rounds and tickets on any
+	 * graph, for example one made by {@link MapGenerator}
+	 *
+	 * @param graph the graph; not null
+	 * @param mrXLocation Mr.X's location
+	 * @param detectiveLocations locations of the detectives, 1 to 5; not null
+	 * @return the state before Mr.X's first move; never null
+	 */
+	public static GameState start(Graph<Integer, Transport> graph, int mrXLocation,
+			List<Integer> detectiveLocations) {
+		if (detectiveLocations.isEmpty() || detectiveLocations.size() > 5)
+			throw new IllegalArgumentException("Need 1 to 5 detectives");
+		Player none = (view, location, moves, callback) -> {};
+		Colour[] colours = Colour.values();
+		List<PlayerConfiguration> detectives = new ArrayList<>();
+		for (int i = 0; i < detectiveLocations.size(); i++) {
+			detectives.add(new Builder(colours[i + 1]).using(none)
+					.with(StandardGame.generateDetectiveTickets())
+					.at(detectiveLocations.get(i)).build());
+		}
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, graph,
+				new Builder(Colour.BLACK).using(none)
+						.with(StandardGame.generateMrXTickets()).at(mrXLocation).build(),
+				detectives.get(0),
+				detectives.subList(1, detectives.size()).toArray(new PlayerConfiguration[0]));
+		return GameState.from(model, mrXLocation);
+	}
+
+	/**
+	 * Counts on the calling thread
+	 *
+	 * @param state the position to count from, left as it was; not null
+	 * @param depth the number of moves, 0 or more
+	 * @return number of positions at the given depth
+	 */
+	public static long count(GameState state, int depth) {
+		requireNonNull(state);
+		if (depth < 0) throw new IllegalArgumentException("depth < 0");
+		if (depth == 0) return 1;
+		MoveBuffer[] buffers = new MoveBuffer[depth + 1];
+		for (int i = 0; i < buffers.length; i++) buffers[i] = new MoveBuffer();
+		return count(state, depth, buffers);
+	}
+
+	private static long count(GameState state, int depth, MoveBuffer[] buffers) {
+		MoveBuffer buffer = buffers[depth];
+		buffer.clear();
+		int moves = state.legalMoves(buffer);
+		if (depth == 1) return moves;
+		long nodes = 0;
+		for (int i = 0; i < moves; i++) {
+			state.apply(buffer.get(i));
+			nodes += count(state, depth - 1, buffers);
+			state.undo();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Counts on the given pool, one task per subtree down to a few moves from
+	 * the bottom. Each task works on its own copy of the state.
+	 *
+	 * @param state the position to count from, not modified; not null
+	 * @param depth the number of moves, 0 or more
+	 * @param pool the pool to count on; not null
+	 * @return number of positions at the given depth, the same as
+	 *         {@link #count(GameState, int)}
+	 */
+	public static long count(GameState state, int depth, ForkJoinPool pool) {
+		requireNonNull(state);
+		if (depth < 0) throw new IllegalArgumentException("depth < 0");
+		return pool.invoke(new Task(state.copy(), depth));
+	}
+
+	private static final class Task extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final GameState state;
+		private final int depth;
+
+		Task(GameState state, int depth) {
+			this.state = state;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			if (depth <= SEQUENTIAL_DEPTH) return count(state, depth);
+			MoveBuffer buffer = new MoveBuffer();
+			int moves = state.legalMoves(buffer);
+			List<Task> tasks = new ArrayList<>(moves);
+			for (int i = 0; i < moves; i++) {
+				GameState child = state.copy();
+				child.apply(buffer.get(i));
+				tasks.add(new Task(child, depth - 1));
+			}
+			long nodes = 0;
+			for (Task task : invokeAll(tasks)) nodes += task.join();
+			return nodes;
+		}
+	}
+
+	/**
+	 * Prints the counts and speed for every depth up to the given one from
+	 * a random standard start
+	 *
+	 * @param args {@code [depth] [seed]}, defaults to depth 7 and seed 0
+	 * @throws IOException if the standard graph cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		int seed = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+		GameState start = standardStart(StandardGame.generateMrXLocation(seed),
+				StandardGame.generateDetectiveLocations(seed, 5));
+		System.out.println(start);
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		for (int d = 1; d <= depth; d++) {
+			long begin = System.nanoTime();
+			long nodes = count(start, d, pool);
+			double seconds = (System.nanoTime() - begin) / 1e9;
+			System.out.println(String.format(Locale.ENGLISH,
+					"depth %2d %,18d nodes %10.3fs %,16.0f nodes/s", d, nodes, seconds,
+					nodes / seconds));
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+
+/**
+ * {@link GameMetrics} that keeps a count, a total and a latency histogram per
+ * operation. Safe to share between games on different threads; recording
+ * never locks or allocates.
+ *
+ * <br>
+ * The histogram has four buckets per power of two, so percentiles are
+ * reported as the upper bound of their bucket and overestimate by at most
+ * 25%.
+ */
+public final class RecordingGameMetrics implements GameMetrics {
+
+	private static final Operation[] OPERATIONS = Operation.values();
+	// values 0-3 get a bucket each, then four buckets for each power of two up to 2^62
+	private static final int BUCKETS = 4 * 62;
+
+	private final LongAdder[] totals = new LongAdder[OPERATIONS.length];
+	private final AtomicLongArray histogram = new AtomicLongArray(OPERATIONS.length * BUCKETS);
+
+	public RecordingGameMetrics() {
+		for (int i = 0; i < totals.length; i++) totals[i] = new LongAdder();
+	}
+
+	@Override
+	public void record(Operation operation, long nanos) {
+		long value = Math.max(nanos, 0);
+		totals[operation.ordinal()].add(value);
+		histogram.incrementAndGet(operation.ordinal() * BUCKETS + bucket(value));
+	}
+
+	static int bucket(long value) {
+		if (value < 4) return (int) value;
+		int msb = 63 - Long.numberOfLeadingZeros(value);
+		return (msb - 1) * 4 + (int) (value >>> (msb - 2) & 3);
+	}
+
+	// largest value that falls into the given bucket
+	static long upperBound(int bucket) {
+		if (bucket < 4) return bucket;
+		int msb = bucket / 4 + 1;
+		long lower = (long) (4 + bucket % 4) << (msb - 2);
+		return lower + (1L << (msb - 2)) - 1;
+	}
+
+	/**
+	 * @param operation the operation; not null
+	 * @return number of times the operation was recorded
+	 */
+	public long count(Operation operation) {
+		long count = 0;
+		int base = requireNonNull(operation).ordinal() * BUCKETS;
+		for (int i = 0; i < BUCKETS; i++) count += histogram.get(base + i);
+		return count;
+	}
+
+	/**
+	 * @param operation the operation; not null
+	 * @return total time spent in the operation in nanoseconds
+	 */
+	public long totalNanos(Operation operation) {
+		return totals[operation.ordinal()].sum();
+	}
+
+	/**
+	 * @param operation the operation; not null
+	 * @return mean time of the operation in nanoseconds, 0 if never recorded
+	 */
+	public double meanNanos(Operation operation) {
+		long count = count(operation);
+		return count == 0 ? 0 : (double) totalNanos(operation) / count;
+	}
+
+	/**
+	 * @param operation the operation; not null
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the time in nanoseconds below which the given percentage of
+	 *         recorded operations fall, 0 if never recorded
+	 */
+	public long percentileNanos(Operation operation, double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile " + percentile + " out of range");
+		int base = operation.ordinal() * BUCKETS;
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) count += counts[i] = histogram.get(base + i);
+		if (count == 0) return 0;
+		long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) return upperBound(i);
+		}
+		return upperBound(BUCKETS - 1);
+	}
+
+	/**
+	 * Discards everything recorded so far
+	 */
+	public void reset() {
+		for (LongAdder total : totals) total.reset();
+		for (int i = 0; i < histogram.length(); i++) histogram.set(i, 0);
+	}
+
+	/**
+	 * Writes a summary line per operation to the given logger at info level
+	 *
+	 * @param logger the logger; not null
+	 */
+	public void dump(Logger logger) {
+		if (!logger.isInfoEnabled()) return;
+		for (Operation operation : OPERATIONS) logger.info(summary(operation));
+	}
+
+	private String summary(Operation operation) {
+		return String.format("%-18s count=%d mean=%.0fns p50=%dns p99=%dns max=%dns",
+				operation, count(operation), meanNanos(operation),
+				percentileNanos(operation, 50), percentileNanos(operation, 99),
+				percentileNanos(operation, 100));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Operation operation : OPERATIONS) {
+			sb.append(summary(operation)).append(System.lineSeparator());
+		}
+		return sb.toString();
+	}
+
+}
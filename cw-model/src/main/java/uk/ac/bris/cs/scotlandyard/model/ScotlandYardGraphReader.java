@@ -1,10 +1,21 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
 import uk.ac.bris.cs.gamekit.graph.Edge;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.gamekit.graph.Node;
@@ -29,6 +40,121 @@ public class ScotlandYardGraphReader {
 	 * @return a graph for {@link ScotlandYardGame} to use
 	 */
 	public static ImmutableGraph<Integer, Transport> fromLines(List<String> lines) {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		read(lines, sink(graph));
+		return new ImmutableGraph<>(graph);
+	}
+
+	/**
+	 * Reads a Scotland Yard game map from a channel in the same format as
+	 * {@link #fromLines(List)}. The bytes are tokenised as they are read, no
+	 * line or token strings are created unless the input is malformed.
+	 *
+	 * @param channel the channel, read up to the last edge and not closed;
+	 *        not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if the channel cannot be read
+	 */
+	public static ImmutableGraph<Integer, Transport> fromChannel(ReadableByteChannel channel)
+			throws IOException {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		read(new ByteLines(channel), sink(graph));
+		return new ImmutableGraph<>(graph);
+	}
+
+	/**
+	 * Converts lines of strings into a Scotland Yard game map stored as a
+	 * {@link CsrGraph}, without creating an intermediate graph. The nodes and
+	 * the edges from every node are in the same order as in
+	 * {@link #fromLines(List)}.
+	 *
+	 * @param lines the lines
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 */
+	public static CsrGraph<Transport> csrFromLines(List<String> lines) {
+		CsrGraph.Builder<Transport> builder = new CsrGraph.Builder<>(Transport.class);
+		read(lines, sink(builder));
+		return builder.build();
+	}
+
+	/**
+	 * Streams a Scotland Yard game map from a channel straight into a
+	 * {@link CsrGraph}, see {@link #fromChannel(ReadableByteChannel)}. Memory
+	 * use is the graph itself and a fixed size read buffer, so this is the
+	 * reader for large generated maps.
+	 *
+	 * @param channel the channel, read up to the last edge and not closed;
+	 *        not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if the channel cannot be read
+	 */
+	public static CsrGraph<Transport> csrFromChannel(ReadableByteChannel channel)
+			throws IOException {
+		CsrGraph.Builder<Transport> builder = new CsrGraph.Builder<>(Transport.class);
+		read(new ByteLines(channel), sink(builder));
+		return builder.build();
+	}
+
+	/**
+	 * Streams a Scotland Yard game map from a file, see
+	 * {@link #csrFromChannel(ReadableByteChannel)}
+	 *
+	 * @param path the file; not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if the file cannot be read
+	 */
+	public static CsrGraph<Transport> csrFromPath(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return csrFromChannel(channel);
+		}
+	}
+
+	private static Sink sink(UndirectedGraph<Integer, Transport> graph) {
+		return new Sink() {
+			@Override public void addNode(int value) {
+				graph.addNode(new Node<>(value));
+			}
+
+			@Override public boolean containsNode(int value) {
+				return graph.containsNode(value);
+			}
+
+			@Override public void addEdge(int source, int destination, Transport data) {
+				graph.addEdge(new Edge<>(graph.getNode(source), graph.getNode(destination), data));
+			}
+		};
+	}
+
+	private static Sink sink(CsrGraph.Builder<Transport> builder) {
+		return new Sink() {
+			@Override public void addNode(int value) {
+				builder.addNode(value);
+			}
+
+			@Override public boolean containsNode(int value) {
+				return builder.containsNode(value);
+			}
+
+			@Override public void addEdge(int source, int destination, Transport data) {
+				builder.addEdge(source, destination, data);
+			}
+		};
+	}
+
+	/**
+	 * Receives the nodes and edges of a map as they are read
+	 */
+	private interface Sink {
+
+		void addNode(int value);
+
+		boolean containsNode(int value);
+
+		void addEdge(int source, int destination, Transport data);
+
+	}
+
+	private static void read(List<String> lines, Sink graph) {
 		if (lines == null) throw new NullPointerException("lines == null");
 		if (lines.isEmpty()) throw new IllegalArgumentException("Lines must not be empty!");
 
@@ -45,15 +171,13 @@ public class ScotlandYardGraphReader {
 		if (numberOfNodes + numberOfEdges > lines.size() - 1)
 			throw new IllegalArgumentException("Line count < (edge count + node count)");
 
-		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
-
 		// we read the first line already
 		for (int i = 1; i <= numberOfNodes; i++) {
 			if (lines.get(i).isEmpty())
 				throw new IllegalArgumentException("Expected non-empty line at line " + i);
 			String value = parseLine(i, lines, DELIMITER, 1)[0];
 			try {
-				graph.addNode(new Node<>(Integer.parseInt(value)));
+				graph.addNode(Integer.parseInt(value));
 			} catch (NumberFormatException e) {
 				throw new IllegalArgumentException(
 						"Expected integer at line " + i + "\n\t" + lines.get(i));
@@ -65,12 +189,12 @@ public class ScotlandYardGraphReader {
 				throw new IllegalArgumentException("Expected non-empty line at line " + i);
 			String[] segments = parseLine(i, lines, DELIMITER, 3);
 
-			Node<Integer> source;
-			Node<Integer> destination;
+			int source;
+			int destination;
 			Transport data;
 			try {
-				source = graph.getNode(Integer.parseInt(segments[0]));
-				destination = graph.getNode(Integer.parseInt(segments[1]));
+				source = Integer.parseInt(segments[0]);
+				destination = Integer.parseInt(segments[1]);
 			} catch (NumberFormatException e) {
 				throw new IllegalArgumentException(
 						"Expected integer at line " + i + "\n\t" + lines.get(i));
@@ -82,14 +206,217 @@ public class ScotlandYardGraphReader {
 						"Expected enum with value of " + Arrays.toString(Transport.values())
 								+ " at line " + i + "\n\t" + lines.get(i));
 			}
-			if (source == null) throw new IllegalArgumentException(
+			if (!graph.containsNode(source)) throw new IllegalArgumentException(
 					"Expected source node to exist in graph  at line " + i + "\n\t" + lines.get(i));
-			if (destination == null) throw new IllegalArgumentException(
+			if (!graph.containsNode(destination)) throw new IllegalArgumentException(
 					"Expected destination node to exist in graph  at line " + i + "\n\t"
 							+ lines.get(i));
-			graph.addEdge(new Edge<>(source, destination, data));
+			graph.addEdge(source, destination, data);
+		}
+	}
+
+	// the same checks and messages as read(List, Sink), line by line as the bytes arrive
+	private static void read(ByteLines lines, Sink graph) throws IOException {
+		if (!lines.next()) throw new IllegalArgumentException("Lines must not be empty!");
+
+		lines.split(2);
+		int numberOfNodes;
+		int numberOfEdges;
+		try {
+			numberOfNodes = lines.integer(0);
+			numberOfEdges = lines.integer(1);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid symbol at line 1:\n\t" + lines.text());
+		}
+
+		for (int i = 1; i <= numberOfNodes + numberOfEdges; i++) {
+			if (!lines.next())
+				throw new IllegalArgumentException("Line count < (edge count + node count)");
+			if (lines.isEmpty())
+				throw new IllegalArgumentException("Expected non-empty line at line " + i);
+			if (i <= numberOfNodes) {
+				lines.split(1);
+				try {
+					graph.addNode(lines.integer(0));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(
+							"Expected integer at line " + i + "\n\t" + lines.text());
+				}
+				continue;
+			}
+
+			lines.split(3);
+			int source;
+			int destination;
+			try {
+				source = lines.integer(0);
+				destination = lines.integer(1);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Expected integer at line " + i + "\n\t" + lines.text());
+			}
+			Transport data = lines.transport(2);
+			if (data == null) throw new IllegalArgumentException(
+					"Expected enum with value of " + Arrays.toString(Transport.values())
+							+ " at line " + i + "\n\t" + lines.text());
+			if (!graph.containsNode(source)) throw new IllegalArgumentException(
+					"Expected source node to exist in graph  at line " + i + "\n\t"
+							+ lines.text());
+			if (!graph.containsNode(destination)) throw new IllegalArgumentException(
+					"Expected destination node to exist in graph  at line " + i + "\n\t"
+							+ lines.text());
+			graph.addEdge(source, destination, data);
+		}
+	}
+
+	/**
+	 * Splits the bytes of a channel into lines and the lines into fields the
+	 * way {@link BufferedReader#lines()} and {@link String#split(String)} with
+	 * a single space do, without creating strings
+	 */
+	private static final class ByteLines {
+
+		private static final byte[][] TRANSPORTS = Stream.of(Transport.values())
+				.map(transport -> transport.name().getBytes(StandardCharsets.US_ASCII))
+				.toArray(byte[][]::new);
+
+		private final ReadableByteChannel channel;
+		private final byte[] chunk = new byte[1 << 16];
+		private final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+		private int position;
+		private int limit;
+		private boolean end;
+		// a line ended with \r, a \n right after it belongs to the same break
+		private boolean carriageReturn;
+
+		private byte[] line = new byte[128];
+		private int length;
+		private int lineNumber = -1;
+		private final int[] starts = new int[3];
+		private final int[] ends = new int[3];
+
+		ByteLines(ReadableByteChannel channel) {
+			this.channel = Objects.requireNonNull(channel);
+		}
+
+		// reads the next line, false at the end of the input
+		boolean next() throws IOException {
+			length = 0;
+			boolean read = false;
+			while (true) {
+				if (position == limit && !fill()) {
+					if (read) lineNumber++;
+					return read;
+				}
+				if (carriageReturn) {
+					carriageReturn = false;
+					if (chunk[position] == '\n') {
+						position++;
+						continue;
+					}
+				}
+				int from = position;
+				while (position < limit && chunk[position] != '\n' && chunk[position] != '\r')
+					position++;
+				append(from, position);
+				read = true;
+				if (position < limit) {
+					carriageReturn = chunk[position++] == '\r';
+					lineNumber++;
+					return true;
+				}
+			}
+		}
+
+		private boolean fill() throws IOException {
+			if (end) return false;
+			buffer.clear();
+			int read;
+			do {
+				read = channel.read(buffer);
+			} while (read == 0);
+			if (read < 0) {
+				end = true;
+				return false;
+			}
+			position = 0;
+			limit = read;
+			return true;
+		}
+
+		private void append(int from, int to) {
+			int count = to - from;
+			if (length + count > line.length)
+				line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+			System.arraycopy(chunk, from, line, length, count);
+			length += count;
+		}
+
+		boolean isEmpty() {
+			return length == 0;
+		}
+
+		// finds the fields of the line, trailing empty fields are dropped like split does
+		void split(int expectedSegments) {
+			int last = length;
+			while (last > 0 && line[last - 1] == ' ') last--;
+			int segments = 0;
+			int start = 0;
+			for (int i = 0; i <= last; i++) {
+				if (i < last && line[i] != ' ') continue;
+				if (segments < expectedSegments) {
+					starts[segments] = start;
+					ends[segments] = i;
+				}
+				segments++;
+				start = i + 1;
+			}
+			if (length > 0 && last == 0) segments = 0;
+			if (segments != expectedSegments) throw new IllegalArgumentException(
+					"Expected " + expectedSegments + " occurrences of delimiter \"" + DELIMITER
+							+ "\" on line " + lineNumber + ":\n\t" + text());
+		}
+
+		// parses a field like Integer.parseInt
+		int integer(int segment) {
+			int i = starts[segment];
+			int to = ends[segment];
+			boolean negative = i < to && line[i] == '-';
+			if (i < to && (line[i] == '-' || line[i] == '+')) i++;
+			if (i == to) throw new NumberFormatException();
+			long value = 0;
+			for (; i < to; i++) {
+				int digit = line[i] - '0';
+				if (digit < 0 || digit > 9) throw new NumberFormatException();
+				value = value * 10 + digit;
+				if (value > (long) Integer.MAX_VALUE + 1) throw new NumberFormatException();
+			}
+			if (negative) value = -value;
+			if (value > Integer.MAX_VALUE) throw new NumberFormatException();
+			return (int) value;
+		}
+
+		// matches a field against the transport names ignoring case, null if none matches
+		Transport transport(int segment) {
+			int from = starts[segment];
+			int count = ends[segment] - from;
+			for (int t = 0; t < TRANSPORTS.length; t++) {
+				byte[] name = TRANSPORTS[t];
+				if (name.length != count) continue;
+				int i = 0;
+				while (i < count && upperCase(line[from + i]) == name[i]) i++;
+				if (i == count) return Transport.values()[t];
+			}
+			return null;
+		}
+
+		private static int upperCase(byte b) {
+			return b >= 'a' && b <= 'z' ? b - ('a' - 'A') : b;
+		}
+
+		String text() {
+			return new String(line, 0, length, StandardCharsets.UTF_8);
 		}
-		return new ImmutableGraph<>(graph);
 	}
 
 	private static String[] parseLine(int line, List<String> lines, String delimiter,
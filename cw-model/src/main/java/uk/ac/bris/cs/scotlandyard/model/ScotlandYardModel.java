@@ -9,27 +9,26 @@ import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.checkFromIndexSize;
 import static java.util.Objects.requireNonNull;
 import static uk.ac.bris.cs.scotlandyard.model.Colour.*;
+import static uk.ac.bris.cs.scotlandyard.model.GameMetrics.Operation.*;
 import static uk.ac.bris.cs.scotlandyard.model.Ticket.*;
 
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
 import java.util.function.Consumer;
 
-import ch.qos.logback.core.net.SyslogOutputStream;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.sun.javafx.iio.ImageLoadListener;
-import javafx.collections.SetChangeListener;
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
 import uk.ac.bris.cs.gamekit.graph.Edge;
 import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.gamekit.graph.Node;
-import uk.ac.bris.cs.scotlandyard.ui.controller.BoardPlayers;
 
 public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, MoveVisitor {
 
 	// Declaration of all used class variables.
 	private List<Boolean> rounds;
 	private Graph<Integer, Transport> graph;
+	private Graph<Integer, Transport> immutablegraph;
 	private ArrayList<ScotlandYardPlayer> configurations = new ArrayList<>();
 	private ArrayList<Spectator> spectators = new ArrayList<>();
 	private Set<Integer> set = new HashSet<>();
@@ -39,7 +38,26 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 	private int currentplayer = 0;
 	private int round = 0;
 	private int mrxlastlocation = 0;
+	private ScotlandYardPlayer[] bycolour = new ScotlandYardPlayer[Colour.values().length];
+	private List<Colour> players;
+	private List<Boolean> roundsview;
+	private volatile ViewSnapshot snapshot;
+	private volatile Thread owner;
+	private volatile boolean shared = false;
+	private boolean applying = false;
+	private boolean stale = false;
 	private Set<Move> moves = new HashSet<>();
+	private MoveGenerator generator;
+	private MoveTable table;
+	private MoveBuffer buffer = new MoveBuffer();
+	private BitSet detectivenodes = new BitSet();
+	private GameMetrics metrics = GameMetrics.NONE;
+	private boolean captured = false;
+	private int stuckdetectives = 0;
+	private int[] exitsto;
+	private int[] freeexits = new int[Ticket.values().length];
+	private boolean timed = false;
+	private long positionhash = 0;
 
 	public ScotlandYardModel(List<Boolean> rounds, Graph<Integer, Transport> graph,
 							 PlayerConfiguration mrX, PlayerConfiguration firstDetective,
@@ -56,6 +74,10 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 		if (graph.isEmpty()) {
 			throw new IllegalArgumentException("Empty Graph!");
 		}
+		// Move generation and distances are cached per graph, so the graph must not change during the game, e.g. through Graph.removeEdge.
+		this.immutablegraph = graph instanceof ImmutableGraph || graph instanceof CsrGraph ? graph : new ImmutableGraph<>(graph);
+		this.generator = MoveGenerator.forGraph(immutablegraph);
+		this.table = MoveTable.forGraph(immutablegraph);
 
 		// Add all players into the configurations list to allow for iterability.
 		configurations.add(0, new ScotlandYardPlayer(mrX.player, mrX.colour, mrX.location, mrX.tickets));
@@ -78,6 +100,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 			if (colset.contains(configuration.colour()))
 				throw new IllegalArgumentException("Duplicate colour!");
 			colset.add(configuration.colour());
+			bycolour[configuration.colour().ordinal()] = configuration;
 			if (!(configuration.tickets().containsKey(TAXI) && configuration.tickets().containsKey(BUS) && configuration.tickets().containsKey(UNDERGROUND) && configuration.tickets().containsKey(SECRET) && configuration.tickets().containsKey(DOUBLE))) {
 				throw new IllegalArgumentException("Invalid player tickets!");
 			}
@@ -94,140 +117,230 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 					throw new IllegalArgumentException("Invalid detective tickets!");
 				}
 			}
+			if (configuration.isDetective()) {
+				detectivenodes.set(configuration.location());
+				if (isstuck(configuration)) {
+					stuckdetectives++;
+				}
+			}
+		}
+
+		// Caches the read only views handed out by getPlayers and getRounds.
+		List<Colour> colours = new ArrayList<>();
+		for (ScotlandYardPlayer configuration : configurations) {
+			colours.add(configuration.colour());
+		}
+		players = ImmutableList.copyOf(colours);
+		roundsview = Collections.unmodifiableList(rounds);
+
+		// Sets up the count of Mr X's exits that are not blocked by a detective.
+		int maxnode = 0;
+		for (Node<Integer> node : immutablegraph.getNodes()) {
+			maxnode = Math.max(maxnode, node.value());
+		}
+		exitsto = new int[(maxnode + 1) * freeexits.length];
+		mrxexits(-1, configurations.get(0).location());
+
+		// Hashes the starting locations and tickets of all players, kept up to date by visit and accept from here on.
+		for (ScotlandYardPlayer configuration : configurations) {
+			positionhash ^= Zobrist.location(configuration.colour(), configuration.location());
+			for (Ticket t : Ticket.values()) {
+				positionhash ^= Zobrist.tickets(configuration.colour(), t, configuration.ticketCount(t));
+			}
 		}
 
 		// Performs a check to see if the game is over.
 		checkGameOver(0);
+		owner = Thread.currentThread();
+		takesnapshot();
 	}
 
 	// Checks if the given node has a detective on it.
 	public boolean nodehasdetective (int location) {
-		boolean x = false;
-		for (ScotlandYardPlayer p : configurations) {
-			if (p.isDetective()) {
-				if (p.location() == location) {
-					x = true;
-				}
-			}
-		}
-		return x;
+		return location >= 0 && detectivenodes.get(location);
 	}
 
-	// Populates a list of moves with all legal moves of both types depending on the players tickets and position.
-	public Set<Move> populatemoves (ScotlandYardPlayer p) {
-		Graph<Integer, Transport> g = getGraph();
-		for (Edge<Integer, Transport> a : g.getEdgesFrom(g.getNode(p.location()))) {
-			if (p.hasTickets(fromTransport(a.data()))) {
-				if (!nodehasdetective(a.destination().value())) {
-					moves.add(new TicketMove(p.colour(), fromTransport(a.data()), a.destination().value()));
-				}
+	// Checks if the given detective has no tickets left to move with.
+	private static boolean isstuck (ScotlandYardPlayer p) {
+		return !p.hasTickets(BUS) && !p.hasTickets(TAXI) && !p.hasTickets(UNDERGROUND);
+	}
+
+	// Moves the count of Mr X's exits per ticket type from one location to another, an exit is free if no detective is on its destination.
+	private void mrxexits (int from, int to) {
+		Node<Integer> old = from < 0 ? null : immutablegraph.getNode(from);
+		if (old != null) {
+			for (Edge<Integer, Transport> e : immutablegraph.getEdgesFrom(old)) {
+				exitsto[e.destination().value() * freeexits.length + transportInEdge(e.data()).ordinal()]--;
 			}
 		}
-		if (p.isMrX()) {
-			for (Edge<Integer, Transport> a : g.getEdgesFrom(g.getNode(p.location()))) {
-				if (p.hasTickets(SECRET) && !nodehasdetective(a.destination().value())) {
-					moves.add(new TicketMove(p.colour(), SECRET, a.destination().value()));
-				}
+		Arrays.fill(freeexits, 0);
+		Node<Integer> node = immutablegraph.getNode(to);
+		if (node == null) {
+			return;
+		}
+		for (Edge<Integer, Transport> e : immutablegraph.getEdgesFrom(node)) {
+			int ticket = transportInEdge(e.data()).ordinal();
+			exitsto[e.destination().value() * freeexits.length + ticket]++;
+			if (!nodehasdetective(e.destination().value())) {
+				freeexits[ticket]++;
 			}
-			if (p.hasTickets(DOUBLE) && (round < rounds.size() - 1)) {
-				int one;
-				int two;
-				Ticket first;
-				Ticket second;
-				for (Edge<Integer, Transport> a : g.getEdgesFrom(g.getNode(p.location()))) {
-					if (p.hasTickets(fromTransport(a.data())) && !nodehasdetective(a.destination().value())) {
-						one = a.destination().value();
-						first = fromTransport(a.data());
-						for (Edge<Integer, Transport> b : g.getEdgesFrom(g.getNode(one))) {
-							if (p.hasTickets(fromTransport(b.data())) && !nodehasdetective(b.destination().value())) {
-								two = b.destination().value();
-								if (fromTransport(b.data()).equals(first)) {
-									if (p.hasTickets(first,2)) {
-										second = fromTransport(b.data());
-										moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-									}
-								}
-								else {
-									second = fromTransport(b.data());
-									moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-								}
-								if (p.hasTickets(SECRET)) {
-									second = SECRET;
-									moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-								}
-							}
-							else if (p.hasTickets(SECRET) && !nodehasdetective(b.destination().value())) {
-								two = b.destination().value();
-								second = fromTransport(b.data());
-								moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-							}
-						}
-						if (p.hasTickets(SECRET)) {
-							first =SECRET;
-							for (Edge<Integer, Transport> b : g.getEdgesFrom(g.getNode(one))) {
-								if (p.hasTickets(fromTransport(b.data())) && !nodehasdetective(b.destination().value())) {
-									two = b.destination().value();
-									second = fromTransport(b.data());
-									moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-									if (p.hasTickets(SECRET,2)) {
-										second = SECRET;
-										moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-									}
-								}
-								else if (p.hasTickets(SECRET,2) && !nodehasdetective(b.destination().value())) {
-									two = b.destination().value();
-									second = SECRET;
-									moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-								}
-							}
-						}
-					}
-					else if (p.hasTickets(SECRET) && !nodehasdetective(a.destination().value())) {
-						one = a.destination().value();
-						first = SECRET;
-						for (Edge<Integer, Transport> b : g.getEdgesFrom(g.getNode(one))) {
-							if (p.hasTickets(fromTransport(b.data())) && !nodehasdetective(b.destination().value())) {
-								two = b.destination().value();
-								second = fromTransport(b.data());
-								moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-								if (p.hasTickets(SECRET, 2)) {
-									second = SECRET;
-									moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-								}
-							}
-							else if (p.hasTickets(SECRET, 2) && !nodehasdetective(b.destination().value())) {
-								two = b.destination().value();
-								second = SECRET;
-								moves.add(new DoubleMove(p.colour(), new TicketMove(p.colour(), first, one), new TicketMove(p.colour(), second, two)));
-							}
-						}
-					}
-				}
+		}
+	}
+
+	// Updates the free exits of Mr X after a detective moved between the given locations.
+	private void detectivemoved (int from, int to) {
+		for (int t = 0; t < freeexits.length; t++) {
+			freeexits[t] += exitsto[from * freeexits.length + t] - exitsto[to * freeexits.length + t];
+		}
+	}
+
+	// Checks if Mr X has no exit he can take, either because a detective is in the way or he lacks the ticket.
+	private boolean mrxblocked () {
+		ScotlandYardPlayer mrx = configurations.get(0);
+		boolean secret = mrx.hasTickets(SECRET);
+		for (Ticket t : Ticket.values()) {
+			if (freeexits[t.ordinal()] > 0 && (secret || mrx.hasTickets(t))) {
+				return false;
 			}
 		}
+		return true;
+	}
+
+	// Marks the start of a move on the calling thread, snapshots are not taken until it is fully applied.
+	private void applying () {
+		owner = Thread.currentThread();
+		applying = true;
+	}
+
+	// Marks a move as fully applied, the snapshot is only taken straight away once another thread has asked for one.
+	private void publish () {
+		applying = false;
+		stale = true;
+		if (shared) {
+			takesnapshot();
+		}
+	}
+
+	// Takes an immutable copy of the state, the volatile write makes it visible to all threads.
+	private void takesnapshot () {
+		snapshot = ViewSnapshot.of(this);
+		stale = false;
+	}
+
+	// Returns the state as of the last completed move, other threads can read it without locking while the game carries on.
+	// The thread applying moves takes the copy when it first asks after a move, so games nobody asks copy nothing. Other threads get the last copy taken and, once one of them has asked, a copy is taken after every move.
+	// A move is complete after its onMoveMade and onRoundStarted callbacks, so inside those callbacks this is at most the state before the move; it is current again in onRotationComplete and onGameOver.
+	public ScotlandYardView snapshot () {
+		if (Thread.currentThread() != owner) {
+			shared = true;
+		}
+		else if (stale && !applying) {
+			takesnapshot();
+		}
+		return snapshot;
+	}
+
+	// Zobrist hash of the current position with MrX at his actual location, locations and tickets are hashed incrementally so this is constant time.
+	public long hash () {
+		return positionhash ^ Zobrist.round(round) ^ Zobrist.toMove(getCurrentPlayer());
+	}
+
+	// Removes a ticket from the given player and updates the position hash.
+	private void spendticket (ScotlandYardPlayer p, Ticket t) {
+		int before = p.ticketCount(t);
+		p.removeTicket(t);
+		positionhash ^= Zobrist.ticketChange(p.colour(), t, before, before - 1);
+	}
+
+	// Gives a ticket to the given player and updates the position hash.
+	private void giveticket (ScotlandYardPlayer p, Ticket t) {
+		int before = p.ticketCount(t);
+		p.addTicket(t);
+		positionhash ^= Zobrist.ticketChange(p.colour(), t, before, before + 1);
+	}
+
+	// Sets where timings of the hot paths are recorded, the clock is never read while metrics are disabled.
+	public void setMetrics (GameMetrics metrics) {
+		this.metrics = requireNonNull(metrics);
+		this.timed = metrics.enabled();
+	}
+
+	// Start time of a measured operation, 0 if metrics are disabled.
+	private long starttimer () {
+		return timed ? System.nanoTime() : 0;
+	}
+
+	// Records the time taken since the given start time.
+	private void stoptimer (GameMetrics.Operation operation, long start) {
+		if (timed) {
+			metrics.record(operation, System.nanoTime() - start);
+		}
+	}
+
+	// Populates a list of moves with all legal moves of both types depending on the players tickets and position, the moves are shared instances from the move table.
+	public Set<Move> populatemoves (ScotlandYardPlayer p) {
+		buffer.clear();
+		populatemoves(p, buffer);
+		for (int i = 0; i < buffer.size(); i++) {
+			moves.add(table.move(buffer.get(i)));
+		}
 		return ImmutableSet.copyOf(moves);
 	}
 
+	// Writes the codes of all legal moves into the given buffer, same rules as populatemoves but without allocating a move per candidate.
+	public int populatemoves (ScotlandYardPlayer p, MoveBuffer buffer) {
+		return generator.generate(p.colour(), p.location(), ticketcounts(p), detectivenodes, round < rounds.size() - 1, buffer);
+	}
+
+	// Checks a single move against the graph, the players tickets and the detective locations without generating every legal move.
+	public boolean isvalidmove (ScotlandYardPlayer p, Move m) {
+		return generator.isLegal(MoveCodes.encode(m), p.colour(), p.location(), ticketcounts(p), detectivenodes, round < rounds.size() - 1);
+	}
+
+	// Ticket counts of the given player indexed by ticket ordinal, the player's own array which the generator only reads.
+	private static int[] ticketcounts (ScotlandYardPlayer p) {
+		return p.ticketCounts();
+	}
+
 	// Concrete Visitor for a ticketmove move type.
 	@Override
 	public void visit (TicketMove m) {
-		System.out.println("visit");
-		configurations.get(currentplayer).removeTicket(m.ticket());
+		long start = starttimer();
+		ScotlandYardPlayer p = configurations.get(currentplayer);
+		boolean wasstuck = p.isDetective() && isstuck(p);
+		spendticket(p, m.ticket());
+		positionhash ^= Zobrist.location(p.colour(), p.location()) ^ Zobrist.location(p.colour(), m.destination());
+		if (p.isDetective()) {
+			detectivenodes.clear(p.location());
+			detectivenodes.set(m.destination());
+			detectivemoved(p.location(), m.destination());
+			if (m.destination() == configurations.get(0).location()) {
+				captured = true;
+			}
+			if (!wasstuck && isstuck(p)) {
+				stuckdetectives++;
+			}
+		}
+		else {
+			mrxexits(p.location(), m.destination());
+			if (rounds.get(round)) {
+				mrxlastlocation = m.destination();
+			}
+		}
 		configurations.get(currentplayer).location(m.destination());
-		System.out.println("HERE");
 		if (configurations.get(currentplayer).isDetective()) {
-			configurations.get(0).addTicket(m.ticket());
+			giveticket(configurations.get(0), m.ticket());
 		}
-
+		stoptimer(MOVE_APPLICATION, start);
 	}
 
 	// Concrete Visitor for a Doublemove, notifies all spectators appropriately.
 	@Override
 	public void visit (DoubleMove m) {
-		System.out.println(m.firstMove().destination());
 		visit(m.firstMove());
 		round++;
 		rectifier2();
+		long dispatch = starttimer();
 		for (Spectator s : spectators) {
 			s.onRoundStarted(this, round);
 			if (getRounds().get(round - 1)) {
@@ -237,10 +350,12 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 				s.onMoveMade(this, new TicketMove(m.colour(), m.firstMove().ticket(), mrxlastlocation));
 			}
 		}
+		stoptimer(SPECTATOR_DISPATCH, dispatch);
 		rectifier1();
 		visit(m.secondMove());
 		round++;
 		rectifier2();
+		dispatch = starttimer();
 		for (Spectator s : spectators) {
 			s.onRoundStarted(this, round);
 			if (getRounds().get(round - 1)) {
@@ -253,14 +368,13 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 				s.onMoveMade(this, new TicketMove(m.colour(), m.secondMove().ticket(), mrxlastlocation));
 			}
 		}
+		stoptimer(SPECTATOR_DISPATCH, dispatch);
 		rectifier1();
 	}
 
 	// Concrete Visitor for a Passmove move type, does not need to do anything.
 	@Override
-	public void visit (PassMove m) {
-		System.out.println("Move passed!");
-	}
+	public void visit (PassMove m) {}
 
 	// Function to decrement the round number safely.
 	private void rectifier1 () {
@@ -293,83 +407,119 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 		}
 	}
 
-	// Logic to check if the game is over and to adjust appropriate class variables to reflect the current state.
+	// Logic to check if the game is over and to adjust appropriate class variables to reflect the current state, using the capture flag, stuck detective count and free exits kept up to date by visit.
 	public void checkGameOver(int i) {
-		Graph<Integer, Transport> g = getGraph();
-		if (configurations.get(0).location() == configurations.get(currentplayer % configurations.size()).location() && currentplayer != 0) {
+		long start = starttimer();
+		if (captured) {
 			mrxloss = true;
 			mrxwin = false;
 		}
-		int a = 0, b = 0, c = 0;
-		for(ScotlandYardPlayer p : configurations) {
-			if (p.isDetective()) {
-				if (!p.hasTickets(BUS) && !p.hasTickets(TAXI) && !p.hasTickets(UNDERGROUND)) {
-					c++;
+		if (stuckdetectives >= configurations.size() - 1) {
+			mrxwin = true;
+			mrxloss = false;
+		}
+		if ((i == 1) && currentplayer % configurations.size() == configurations.size() - 1 && mrxblocked()) {
+			mrxloss = true;
+			mrxwin = false;
+		}
+		if (currentplayer == configurations.size() - 1 && getCurrentRound() == rounds.size()) {
+			mrxloss = false;
+			mrxwin = true;
+		}
+		stoptimer(GAME_OVER_CHECK, start);
+	}
+
+	// Applies a move of the current player and hands over to the next player without notifying spectators, the move must be legal.
+	private void applymove (Move m) {
+		rectifier2();
+		if(m instanceof DoubleMove){
+			spendticket(configurations.get(0), DOUBLE);
+			rectifier1();
+			m.visit(this);
+			checkGameOver(1);
+			rectifier2();
+		}
+		else if(currentplayer == 1){
+			rectifier1();
+			m.visit(this);
+			checkGameOver(1);
+			rectifier2();
+			round++;
+		}
+		else{
+			rectifier1();
+			m.visit(this);
+			checkGameOver(1);
+			rectifier2();
+		}
+		rectifier1();
+		currentplayer = (currentplayer + 1) % configurations.size();
+	}
+
+	// Replays a recorded game from the current position, validating every move and notifying spectators once at the end.
+	public void replay (List<Move> log) {
+		replay(log, false, true);
+	}
+
+	// Replays a recorded game from the current position without asking players for moves. A trusted log skips the legality check of every move, spectators hear nothing while replaying and at most one onGameOver, or onRotationComplete if the log ends on a complete rotation, at the end.
+	// Moves are checked as they are applied, so if the log has an illegal move or a move after the game is over the moves before it stay applied and the model is left partly replayed.
+	public void replay (List<Move> log, boolean trusted, boolean notify) {
+		requireNonNull(log);
+		// the double move visitor reports both halves, spectators are set aside until the end
+		ArrayList<Spectator> listening = spectators;
+		spectators = new ArrayList<>();
+		applying();
+		try {
+			for (Move m : log) {
+				requireNonNull(m);
+				if (isGameOver()) {
+					throw new IllegalStateException("Game is already over");
 				}
-				if (c >= configurations.size() - 1) {
-					mrxwin = true;
-					mrxloss = false;
+				if (!trusted && !isvalidmove(configurations.get(currentplayer), m)) {
+					throw new IllegalArgumentException("Invalid move in log: " + m);
 				}
+				applymove(m);
 			}
 		}
-		if ((i == 1) && currentplayer % configurations.size() == configurations.size() - 1) {
-			for (Edge<Integer, Transport> e : g.getEdgesFrom(g.getNode(configurations.get(0).location()))) {
-				if (nodehasdetective(e.destination().value()) || (!(configurations.get(0).hasTickets(transportInEdge(e.data())) || (configurations.get(0).hasTickets(SECRET))))) {
-					a++;
-				}
-				b++;
+		finally {
+			spectators = listening;
+			moves.clear();
+			publish();
+		}
+		// an empty log moved nobody, so there is no rotation or game over to report
+		if (!notify || log.isEmpty()) {
+			return;
+		}
+		for (Spectator s : spectators) {
+			if (isGameOver()) {
+				s.onGameOver(this, getWinningPlayers());
 			}
-			if (a == b) {
-				mrxloss = true;
-				mrxwin = false;
+			else if (currentplayer == 0) {
+				s.onRotationComplete(this);
 			}
 		}
-		if (currentplayer == configurations.size() - 1 && getCurrentRound() == rounds.size()) {
-			mrxloss = false;
-			mrxwin = true;
-		}
 	}
 
 	// Accept method to facilitate the callback of the makemove command in the consumer pattern, also handles the notification of spectators appropriately in conjunction with the Doublemove visitor. Finally testing for a gameover state.
 	@Override
 	public void accept(Move m) {
 		requireNonNull(m);
-		boolean moveillegitimate = populatemoves(configurations.get(currentplayer % configurations.size())).contains(m);
-		if (!moveillegitimate) {
+		long validation = starttimer();
+		boolean valid = isvalidmove(configurations.get(currentplayer % configurations.size()), m);
+		stoptimer(VALIDATION, validation);
+		if (!valid) {
 			throw new IllegalArgumentException("Invalid move selected!");
 		}
+		applying();
 		moves.clear();
-		rectifier2();
-		System.out.println("---------------------------");
 		if(spectators.isEmpty()){
-			if(m instanceof DoubleMove){
-				configurations.get(0).removeTicket(DOUBLE);
-				rectifier1();
-				m.visit(this);
-				checkGameOver(1);
-				rectifier2();
-			}
-			else if(currentplayer == 1){
-				rectifier1();
-				m.visit(this);
-				checkGameOver(1);
-				rectifier2();
-				round++;
-			}
-			else{
-				rectifier1();
-				m.visit(this);
-				checkGameOver(1);
-				rectifier2();
-			}
+			applymove(m);
 		}
 		else{
-			System.out.println(currentplayer);
-			System.out.println(round);
-			System.out.println("---------------------------");
+			rectifier2();
 			if (m instanceof DoubleMove) {
-				System.out.println("CHOICE 1");
-				configurations.get(0).removeTicket(DOUBLE);
+				spendticket(configurations.get(0), DOUBLE);
+				long dispatch = starttimer();
 				for (Spectator s : spectators) {
 					if (getRounds().get(round) && getRounds().get(round + 1)) {
 						s.onMoveMade(this, m);
@@ -381,18 +531,19 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 						s.onMoveMade(this, new DoubleMove(m.colour(), new TicketMove(m.colour(), ((DoubleMove) m).firstMove().ticket(), mrxlastlocation), new TicketMove(m.colour(), ((DoubleMove) m).secondMove().ticket(), mrxlastlocation)));
 					}
 				}
+				stoptimer(SPECTATOR_DISPATCH, dispatch);
 				rectifier1();
 				m.visit(this);
 				checkGameOver(1);
 				rectifier2();
 			}
 			else if(currentplayer == 1){
-				System.out.println("CHOICE 2");
 				rectifier1();
 				m.visit(this);
 				checkGameOver(1);
 				rectifier2();
 				round++;
+				long dispatch = starttimer();
 				for (Spectator s : spectators) {
 					s.onRoundStarted(this, round);
 					if (getRounds().get(round - 1)) {
@@ -401,33 +552,39 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 						s.onMoveMade(this, new TicketMove(m.colour(), ((TicketMove) m).ticket(), mrxlastlocation));
 					}
 				}
+				stoptimer(SPECTATOR_DISPATCH, dispatch);
 			}
 			else {
-				System.out.println("CHOICE 3");
 				rectifier1();
 				m.visit(this);
 				checkGameOver(1);
 				rectifier2();
+				long dispatch = starttimer();
 				for (Spectator s : spectators) {
 					s.onMoveMade(this, m);
 				}
+				stoptimer(SPECTATOR_DISPATCH, dispatch);
 			}
+			rectifier1();
+			currentplayer = (currentplayer + 1) % configurations.size();
 		}
-		rectifier1();
-		currentplayer = (currentplayer + 1) % configurations.size();
-		System.out.println("---------END-----------");
+		publish();
 		if (isGameOver()) {
+			long dispatch = starttimer();
 			for (Spectator s :spectators) {
 				s.onGameOver(this, getWinningPlayers());
 			}
+			stoptimer(SPECTATOR_DISPATCH, dispatch);
 		}
 		else if (currentplayer != 0) {
 			startRotate();
 		}
 		else if (!isGameOver()) {
+			long dispatch = starttimer();
 			for (Spectator s : spectators) {
 				s.onRotationComplete(this);
 			}
+			stoptimer(SPECTATOR_DISPATCH, dispatch);
 		}
 	}
 
@@ -461,10 +618,13 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 		if(round == 0 && isGameOver()){
 			throw new IllegalStateException("Game is already over");
 		}
+		owner = Thread.currentThread();
 		ScotlandYardPlayer p = configurations.get(currentplayer % configurations.size());
+		long generation = starttimer();
 		populatemoves(p);
+		stoptimer(MOVE_GENERATION, generation);
 		if (moves.isEmpty() && p.isDetective()) {
-			moves.add(new PassMove(p.colour()));
+			moves.add(table.passMove(p.colour()));
 		}
 		if (moves.isEmpty() && p.isMrX()) {
 			mrxloss = true;
@@ -484,11 +644,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 	// Returns an immutable version of the list of all players by colour.
 	@Override
 	public List<Colour> getPlayers() {
-		List<Colour> newcolset = new ArrayList<>();
-		for (ScotlandYardPlayer p : configurations) {
-			newcolset.add(p.colour());
-		}
-		return Collections.unmodifiableList(newcolset);
+		return players;
 	}
 
 	// Returns an immutable set of all winning players.
@@ -508,51 +664,41 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 		return Collections.unmodifiableSet(winners);
 	}
 
-	// Returns the Optional location of the requested player, if MrX must be concealed, returns empty.
+	// Returns the Optional location of the requested player, for MrX the location he was last revealed at which visit keeps up to date, 0 before his first reveal.
 	@Override
 	public Optional<Integer> getPlayerLocation(Colour colour) {
-		requireNonNull(colour);
-		if (!colset.contains(colour)) {
+		ScotlandYardPlayer p = bycolour[colour.ordinal()];
+		if (p == null) {
 			return Optional.empty();
 		}
-		if (colour.equals(BLACK)) {
-			if(round == 0){
-				return Optional.of(mrxlastlocation);
-			}
-			else{
-				if(getCurrentRound() > rounds.size()) {
-					round = getCurrentRound() % rounds.size();
-				}
-				if(getRounds().get(getCurrentRound() - 1)) {
-					mrxlastlocation = configurations.get(0).location();
-					return Optional.of(configurations.get(0).location());
-				}
-				else{
-					return Optional.of(mrxlastlocation);
-				}
-			}
-		}
-		else {
-			for (ScotlandYardPlayer p : configurations) {
-				if (p.colour().equals(colour)) {
-					return Optional.of(p.location());
-				}
-			}
-		}
-		return Optional.empty();
+		return optional(p.isMrX() ? mrxlastlocation : p.location());
 	}
 
-	// Returns the Optional number of the specified type of ticket a specified player by colour has, unless 0 then returns empty.
+	// Returns the Optional number of the specified type of ticket a specified player by colour has, empty if the player is not in the game.
 	@Override
 	public Optional<Integer> getPlayerTickets(Colour colour, Ticket ticket) {
-		requireNonNull(colour);
 		requireNonNull(ticket);
-		for (ScotlandYardPlayer p : configurations) {
-			if (p.colour().equals(colour)) {
-				return Optional.of(p.tickets().get(ticket));
-			}
+		ScotlandYardPlayer p = bycolour[colour.ordinal()];
+		if (p == null) {
+			return Optional.empty();
+		}
+		return optional(p.ticketCount(ticket));
+	}
+
+	// Shared Optionals of small values so view queries on the standard map do not allocate.
+	private static final Optional<Integer>[] OPTIONALS = optionals(256);
+
+	@SuppressWarnings("unchecked")
+	private static Optional<Integer>[] optionals (int n) {
+		Optional<Integer>[] optionals = (Optional<Integer>[]) new Optional<?>[n];
+		for (int i = 0; i < n; i++) {
+			optionals[i] = Optional.of(i);
 		}
-		return Optional.empty();
+		return optionals;
+	}
+
+	private static Optional<Integer> optional (int value) {
+		return value >= 0 && value < OPTIONALS.length ? OPTIONALS[value] : Optional.of(value);
 	}
 
 	// Boolean flag to display if the game is over according to the class variables.
@@ -581,13 +727,13 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 	// Returns an immutable version of the Boolean rounds list that dictates whether MrX is revealed or not.
 	@Override
 	public List<Boolean> getRounds() {
-		return Collections.unmodifiableList(rounds);
+		return roundsview;
 	}
 
-	// Returns an immutable version of the game's graph of nodes and edges.
+	// Returns an immutable version of the game's graph of nodes and edges, the same instance for the whole game so it can be used as a cache key.
 	@Override
 	public Graph<Integer, Transport> getGraph() {
-		return new ImmutableGraph<Integer, Transport>(graph);
+		return immutablegraph;
 	}
 
 }
@@ -1,17 +1,31 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A class that contains all the information about a particular player.
+ *
+ * <br>
+ * Ticket counts are kept in an array indexed by {@link Ticket#ordinal()};
+ * {@link #tickets()} is a view of that array.
  */
 public class ScotlandYardPlayer {
 
+	private static final Ticket[] TICKETS = Ticket.values();
+
 	private final Player player;
 	private final Colour colour;
 	private int location;
-	private final Map<Ticket, Integer> tickets;
+	private final int[] counts = new int[TICKETS.length];
+	// bit t is set if the player was given a count for the ticket with ordinal t
+	private int present;
+	private final Map<Ticket, Integer> tickets = new TicketMap();
 
 	/**
 	 * Constructs a new ScotlandYardPlayer object.
@@ -26,7 +40,7 @@ public class ScotlandYardPlayer {
 		this.player = player;
 		this.colour = colour;
 		this.location = location;
-		this.tickets = new HashMap<>(tickets);
+		this.tickets.putAll(tickets);
 	}
 
 	/**
@@ -78,12 +92,27 @@ public class ScotlandYardPlayer {
 	}
 
 	/**
-	 * @return the player's current tickets.
+	 * @return the player's current tickets, a live view of the ticket counts
+	 *         that can also be modified.
 	 */
 	public Map<Ticket, Integer> tickets() {
 		return tickets;
 	}
 
+	/**
+	 * @param ticket the ticket; not null
+	 * @return the number of the given ticket the player holds, 0 if the player
+	 *         was never given a count for it.
+	 */
+	public int ticketCount(Ticket ticket) {
+		return counts[ticket.ordinal()];
+	}
+
+	// The ticket counts indexed by ordinal, shared with the player so callers must not modify it.
+	int[] ticketCounts() {
+		return counts;
+	}
+
 	/**
 	 * Adds a ticket to the player's current tickets.
 	 *
@@ -103,10 +132,9 @@ public class ScotlandYardPlayer {
 	}
 
 	private void adjustTicketCount(Ticket ticket, int by) {
-		Integer ticketCount = tickets.get(ticket);
-		ticketCount += by;
-		tickets.remove(ticket);
-		tickets.put(ticket, ticketCount);
+		int ordinal = ticket.ordinal();
+		if ((present & 1 << ordinal) == 0) throw new IllegalArgumentException("No count for " + ticket);
+		counts[ordinal] += by;
 	}
 
 	/**
@@ -116,7 +144,7 @@ public class ScotlandYardPlayer {
 	 * @return true if the player has the given ticket, false otherwise
 	 */
 	public boolean hasTickets(Ticket ticket) {
-		return tickets.get(ticket) != 0;
+		return counts[ticket.ordinal()] != 0;
 	}
 
 	/**
@@ -129,7 +157,7 @@ public class ScotlandYardPlayer {
 	 *         otherwise
 	 */
 	public boolean hasTickets(Ticket ticket, int quantityInclusive) {
-		return tickets.get(ticket) >= quantityInclusive;
+		return counts[ticket.ordinal()] >= quantityInclusive;
 	}
 
 	@Override
@@ -142,4 +170,89 @@ public class ScotlandYardPlayer {
 		sb.append('}');
 		return sb.toString();
 	}
+
+	/**
+	 * Map view of the ticket counts; a ticket is only a key once a count has
+	 * been put for it, like the map the player was created with.
+	 */
+	private final class TicketMap extends AbstractMap<Ticket, Integer> {
+
+		private final Set<Entry<Ticket, Integer>> entries = new AbstractSet<Entry<Ticket, Integer>>() {
+			@Override public Iterator<Entry<Ticket, Integer>> iterator() {
+				return new Iterator<Entry<Ticket, Integer>>() {
+					private int next = advance(0);
+					private int last = -1;
+
+					private int advance(int from) {
+						while (from < TICKETS.length && (present & 1 << from) == 0) from++;
+						return from;
+					}
+
+					@Override public boolean hasNext() {
+						return next < TICKETS.length;
+					}
+
+					@Override public Entry<Ticket, Integer> next() {
+						if (!hasNext()) throw new NoSuchElementException();
+						last = next;
+						next = advance(next + 1);
+						return new SimpleImmutableEntry<>(TICKETS[last], counts[last]);
+					}
+
+					@Override public void remove() {
+						if (last < 0) throw new IllegalStateException();
+						present &= ~(1 << last);
+						counts[last] = 0;
+						last = -1;
+					}
+				};
+			}
+
+			@Override public int size() {
+				return Integer.bitCount(present);
+			}
+		};
+
+		@Override public Set<Entry<Ticket, Integer>> entrySet() {
+			return entries;
+		}
+
+		@Override public int size() {
+			return Integer.bitCount(present);
+		}
+
+		@Override public boolean containsKey(Object key) {
+			return key instanceof Ticket && (present & 1 << ((Ticket) key).ordinal()) != 0;
+		}
+
+		@Override public Integer get(Object key) {
+			return containsKey(key) ? counts[((Ticket) key).ordinal()] : null;
+		}
+
+		// a null count is treated as no count so the player is rejected as having missing tickets
+		@Override public Integer put(Ticket key, Integer value) {
+			Integer previous = get(key);
+			int ordinal = key.ordinal();
+			if (value == null) {
+				present &= ~(1 << ordinal);
+				counts[ordinal] = 0;
+			}
+			else {
+				present |= 1 << ordinal;
+				counts[ordinal] = value;
+			}
+			return previous;
+		}
+
+		@Override public Integer remove(Object key) {
+			Integer previous = get(key);
+			if (previous != null) put((Ticket) key, null);
+			return previous;
+		}
+
+		@Override public void clear() {
+			present = 0;
+			Arrays.fill(counts, 0);
+		}
+	}
 }
@@ -5,6 +5,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -18,6 +23,7 @@ import java.util.Set;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 
 import static java.util.Arrays.asList;
@@ -151,6 +157,86 @@ public class StandardGame {
 		return ScotlandYardGraphReader.fromLines(readString("graph.txt"));
 	}
 
+	public static CsrGraph<Transport> standardCsrGraph() throws IOException {
+		return ScotlandYardGraphReader.csrFromLines(readString("graph.txt"));
+	}
+
+	/**
+	 * Loads the standard map from a bundle in the cache directory of the
+	 * current user, {@code $XDG_CACHE_HOME/scotlandyard} or
+	 * {@code ~/.cache/scotlandyard}, see {@link #standardBundle(Path)}. The
+	 * directory is created readable by its owner only where the file system
+	 * supports it, so other users cannot plant a bundle.
+	 *
+	 * @return the bundle of graph.txt and pos.txt; never null
+	 * @throws IOException if the resources cannot be read or the bundle cannot
+	 *         be written
+	 */
+	public static MapBundle standardBundle() throws IOException {
+		byte[] graph = readBytes("graph.txt");
+		byte[] positions = readBytes("pos.txt");
+		Path directory = cacheDirectory();
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(
+					PosixFilePermissions.fromString("rwx------")));
+		}
+		else {
+			Files.createDirectories(directory);
+		}
+		Path path = directory.resolve(String.format("map-%08x-%08x.bundle",
+				MapBundle.checksum(graph), MapBundle.checksum(positions)));
+		return standardBundle(path, graph, positions);
+	}
+
+	private static Path cacheDirectory() {
+		String cache = System.getenv("XDG_CACHE_HOME");
+		Path base = cache != null && !cache.isEmpty() ? Paths.get(cache)
+				: Paths.get(System.getProperty("user.home"), ".cache");
+		return base.resolve("scotlandyard");
+	}
+
+	/**
+	 * Loads the standard map from the given bundle file, compiling graph.txt
+	 * and pos.txt into it first if it is missing, corrupt or was compiled from
+	 * different files
+	 *
+	 * @param path the bundle file; not null
+	 * @return the bundle of graph.txt and pos.txt; never null
+	 * @throws IOException if the resources cannot be read or the bundle cannot
+	 *         be written
+	 */
+	public static MapBundle standardBundle(Path path) throws IOException {
+		return standardBundle(path, readBytes("graph.txt"), readBytes("pos.txt"));
+	}
+
+	private static MapBundle standardBundle(Path path, byte[] graph, byte[] positions)
+			throws IOException {
+		if (Files.isRegularFile(path)) {
+			try {
+				MapBundle bundle = MapBundle.map(path);
+				if (bundle.matches(graph, positions)) return bundle;
+			} catch (RuntimeException e) {
+				// corrupt, compile it again
+			}
+		}
+		MapBundle.write(path, graph, positions);
+		return MapBundle.map(path);
+	}
+
+	/**
+	 * @param bundle a bundle of pos.txt
+	 * @return the same as {@link #pngMapPositionEntries()} without reading
+	 *         pos.txt; never null
+	 */
+	public static Map<Integer, Entry<Integer, Integer>> pngMapPositionEntries(MapBundle bundle) {
+		Map<Integer, Entry<Integer, Integer>> map = new HashMap<>();
+		bundle.positions().forEach((node, position) -> map.put(node,
+				new SimpleImmutableEntry<>(
+						position.getKey() + MAP_OFFSET,
+						position.getValue() + MAP_OFFSET)));
+		return Collections.unmodifiableMap(map);
+	}
+
 	private static List<String> readString(String resource) throws IOException {
 		try (InputStream stream = StandardGame.class
 				.getClassLoader()
@@ -163,4 +249,13 @@ public class StandardGame {
 		}
 	}
 
+	private static byte[] readBytes(String resource) throws IOException {
+		try (InputStream stream = StandardGame.class
+				.getClassLoader()
+				.getResourceAsStream(resource)) {
+			if (stream == null) throw new IOException("Resource " + resource + " not found");
+			return stream.readAllBytes();
+		}
+	}
+
 }
@@ -10,6 +10,8 @@ public class TicketMove extends Move {
 	private static final long serialVersionUID = -8579140322766860934L;
 	private final Ticket ticket;
 	private final int destination;
+	// not serialised, recomputed by hashCode after reading
+	private transient int hash;
 
 	/**
 	 * Create a new ticket move with ticket and destination
@@ -22,6 +24,11 @@ public class TicketMove extends Move {
 		super(colour);
 		this.destination = destination;
 		this.ticket = ticket;
+		this.hash = hash(colour, ticket, destination);
+	}
+
+	private static int hash(Colour colour, Ticket ticket, int destination) {
+		return 31 * (31 * ordinal(colour) + ordinal(ticket)) + destination;
 	}
 
 	/**
@@ -47,14 +54,15 @@ public class TicketMove extends Move {
 	public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
 		TicketMove that = (TicketMove) o;
-		return destination == that.destination && ticket == that.ticket;
+		return hashCode() == that.hashCode() && destination == that.destination
+				&& ticket == that.ticket && colour() == that.colour();
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(super.hashCode(), ticket, destination);
+		if (hash == 0) hash = hash(colour(), ticket, destination);
+		return hash;
 	}
 
 	@Override
@@ -0,0 +1,131 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * An immutable copy of a {@link ScotlandYardView} taken at one point in time,
+ * safe to hand to other threads while the game carries on.
+ *
+ * <br>
+ * Only what the view exposes is copied, so Mr.X's location is his last
+ * revealed location. The graph is not copied as games never modify it.
+ */
+public final class ViewSnapshot implements ScotlandYardView {
+
+	private static final int TICKETS = Ticket.values().length;
+
+	private final ImmutableList<Colour> players;
+	// index into locations and tickets by colour ordinal, -1 if not playing
+	private final int[] indices = new int[Colour.values().length];
+	// -1 where the view has no location
+	private final int[] locations;
+	private final int[] tickets;
+	private final ImmutableSet<Colour> winning;
+	private final boolean gameOver;
+	private final Colour currentPlayer;
+	private final int currentRound;
+	private final ImmutableList<Boolean> rounds;
+	private final Graph<Integer, Transport> graph;
+
+	private ViewSnapshot(ScotlandYardView view) {
+		players = ImmutableList.copyOf(view.getPlayers());
+		locations = new int[players.size()];
+		tickets = new int[players.size() * TICKETS];
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < players.size(); i++) {
+			Colour colour = players.get(i);
+			indices[colour.ordinal()] = i;
+			locations[i] = view.getPlayerLocation(colour).orElse(-1);
+			for (Ticket ticket : Ticket.values()) {
+				tickets[i * TICKETS + ticket.ordinal()] =
+						view.getPlayerTickets(colour, ticket).orElse(0);
+			}
+		}
+		winning = ImmutableSet.copyOf(view.getWinningPlayers());
+		gameOver = view.isGameOver();
+		currentPlayer = view.getCurrentPlayer();
+		currentRound = view.getCurrentRound();
+		rounds = ImmutableList.copyOf(view.getRounds());
+		graph = view.getGraph();
+	}
+
+	/**
+	 * @param view the view to copy; not null
+	 * @return a snapshot of the view, the view itself if it already is one
+	 */
+	public static ViewSnapshot of(ScotlandYardView view) {
+		requireNonNull(view);
+		return view instanceof ViewSnapshot ? (ViewSnapshot) view : new ViewSnapshot(view);
+	}
+
+	private int index(Colour colour) {
+		return indices[requireNonNull(colour).ordinal()];
+	}
+
+	@Override
+	public List<Colour> getPlayers() {
+		return players;
+	}
+
+	@Override
+	public Set<Colour> getWinningPlayers() {
+		return winning;
+	}
+
+	@Override
+	public Optional<Integer> getPlayerLocation(Colour colour) {
+		int index = index(colour);
+		return index < 0 || locations[index] < 0 ? Optional.empty()
+				: Optional.of(locations[index]);
+	}
+
+	@Override
+	public Optional<Integer> getPlayerTickets(Colour colour, Ticket ticket) {
+		int index = index(colour);
+		return index < 0 ? Optional.empty()
+				: Optional.of(tickets[index * TICKETS + requireNonNull(ticket).ordinal()]);
+	}
+
+	@Override
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+	@Override
+	public Colour getCurrentPlayer() {
+		return currentPlayer;
+	}
+
+	@Override
+	public int getCurrentRound() {
+		return currentRound;
+	}
+
+	@Override
+	public List<Boolean> getRounds() {
+		return rounds;
+	}
+
+	@Override
+	public Graph<Integer, Transport> getGraph() {
+		return graph;
+	}
+
+	@Override
+	public String toString() {
+		return "ViewSnapshot{round=" + currentRound + ", current=" + currentPlayer
+				+ ", over=" + gameOver + ", players=" + players
+				+ ", locations=" + Arrays.toString(locations) + "}";
+	}
+
+}
@@ -0,0 +1,105 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * 64-bit Zobrist keys for game positions. The hash of a position is the XOR
+ * of the keys of its features: the location of each player, the number of
+ * tickets of each type each player holds, the round and the player to move.
+ * As XOR is its own inverse a hash can be updated incrementally by XOR-ing
+ * out the key of a feature's old value and XOR-ing in the key of its new
+ * value.
+ *
+ * <br>
+ * Keys are derived from the feature with the SplitMix64 finaliser instead of
+ * being drawn from a table, so any location or ticket count has a key and
+ * hashes are the same on every JVM.
+ */
+public final class Zobrist {
+
+	private static final long LOCATION = 1;
+	private static final long TICKETS = 2;
+	private static final long ROUND = 3;
+	private static final long TO_MOVE = 4;
+
+	private Zobrist() {}
+
+	// feature layout: kind in bits 0-2, colour in bits 3-5, ticket in bits 6-8, value from bit 9
+	private static long key(long kind, int colour, int ticket, int value) {
+		long z = kind | (long) colour << 3 | (long) ticket << 6 | (long) value << 9;
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param colour the player; not null
+	 * @param location the player's location
+	 * @return the key of the player being at the location
+	 */
+	public static long location(Colour colour, int location) {
+		return key(LOCATION, colour.ordinal(), 0, location);
+	}
+
+	/**
+	 * @param colour the player; not null
+	 * @param ticket the ticket; not null
+	 * @param count the number of tickets
+	 * @return the key of the player holding the given number of tickets, 0 if
+	 *         the count is 0 so holding none and not having the ticket at all
+	 *         hash the same
+	 */
+	public static long tickets(Colour colour, Ticket ticket, int count) {
+		return count == 0 ? 0 : key(TICKETS, colour.ordinal(), ticket.ordinal(), count);
+	}
+
+	/**
+	 * @param round the current round
+	 * @return the key of the round
+	 */
+	public static long round(int round) {
+		return key(ROUND, 0, 0, round);
+	}
+
+	/**
+	 * @param colour the player to move; not null
+	 * @return the key of the player to move
+	 */
+	public static long toMove(Colour colour) {
+		return key(TO_MOVE, colour.ordinal(), 0, 0);
+	}
+
+	/**
+	 * @param colour the player; not null
+	 * @param ticket the ticket; not null
+	 * @param before the number of tickets before the change
+	 * @param after the number of tickets after the change
+	 * @return the value to XOR into a hash when the ticket count changes
+	 */
+	public static long ticketChange(Colour colour, Ticket ticket, int before, int after) {
+		return tickets(colour, ticket, before) ^ tickets(colour, ticket, after);
+	}
+
+	/**
+	 * Computes the hash of what the given view shows; for Mr.X that is his
+	 * last revealed location. Games that know more, such as
+	 * {@link ScotlandYardModel#hash()} and {@link GameState#hash()}, hash Mr.X's
+	 * actual location instead.
+	 *
+	 * @param view the view; not null
+	 * @return the hash
+	 */
+	public static long of(ScotlandYardView view) {
+		requireNonNull(view);
+		long hash = round(view.getCurrentRound()) ^ toMove(view.getCurrentPlayer());
+		for (Colour colour : view.getPlayers()) {
+			hash ^= view.getPlayerLocation(colour).map(l -> location(colour, l)).orElse(0L);
+			for (Ticket ticket : Ticket.values()) {
+				hash ^= tickets(colour, ticket, view.getPlayerTickets(colour, ticket).orElse(0));
+			}
+		}
+		return hash;
+	}
+
+}
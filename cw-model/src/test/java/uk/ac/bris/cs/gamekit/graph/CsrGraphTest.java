@@ -0,0 +1,136 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Transport.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.Transport.FERRY;
+import static uk.ac.bris.cs.scotlandyard.model.Transport.TAXI;
+
+/**
+ * Tests {@link CsrGraph} against {@link UndirectedGraph} holding the same
+ * nodes and edges
+ */
+public class CsrGraphTest {
+
+	private static Graph<Integer, Transport> standard;
+	private static CsrGraph<Transport> csr;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		standard = StandardGame.standardGraph();
+		csr = StandardGame.standardCsrGraph();
+	}
+
+	@Test
+	public void testSameNodesAndEdgesAsStandardGraph() {
+		assertThat(csr.size()).isEqualTo(standard.size());
+		assertThat(csr.getNodes()).isEqualTo(standard.getNodes());
+		assertThat(csr.getEdges()).hasSameSizeAs(standard.getEdges())
+				.containsExactlyInAnyOrderElementsOf(standard.getEdges());
+		for (Node<Integer> node : standard.getNodes()) {
+			assertThat(csr.getEdgesFrom(node)).containsExactlyElementsOf(standard.getEdgesFrom(node));
+			List<Edge<Integer, Transport>> to = new ArrayList<>();
+			for (Edge<Integer, Transport> edge : standard.getEdges()) {
+				if (edge.destination().equals(node)) to.add(edge);
+			}
+			assertThat(csr.getEdgesTo(node)).containsExactlyInAnyOrderElementsOf(to);
+		}
+	}
+
+	@Test
+	public void testPrimitiveIterationMatchesEdges() {
+		for (int i = 0; i < csr.size(); i++) {
+			Node<Integer> node = csr.getNode(csr.value(i));
+			assertThat(csr.index(node.value())).isEqualTo(i);
+			List<Edge<Integer, Transport>> edges = new ArrayList<>();
+			for (int e = csr.edgeStart(i); e < csr.edgeEnd(i); e++) {
+				edges.add(new Edge<>(node, new Node<>(csr.value(csr.target(e))), csr.data(e)));
+				assertThat(csr.dataOrdinal(e)).isEqualTo(csr.data(e).ordinal());
+			}
+			assertThat(edges).hasSize(csr.degree(i)).isEqualTo(csr.getEdgesFrom(node));
+		}
+		assertThat(csr.edgeCount()).isEqualTo(standard.getEdges().size());
+	}
+
+	@Test
+	public void testLookupsDoNotAllocate() {
+		Node<Integer> node = csr.getNode(1);
+		assertThat(csr.getNode(1)).isSameAs(node);
+		assertThat(csr.getEdgesFrom(node)).isSameAs(csr.getEdgesFrom(new Node<>(1)));
+		assertThat(csr.getNode(0)).isNull();
+		assertThat(csr.getNode(-1)).isNull();
+		assertThat(csr.getNode(10_000)).isNull();
+		assertThat(csr.index(0)).isEqualTo(-1);
+		assertThat(csr.getEdgesFrom(new Node<>(10_000))).isEmpty();
+	}
+
+	@Test
+	public void testBuilderKeepsInsertionOrder() {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		CsrGraph.Builder<Transport> builder = new CsrGraph.Builder<>(Transport.class);
+		for (int value : new int[] { 5, 1, 3 }) {
+			graph.addNode(new Node<>(value));
+			builder.addNode(value);
+		}
+		int[][] edges = { { 5, 1 }, { 3, 5 }, { 1, 3 }, { 1, 5 } };
+		Transport[] data = { TAXI, BUS, FERRY, BUS };
+		for (int i = 0; i < edges.length; i++) {
+			graph.addEdge(new Edge<>(new Node<>(edges[i][0]), new Node<>(edges[i][1]), data[i]));
+			builder.addEdge(edges[i][0], edges[i][1], data[i]);
+		}
+		CsrGraph<Transport> built = builder.build();
+		assertThat(built.getNodes()).isEqualTo(graph.getNodes());
+		for (Node<Integer> node : graph.getNodes()) {
+			assertThat(built.getEdgesFrom(node)).isEqualTo(graph.getEdgesFrom(node));
+		}
+		assertThat(CsrGraph.copyOf(Transport.class, graph).getEdgesFrom(new Node<>(1)))
+				.isEqualTo(graph.getEdgesFrom(new Node<>(1)));
+		assertThat(CsrGraph.copyOf(Transport.class, built)).isSameAs(built);
+	}
+
+	@Test
+	public void testCopyOfStandardGraph() {
+		CsrGraph<Transport> copy = CsrGraph.copyOf(Transport.class, standard);
+		assertThat(copy.getNodes()).isEqualTo(csr.getNodes());
+		assertThat(copy.getEdges()).isEqualTo(csr.getEdges());
+	}
+
+	@Test
+	public void testImmutable() {
+		assertThatThrownBy(() -> csr.addNode(new Node<>(500)))
+				.isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> csr.addEdge(new Edge<>(new Node<>(1), new Node<>(2), TAXI)))
+				.isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> csr.getEdgesFrom(new Node<>(1)).clear())
+				.isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	public void testInvalidInputThrows() {
+		CsrGraph.Builder<Transport> builder = new CsrGraph.Builder<>(Transport.class).addNode(1);
+		assertThatThrownBy(() -> builder.addNode(1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> builder.addNode(-1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> builder.addEdge(1, 2, TAXI))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CsrGraph.of(Transport.class, new int[] { 1, 2 },
+				new int[] { 0, 1, 1 }, new int[] { 2 }, new byte[] { 0 }))
+						.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CsrGraph.of(Transport.class, new int[] { 1, 2 },
+				new int[] { 0, 1 }, new int[] { 1 }, new byte[] { 0 }))
+						.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CsrGraph.of(Transport.class, new int[] { 1, 2 },
+				new int[] { 0, 1, 1 }, new int[] { 1 }, new byte[] { 9 }))
+						.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,233 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle.Progress;
+import uk.ac.bris.cs.scotlandyard.model.MapGenerator;
+
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.gamekit.graph.DistanceOracle.UNREACHABLE;
+
+/**
+ * Tests {@link DistanceOracle} against Floyd-Warshall on the standard map
+ */
+public class DistanceOracleTest {
+
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+	}
+
+	// distances by node value, over edges with the given transports only
+	private static int[][] floydWarshall(Graph<Integer, Transport> graph, Set<Transport> data) {
+		int size = 0;
+		for (Node<Integer> node : graph.getNodes()) size = Math.max(size, node.value() + 1);
+		int[][] dist = new int[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) dist[i][j] = i == j ? 0 : INFINITY;
+		}
+		for (Edge<Integer, Transport> edge : graph.getEdges()) {
+			if (data.contains(edge.data())) dist[edge.source().value()][edge.destination().value()] = 1;
+		}
+		for (int k = 0; k < size; k++) {
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					if (dist[i][k] + dist[k][j] < dist[i][j]) dist[i][j] = dist[i][k] + dist[k][j];
+				}
+			}
+		}
+		return dist;
+	}
+
+	private static void assertDistances(DistanceOracle oracle, int[][] expected) {
+		for (Node<Integer> from : graph.getNodes()) {
+			for (Node<Integer> to : graph.getNodes()) {
+				int distance = expected[from.value()][to.value()];
+				assertThat(oracle.distance(from.value(), to.value()))
+						.as("%s to %s", from, to)
+						.isEqualTo(distance == INFINITY ? UNREACHABLE : distance);
+			}
+		}
+	}
+
+	@Test
+	public void testStandardMapMatchesFloydWarshall() {
+		DistanceOracle oracle = DistanceOracle.forGraph(graph);
+		assertDistances(oracle, floydWarshall(graph, EnumSet.allOf(Transport.class)));
+		assertThat(oracle.size()).isEqualTo(199);
+		assertThat(oracle.bytesPerDistance()).isEqualTo(1);
+		assertThat(oracle.maxDistance()).isPositive().isLessThan(20);
+	}
+
+	@Test
+	public void testTransportVariantsMatchFloydWarshall() {
+		for (Transport transport : Transport.values()) {
+			Set<Transport> data = EnumSet.of(transport);
+			assertDistances(DistanceOracle.forGraph(graph, data), floydWarshall(graph, data));
+		}
+		Set<Transport> data = EnumSet.of(Transport.BUS, Transport.UNDERGROUND);
+		assertDistances(DistanceOracle.of(graph, data::contains), floydWarshall(graph, data));
+	}
+
+	@Test
+	public void testOraclesAreSharedPerGraphInstance() {
+		assertThat(DistanceOracle.forGraph(graph)).isSameAs(DistanceOracle.forGraph(graph));
+		assertThat(DistanceOracle.forGraph(graph, EnumSet.of(Transport.BUS)))
+				.isSameAs(DistanceOracle.forGraph(graph, Set.of(Transport.BUS)))
+				.isNotSameAs(DistanceOracle.forGraph(graph, EnumSet.of(Transport.TAXI)));
+		Graph<Integer, Transport> copy = new ImmutableGraph<>(new UndirectedGraph<>(graph));
+		assertThat(DistanceOracle.forGraph(copy)).isNotSameAs(DistanceOracle.forGraph(graph));
+	}
+
+	@Test
+	public void testUnknownAndDisconnectedNodes() {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		for (int value : List.of(1, 2, 3, 10)) graph.addNode(new Node<>(value));
+		graph.addEdge(new Edge<>(new Node<>(1), new Node<>(2), Transport.TAXI));
+		graph.addEdge(new Edge<>(new Node<>(2), new Node<>(3), Transport.BUS));
+		DistanceOracle oracle = DistanceOracle.of(graph);
+		assertThat(oracle.distance(1, 3)).isEqualTo(2);
+		assertThat(oracle.distance(3, 1)).isEqualTo(2);
+		assertThat(oracle.distance(10, 10)).isZero();
+		assertThat(oracle.distance(1, 10)).isEqualTo(UNREACHABLE);
+		assertThat(oracle.distance(1, 4)).isEqualTo(UNREACHABLE);
+		assertThat(oracle.distance(-1, 1)).isEqualTo(UNREACHABLE);
+		assertThat(oracle.distance(1, 1000)).isEqualTo(UNREACHABLE);
+		assertThat(DistanceOracle.forGraph(graph, Set.of(Transport.TAXI)).distance(1, 3))
+				.isEqualTo(UNREACHABLE);
+	}
+
+	@Test
+	public void testLongPathsUseShorts() {
+		UndirectedGraph<Integer, Transport> path = new UndirectedGraph<>();
+		for (int value = 0; value < 300; value++) {
+			path.addNode(new Node<>(value));
+			if (value > 0) path.addEdge(new Edge<>(new Node<>(value - 1), new Node<>(value),
+					Transport.TAXI));
+		}
+		DistanceOracle oracle = DistanceOracle.of(path);
+		assertThat(oracle.bytesPerDistance()).isEqualTo(2);
+		assertThat(oracle.maxDistance()).isEqualTo(299);
+		assertThat(oracle.distance(0, 299)).isEqualTo(299);
+		assertThat(oracle.distance(250, 5)).isEqualTo(245);
+	}
+
+	@Test
+	public void testParallelMatchesSequentialOnGeneratedMap() {
+		CsrGraph<Transport> map = MapGenerator.generate(3000, 11).graph();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (Predicate<Transport> filter : List.<Predicate<Transport>>of(
+					data -> true, Transport.BUS::equals)) {
+				DistanceOracle sequential = DistanceOracle.of(map, filter);
+				DistanceOracle parallel = DistanceOracle.of(map, filter, pool, Progress.NONE);
+				assertThat(parallel.maxDistance()).isEqualTo(sequential.maxDistance());
+				assertThat(parallel.bytesPerDistance()).isEqualTo(sequential.bytesPerDistance());
+				assertThat(parallel.table()).isEqualTo(sequential.table());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelLongPathsUseShorts() {
+		UndirectedGraph<Integer, Transport> path = new UndirectedGraph<>();
+		for (int value = 0; value < 400; value++) {
+			path.addNode(new Node<>(value));
+			if (value > 0) path.addEdge(new Edge<>(new Node<>(value - 1), new Node<>(value),
+					Transport.TAXI));
+		}
+		DistanceOracle oracle = DistanceOracle.of(path, data -> true, ForkJoinPool.commonPool(),
+				Progress.NONE);
+		assertThat(oracle.bytesPerDistance()).isEqualTo(2);
+		assertThat(oracle.maxDistance()).isEqualTo(399);
+		assertThat(oracle.table()).isEqualTo(DistanceOracle.of(path).table());
+	}
+
+	@Test
+	public void testProgressIsOrderedAndReachesTotal() {
+		CsrGraph<Transport> map = MapGenerator.generate(1000, 2).graph();
+		List<Integer> updates = Collections.synchronizedList(new ArrayList<>());
+		DistanceOracle.of(map, data -> true, ForkJoinPool.commonPool(), (sources, total) -> {
+			assertThat(total).isEqualTo(1000);
+			updates.add(sources);
+			return true;
+		});
+		assertThat(updates).isSorted().doesNotHaveDuplicates();
+		assertThat(updates.get(updates.size() - 1)).isEqualTo(1000);
+	}
+
+	@Test
+	public void testProgressCanCancel() {
+		CsrGraph<Transport> map = MapGenerator.generate(1000, 2).graph();
+		AtomicInteger last = new AtomicInteger();
+		assertThatThrownBy(() -> DistanceOracle.of(map, data -> true, ForkJoinPool.commonPool(),
+				(sources, total) -> {
+					last.set(sources);
+					return sources < 100;
+				})).isInstanceOf(CancellationException.class);
+		assertThat(last.get()).isGreaterThanOrEqualTo(100).isLessThan(1000);
+	}
+
+	// interrupts the caller on the first progress report and checks the search stops soon after
+	private static void assertInterruptStops(ForkJoinPool pool) {
+		CsrGraph<Transport> map = MapGenerator.generate(2000, 3).graph();
+		Thread caller = Thread.currentThread();
+		AtomicInteger last = new AtomicInteger();
+		try {
+			assertThatThrownBy(() -> DistanceOracle.of(map, data -> true, pool,
+					(sources, total) -> {
+						last.set(sources);
+						caller.interrupt();
+						return true;
+					})).isInstanceOf(CancellationException.class).hasMessage("Interrupted");
+			assertThat(caller.isInterrupted()).isTrue();
+		} finally {
+			Thread.interrupted();
+		}
+		// every worker finishes at most the chunk it was searching
+		assertThat(last.get()).isLessThan(200);
+	}
+
+	@Test
+	public void testInterruptStopsWorkers() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			assertInterruptStops(pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testInterruptStopsSingleWorker() {
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			assertInterruptStops(pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import uk.ac.bris.cs.scotlandyard.model.MapGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.gamekit.graph.DistanceOracle.UNREACHABLE;
+
+/**
+ * Tests {@link DynamicDistances} against recomputing the distances after
+ * every closed or reopened edge
+ */
+public class DynamicDistancesTest {
+
+	private static void assertSameDistances(DynamicDistances<?> dynamic, DistanceOracle expected,
+			Graph<Integer, ?> graph) {
+		for (Node<Integer> from : graph.getNodes()) {
+			for (Node<Integer> to : graph.getNodes()) {
+				assertThat(dynamic.distance(from.value(), to.value()))
+						.as("%s to %s", from, to)
+						.isEqualTo(expected.distance(from.value(), to.value()));
+			}
+		}
+	}
+
+	private static void closeAndReopen(int nodes, long seed, Predicate<Transport> filter) {
+		UndirectedGraph<Integer, Transport> graph =
+				new UndirectedGraph<>(MapGenerator.generate(nodes, seed).graph());
+		DynamicDistances<Transport> dynamic = DynamicDistances.of(graph, filter);
+		Random random = new Random(seed);
+		List<Edge<Integer, Transport>> closed = new ArrayList<>();
+		for (int step = 0; step < 60; step++) {
+			if (closed.isEmpty() || random.nextInt(3) > 0) {
+				List<Edge<Integer, Transport>> edges = new ArrayList<>(graph.getEdges());
+				Edge<Integer, Transport> edge = edges.get(random.nextInt(edges.size()));
+				assertThat(dynamic.removeEdge(edge)).isTrue();
+				closed.add(edge);
+			}
+			else {
+				dynamic.restoreEdge(closed.remove(random.nextInt(closed.size())));
+			}
+			assertSameDistances(dynamic, DistanceOracle.of(graph, filter), graph);
+		}
+		while (!closed.isEmpty()) dynamic.restoreEdge(closed.remove(closed.size() - 1));
+		assertSameDistances(dynamic, DistanceOracle.of(graph, filter), graph);
+	}
+
+	@Test
+	public void testRandomClosuresMatchRecomputing() {
+		closeAndReopen(150, 1, data -> true);
+	}
+
+	@Test
+	public void testRandomClosuresOfOneTransportMatchRecomputing() {
+		closeAndReopen(150, 2, Transport.TAXI::equals);
+		closeAndReopen(150, 3, Transport.BUS::equals);
+	}
+
+	@Test
+	public void testClosingABridgeDisconnectsAndReopeningReconnects() {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		for (int value = 1; value <= 5; value++) graph.addNode(new Node<>(value));
+		Edge<Integer, Transport> bridge = new Edge<>(new Node<>(3), new Node<>(4), Transport.TAXI);
+		graph.addEdge(new Edge<>(new Node<>(1), new Node<>(2), Transport.TAXI));
+		graph.addEdge(new Edge<>(new Node<>(2), new Node<>(3), Transport.TAXI));
+		graph.addEdge(bridge);
+		graph.addEdge(new Edge<>(new Node<>(4), new Node<>(5), Transport.TAXI));
+		DynamicDistances<Transport> dynamic = DynamicDistances.of(graph);
+		assertThat(dynamic.distance(1, 5)).isEqualTo(4);
+
+		assertThat(dynamic.removeEdge(bridge)).isTrue();
+		assertThat(dynamic.distance(1, 5)).isEqualTo(UNREACHABLE);
+		assertThat(dynamic.distance(4, 5)).isEqualTo(1);
+		assertThat(dynamic.removeEdge(bridge)).isFalse();
+
+		dynamic.restoreEdge(bridge);
+		assertThat(dynamic.distance(5, 1)).isEqualTo(4);
+		assertThat(dynamic.snapshot().distance(1, 5)).isEqualTo(4);
+		assertThat(dynamic.snapshot().maxDistance()).isEqualTo(4);
+	}
+
+	@Test
+	public void testParallelAndIgnoredEdgesKeepDistances() {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		for (int value = 1; value <= 3; value++) graph.addNode(new Node<>(value));
+		Edge<Integer, Transport> taxi = new Edge<>(new Node<>(1), new Node<>(2), Transport.TAXI);
+		Edge<Integer, Transport> bus = new Edge<>(new Node<>(1), new Node<>(2), Transport.BUS);
+		Edge<Integer, Transport> ferry = new Edge<>(new Node<>(1), new Node<>(3), Transport.FERRY);
+		graph.addEdge(taxi);
+		graph.addEdge(bus);
+		graph.addEdge(ferry);
+		graph.addEdge(new Edge<>(new Node<>(2), new Node<>(3), Transport.TAXI));
+		DynamicDistances<Transport> dynamic = DynamicDistances.of(graph,
+				data -> data != Transport.FERRY);
+		assertThat(dynamic.distance(1, 3)).isEqualTo(2);
+
+		dynamic.removeEdge(taxi);
+		assertThat(dynamic.distance(1, 2)).isEqualTo(1);
+		dynamic.removeEdge(ferry);
+		assertThat(dynamic.distance(1, 3)).isEqualTo(2);
+		dynamic.removeEdge(bus);
+		assertThat(dynamic.distance(1, 2)).isEqualTo(UNREACHABLE);
+		dynamic.restoreEdge(taxi);
+		assertThat(dynamic.distance(1, 3)).isEqualTo(2);
+		assertThat(graph.getEdges()).hasSize(4);
+	}
+
+}
@@ -0,0 +1,155 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the dense node index of {@link UndirectedGraph} and the cached hash
+ * codes of {@link Node} and {@link Edge}
+ */
+public class UndirectedGraphTest {
+
+	@Test
+	public void testNodeIndexIsPositionInNodes() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		List<Node<Integer>> nodes = graph.getNodes();
+		for (int i = 0; i < nodes.size(); i++) {
+			assertThat(graph.nodeIndex(nodes.get(i).value())).isEqualTo(i);
+		}
+		assertThat(graph.nodeIndex(0)).isEqualTo(-1);
+		assertThat(graph.nodeIndex(-5)).isEqualTo(-1);
+		assertThat(graph.nodeIndex(1 << 20)).isEqualTo(-1);
+		CsrGraph<Transport> csr = CsrGraph.copyOf(Transport.class, graph);
+		for (int i = 0; i < nodes.size(); i++) {
+			assertThat(csr.nodeIndex(nodes.get(i).value())).isEqualTo(i);
+		}
+	}
+
+	@Test
+	public void testIndexTraversalMatchesEdges() throws IOException {
+		UndirectedGraph<Integer, Transport> graph =
+				new UndirectedGraph<>(StandardGame.standardGraph());
+		for (int i = 0; i < graph.size(); i++) {
+			Node<Integer> node = graph.nodeAt(i);
+			assertThat(graph.edgesFrom(i)).isSameAs(graph.getEdgesFrom(node));
+			List<Node<Integer>> destinations = new ArrayList<>();
+			for (int k = 0; k < graph.degree(i); k++) {
+				destinations.add(graph.nodeAt(graph.neighbourIndex(i, k)));
+			}
+			List<Node<Integer>> expected = new ArrayList<>();
+			graph.getEdgesFrom(node).forEach(edge -> expected.add(edge.destination()));
+			assertThat(destinations).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	public void testValuesOutsideTheSmallRange() {
+		UndirectedGraph<Integer, String> graph = new UndirectedGraph<>();
+		for (int value : new int[] { -3, 7, 1 << 20, 0 }) graph.addNode(new Node<>(value));
+		graph.addEdge(new Edge<>(new Node<>(-3), new Node<>(1 << 20), "a"));
+		assertThat(graph.nodeIndex(-3)).isZero();
+		assertThat(graph.nodeIndex(1 << 20)).isEqualTo(2);
+		assertThat(graph.nodeIndex(0)).isEqualTo(3);
+		assertThat(graph.getNode(7)).isEqualTo(new Node<>(7));
+		assertThat(graph.neighbourIndex(0, 0)).isEqualTo(2);
+		assertThat(graph.neighbourIndex(2, 0)).isZero();
+		assertThat(graph.getEdgesFrom(new Node<>(42))).isEmpty();
+
+		UndirectedGraph<String, String> named = new UndirectedGraph<>();
+		named.addNode(new Node<>("b"));
+		named.addNode(new Node<>("a"));
+		assertThat(named.nodeIndex("a")).isEqualTo(1);
+		assertThat(named.nodeIndex("c")).isEqualTo(-1);
+		assertThat(new ImmutableGraph<>(named).nodeIndex("a")).isEqualTo(1);
+	}
+
+	@Test
+	public void testNodesAreAViewWithoutCopies() {
+		UndirectedGraph<Integer, String> graph = new UndirectedGraph<>();
+		graph.addNode(new Node<>(1));
+		List<Node<Integer>> nodes = graph.getNodes();
+		assertThat(graph.getNodes()).isSameAs(nodes);
+		graph.addNode(new Node<>(2));
+		assertThat(nodes).containsExactly(new Node<>(1), new Node<>(2));
+		assertThat(graph.getEdges()).isSameAs(graph.getEdges());
+	}
+
+	@Test
+	public void testHashCodesAreUnchanged() {
+		Node<Integer> a = new Node<>(1);
+		Node<Integer> b = new Node<>(2);
+		assertThat(a.hashCode()).isEqualTo(Objects.hash(1)).isEqualTo(a.hashCode());
+		Edge<Integer, String> edge = new Edge<>(a, b, "x");
+		assertThat(edge.hashCode()).isEqualTo(Objects.hash(a, b, "x"));
+		assertThat(new Edge<>(a, b, null).hashCode()).isEqualTo(Objects.hash(a, b, null));
+		assertThat(edge).isEqualTo(new Edge<>(new Node<>(1), new Node<>(2), "x"))
+				.isNotEqualTo(edge.swap());
+	}
+
+	@Test
+	public void testSerialisedGraphIsEqual() throws IOException, ClassNotFoundException {
+		UndirectedGraph<Integer, Transport> graph =
+				new UndirectedGraph<>(StandardGame.standardGraph());
+		graph.getNodes().forEach(Node::hashCode);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(graph);
+		}
+		Object read;
+		try (ObjectInputStream in =
+				new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			read = in.readObject();
+		}
+		assertThat(read).isEqualTo(graph);
+		assertThat(read.hashCode()).isEqualTo(graph.hashCode());
+		@SuppressWarnings("unchecked")
+		UndirectedGraph<Integer, Transport> copy = (UndirectedGraph<Integer, Transport>) read;
+		assertThat(copy.nodeIndex(199)).isEqualTo(graph.nodeIndex(199));
+	}
+
+	@Test
+	public void testRemoveEdgeRemovesBothDirectionsAndKeepsOrder() {
+		UndirectedGraph<Integer, String> graph = new UndirectedGraph<>();
+		for (int value = 1; value <= 4; value++) graph.addNode(new Node<>(value));
+		Edge<Integer, String> closed = new Edge<>(new Node<>(1), new Node<>(3), "bus");
+		graph.addEdge(new Edge<>(new Node<>(1), new Node<>(2), "taxi"));
+		graph.addEdge(closed);
+		graph.addEdge(new Edge<>(new Node<>(1), new Node<>(4), "taxi"));
+		graph.addEdge(new Edge<>(new Node<>(1), new Node<>(3), "taxi"));
+
+		assertThat(graph.removeEdge(closed.swap())).isTrue();
+		assertThat(graph.getEdges()).hasSize(6).doesNotContain(closed, closed.swap());
+		int one = graph.nodeIndex(1);
+		assertThat(graph.degree(one)).isEqualTo(3);
+		List<Integer> neighbours = new ArrayList<>();
+		for (int e = 0; e < graph.degree(one); e++)
+			neighbours.add(graph.nodeAt(graph.neighbourIndex(one, e)).value());
+		assertThat(neighbours).containsExactly(2, 4, 3);
+		assertThat(graph.getEdgesFrom(new Node<>(3))).hasSize(1);
+		assertThat(graph.removeEdge(closed)).isFalse();
+
+		graph.addEdge(closed);
+		assertThat(graph.getEdgesFrom(new Node<>(1))).hasSize(4).contains(closed);
+		assertThat(graph.getEdgesFrom(new Node<>(3))).contains(closed.swap());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testImmutableGraphCannotRemoveEdges() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		graph.removeEdge(graph.getEdges().iterator().next());
+	}
+
+}
@@ -0,0 +1,91 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.bris.cs.scotlandyard.model.Player;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests that {@link Simulation} plays complete games and reports on them
+ */
+public class SimulationTest {
+
+	private static PlayerFactory random(int seed) {
+		Random random = new Random(seed);
+		return colour -> (view, location, moves, callback) ->
+				callback.accept(new ArrayList<>(moves).get(random.nextInt(moves.size())));
+	}
+
+	@Test
+	public void testPlaysAllGames() throws Exception {
+		AtomicInteger factories = new AtomicInteger();
+		SimulationReport report = new Simulation.Builder(
+				() -> random(factories.incrementAndGet()),
+				() -> random(factories.incrementAndGet()))
+				.games(40).threads(4).build().run();
+		assertThat(factories).hasValue(80);
+		assertThat(report.games()).isEqualTo(40);
+		assertThat(report.failures()).isZero();
+		assertThat(report.firstFailure()).isEmpty();
+		assertThat(report.mrXWins() + report.detectiveWins()).isEqualTo(40);
+		assertThat(report.mrXWinRate() + report.detectiveWinRate()).isCloseTo(1.0, within(1e-9));
+		assertThat(report.moves()).isGreaterThanOrEqualTo(40 * 6);
+		assertThat(report.latencyPercentile(50))
+				.isLessThanOrEqualTo(report.latencyPercentile(99))
+				.isLessThanOrEqualTo(report.latencyPercentile(100));
+		assertThat(report.gamesPerSecond()).isPositive();
+		assertThat(report.toString()).contains("games: 40");
+	}
+
+	@Test
+	public void testPlayersMayAnswerOnAnotherThread() throws Exception {
+		PlayerFactory async = colour -> (view, location, moves, callback) ->
+				CompletableFuture.runAsync(() -> callback.accept(moves.iterator().next()));
+		SimulationReport report = new Simulation.Builder(() -> async, () -> async)
+				.games(8).detectives(2).build().run();
+		assertThat(report.failures()).isZero();
+		assertThat(report.mrXWins() + report.detectiveWins()).isEqualTo(8);
+	}
+
+	@Test
+	public void testSilentPlayersTimeOut() throws Exception {
+		Player silent = (view, location, moves, callback) -> {};
+		SimulationReport report = new Simulation.Builder(() -> random(0), () -> colour -> silent)
+				.games(3).detectives(1).moveTimeout(Duration.ofMillis(50)).build().run();
+		assertThat(report.failures()).isEqualTo(3);
+		assertThat(report.mrXWins() + report.detectiveWins()).isZero();
+		assertThat(report.firstFailure().get()).isInstanceOf(TimeoutException.class);
+	}
+
+	@Test
+	public void testFailingPlayersAreReported() throws Exception {
+		Player failing = (view, location, moves, callback) -> {
+			throw new IllegalStateException("broken AI");
+		};
+		SimulationReport report = new Simulation.Builder(() -> random(0), () -> colour -> failing)
+				.games(2).detectives(2).build().run();
+		assertThat(report.failures()).isEqualTo(2);
+		assertThat(report.firstFailure().get()).hasMessage("broken AI");
+	}
+
+	@Test
+	public void testRejectsInvalidConfiguration() {
+		Simulation.Builder builder = new Simulation.Builder(() -> random(0), () -> random(1));
+		assertThatThrownBy(() -> builder.detectives(0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> builder.detectives(6)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> builder.threads(0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> builder.moveTimeout(Duration.ZERO))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,109 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardPlayer;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+
+/**
+ * Legal moves found by walking the edges of the graph and creating a move
+ * per candidate, the way the model did before it used
+ * {@link uk.ac.bris.cs.scotlandyard.model.MoveGenerator}. Tests use it as an
+ * independent reference for the generator. Pass moves are not included.
+ *
+ * This is an internal class designed only for use with the test harness. This class is not
+ * stable and may change anytime without notice.
+ */
+public class ReferenceMoves {
+
+	// tickets usable on an edge by transport ordinal, built once so the walk does not allocate per edge
+	private static final Ticket[][] DETECTIVE_TICKETS = new Ticket[Transport.values().length][];
+	private static final Ticket[][] MRX_TICKETS = new Ticket[Transport.values().length][];
+
+	static {
+		for (Transport transport : Transport.values()) {
+			Ticket ticket = Ticket.fromTransport(transport);
+			DETECTIVE_TICKETS[transport.ordinal()] = new Ticket[]{ticket};
+			MRX_TICKETS[transport.ordinal()] = ticket == SECRET ? new Ticket[]{SECRET}
+					: new Ticket[]{ticket, SECRET};
+		}
+	}
+
+	private ReferenceMoves(){}
+
+	/**
+	 * @param view the game; not null
+	 * @param player the player to move; not null
+	 * @return all legal ticket and double moves; never null
+	 */
+	public static Set<Move> legalMoves(ScotlandYardView view, ScotlandYardPlayer player) {
+		return legalMoves(view, player.colour(), player.location(), player.tickets());
+	}
+
+	/**
+	 * @param view the game; not null
+	 * @param colour the colour of the player to move; not null
+	 * @param location the actual location of the player
+	 * @param tickets the tickets of the player; not null
+	 * @return all legal ticket and double moves; never null
+	 */
+	public static Set<Move> legalMoves(ScotlandYardView view, Colour colour, int location,
+			Map<Ticket, Integer> tickets) {
+		Graph<Integer, Transport> g = view.getGraph();
+		Set<Integer> detectives = new HashSet<>();
+		for (Colour other : view.getPlayers()) {
+			if (other.isDetective()) detectives.add(view.getPlayerLocation(other).orElseThrow());
+		}
+		Set<Move> moves = new HashSet<>();
+		for (Edge<Integer, Transport> a : g.getEdgesFrom(g.getNode(location))) {
+			int one = a.destination().value();
+			if (detectives.contains(one)) continue;
+			for (Ticket first : tickets(colour, a.data())) {
+				if (has(tickets, first, 1)) moves.add(new TicketMove(colour, first, one));
+			}
+		}
+		if (colour.isMrX() && has(tickets, DOUBLE, 1)
+				&& view.getCurrentRound() < view.getRounds().size() - 1) {
+			for (Edge<Integer, Transport> a : g.getEdgesFrom(g.getNode(location))) {
+				int one = a.destination().value();
+				if (detectives.contains(one)) continue;
+				for (Ticket first : tickets(colour, a.data())) {
+					if (!has(tickets, first, 1)) continue;
+					for (Edge<Integer, Transport> b : g.getEdgesFrom(g.getNode(one))) {
+						int two = b.destination().value();
+						if (detectives.contains(two)) continue;
+						for (Ticket second : tickets(colour, b.data())) {
+							if (has(tickets, second, first == second ? 2 : 1)) {
+								moves.add(new DoubleMove(colour, first, one, second, two));
+							}
+						}
+					}
+				}
+			}
+		}
+		return moves;
+	}
+
+	// Mr.X may use a secret ticket on any edge
+	private static Ticket[] tickets(Colour colour, Transport transport) {
+		return (colour.isMrX() ? MRX_TICKETS : DETECTIVE_TICKETS)[transport.ordinal()];
+	}
+
+	private static boolean has(Map<Ticket, Integer> tickets, Ticket ticket, int count) {
+		return tickets.getOrDefault(ticket, 0) >= count;
+	}
+
+}
@@ -2,8 +2,25 @@ package uk.ac.bris.cs.scotlandyard.auxiliary;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
 
 import static java.util.Arrays.*;
@@ -28,6 +45,114 @@ public class ScotlandYardGraphReaderTest {
 				.isEqualByComparingTo(Transport.FERRY);
 	}
 
+	@Test
+	public void testValidFileAsCsrGraph() {
+		CsrGraph<Transport> graph = csrFromLines(asList("3 1", "1", "2", "3", "1 2 Ferry"));
+		assertThat(graph.getNodes())
+				.isEqualTo(fromLines(asList("3 1", "1", "2", "3", "1 2 Ferry")).getNodes());
+		assertThat(graph.getEdges()).hasSize(2);
+		assertThat(graph.degree(graph.index(1))).isEqualTo(1);
+		assertThat(graph.value(graph.target(graph.edgeStart(graph.index(1))))).isEqualTo(2);
+		assertThat(graph.data(graph.edgeStart(graph.index(2))))
+				.isEqualByComparingTo(Transport.FERRY);
+		assertThat(graph.degree(graph.index(3))).isZero();
+	}
+
+	@Test
+	public void testBadInputAsCsrGraphShouldThrow() {
+		assertThatThrownBy(() -> csrFromLines(emptyList()));
+		assertThatThrownBy(() -> csrFromLines(asList("2 1", "1", "1", "1 2 Taxi")));
+		assertThatThrownBy(() -> csrFromLines(asList("2 1", "1", "2", "1 3 Taxi")));
+	}
+
+	// a channel that returns at most one byte per read, so every token crosses a refill
+	private static ReadableByteChannel trickle(String text) {
+		ReadableByteChannel channel = channel(text);
+		return new ReadableByteChannel() {
+			@Override public int read(ByteBuffer dst) throws IOException {
+				if (!dst.hasRemaining()) return 0;
+				ByteBuffer one = ByteBuffer.allocate(1);
+				int read = channel.read(one);
+				one.flip();
+				dst.put(one);
+				return read;
+			}
+
+			@Override public boolean isOpen() {
+				return channel.isOpen();
+			}
+
+			@Override public void close() throws IOException {
+				channel.close();
+			}
+		};
+	}
+
+	private static ReadableByteChannel channel(String text) {
+		return Channels.newChannel(
+				new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static List<String> edges(Graph<Integer, Transport> graph) {
+		List<String> edges = new ArrayList<>();
+		for (Node<Integer> node : graph.getNodes()) {
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node))
+				edges.add(node.value() + " " + edge.destination().value() + " " + edge.data());
+		}
+		return edges;
+	}
+
+	@Test
+	public void testStandardMapFromChannelIsSameAsFromLines() throws IOException {
+		Graph<Integer, Transport> expected = StandardGame.standardGraph();
+		try (InputStream stream = getClass().getClassLoader().getResourceAsStream("graph.txt")) {
+			CsrGraph<Transport> graph = csrFromChannel(Channels.newChannel(stream));
+			assertThat(graph.getNodes()).isEqualTo(expected.getNodes());
+			assertThat(edges(graph)).isEqualTo(edges(expected));
+		}
+	}
+
+	@Test
+	public void testChannelWithAnyLineBreakAndBufferBoundary() throws IOException {
+		String text = "3 2\r\n1\r2\n3 \n1 2 ferry\r\n2 3 TAXI";
+		List<String> expected = edges(fromLines(asList("3 2", "1", "2", "3", "1 2 Ferry",
+				"2 3 Taxi")));
+		assertThat(edges(csrFromChannel(channel(text)))).isEqualTo(expected);
+		assertThat(edges(csrFromChannel(trickle(text)))).isEqualTo(expected);
+		assertThat(edges(fromChannel(trickle(text)))).isEqualTo(expected);
+	}
+
+	@Test
+	public void testPathIsSameAsChannel() throws IOException {
+		Path path = Files.createTempFile("graph", ".txt");
+		try {
+			Files.write(path, asList("3 1", "1", "2", "3", "1 2 Bus"));
+			assertThat(edges(csrFromPath(path))).containsExactly("1 2 BUS", "2 1 BUS");
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void testBadChannelReportsLineNumber() {
+		assertThatThrownBy(() -> csrFromChannel(channel("")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> csrFromChannel(channel("3 5\n1\n2\n3\n1 2 Ferry\n")))
+				.hasMessageContaining("Line count");
+		assertThatThrownBy(() -> csrFromChannel(channel("2 1\n1\nx\n1 2 Taxi\n")))
+				.hasMessageContaining("at line 2").hasMessageContaining("\tx");
+		assertThatThrownBy(() -> csrFromChannel(channel("2 1\n1\n\n1 2 Taxi\n")))
+				.hasMessageContaining("non-empty line at line 2");
+		assertThatThrownBy(() -> csrFromChannel(channel("2 1\n1\n2\n1 2 Boat\n")))
+				.hasMessageContaining("at line 3").hasMessageContaining("1 2 Boat");
+		assertThatThrownBy(() -> csrFromChannel(channel("2 1\n1\n2\n1 3 Taxi\n")))
+				.hasMessageContaining("destination node").hasMessageContaining("at line 3");
+		assertThatThrownBy(() -> csrFromChannel(channel("2 1\n1\n2\n1  2 Taxi\n")))
+				.hasMessageContaining("on line 3");
+		assertThatThrownBy(() -> csrFromChannel(channel("1 0\n99999999999\n")))
+				.hasMessageContaining("Expected integer at line 1");
+	}
+
 	@Test
 	public void testEmptyInputShouldThrow() {
 		assertThatThrownBy(() -> fromLines(emptyList()));
@@ -0,0 +1,62 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal timing helpers shared by the benchmarks in this package. The
+ * benchmarks are plain {@code main} classes so they are not picked up by
+ * surefire, run them with
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) &lt;class&gt;
+ * </pre>
+ */
+final class Benchmarks {
+
+	private static final long WARMUP_NANOS = 2_000_000_000L;
+	private static final long MEASURE_NANOS = 3_000_000_000L;
+
+	private Benchmarks() {}
+
+	/**
+	 * Repeatedly runs the given operation, first to warm up and then while
+	 * timing it
+	 *
+	 * @param operation the operation, returns the units of work it performed
+	 * @return units of work per second
+	 */
+	static double throughput(LongSupplier operation) {
+		return throughput(operation, 100);
+	}
+
+	/**
+	 * Like {@link #throughput(LongSupplier)} for slow operations, checking
+	 * the time after every {@code batch} runs instead of every 100
+	 *
+	 * @param operation the operation, returns the units of work it performed
+	 * @param batch the number of runs between checks of the time
+	 * @return units of work per second
+	 */
+	static double throughput(LongSupplier operation, int batch) {
+		run(operation, WARMUP_NANOS, batch);
+		long start = System.nanoTime();
+		long units = run(operation, MEASURE_NANOS, batch);
+		return units / ((System.nanoTime() - start) / 1e9);
+	}
+
+	private static long run(LongSupplier operation, long nanos, int batch) {
+		long units = 0;
+		long deadline = System.nanoTime() + nanos;
+		while (System.nanoTime() < deadline) {
+			for (int i = 0; i < batch; i++) units += operation.getAsLong();
+		}
+		return units;
+	}
+
+	static void report(String name, double perSecond, String unit) {
+		System.out.println(String.format(Locale.ENGLISH, "%-40s %,16.0f %s/s", name, perSecond,
+				unit));
+	}
+
+}
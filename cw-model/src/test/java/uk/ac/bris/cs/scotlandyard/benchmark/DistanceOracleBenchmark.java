@@ -0,0 +1,51 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle;
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Compares the 200 x 200 Floyd-Warshall table the AI used to rebuild on every
+ * move with building a {@link DistanceOracle} from scratch, and with the
+ * shared oracle that is only looked up after the first move
+ */
+public final class DistanceOracleBenchmark {
+
+	// the table of the AI before it used the oracle
+	private static int floydWarshall(Graph<Integer, Transport> graph) {
+		int size = 200;
+		int[][] dist = new int[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) dist[i][j] = i == j ? 0 : 999999;
+		}
+		for (Edge<Integer, Transport> edge : graph.getEdges()) {
+			dist[edge.source().value()][edge.destination().value()] = 1;
+			dist[edge.destination().value()][edge.source().value()] = 1;
+		}
+		for (int k = 0; k < size; k++) {
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					if (dist[i][k] + dist[k][j] < dist[i][j]) dist[i][j] = dist[i][k] + dist[k][j];
+				}
+			}
+		}
+		return dist[1][199];
+	}
+
+	public static void main(String[] args) throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		double floyd = Benchmarks.throughput(() -> floydWarshall(graph) > 0 ? 1 : 0);
+		Benchmarks.report("Floyd-Warshall per move", floyd, "tables");
+		double bfs = Benchmarks.throughput(() -> DistanceOracle.of(graph).maxDistance() > 0 ? 1 : 0);
+		Benchmarks.report("DistanceOracle.of, BFS per node", bfs, "tables");
+		System.out.printf("speedup: %.1fx%n", bfs / floyd);
+		double shared = Benchmarks.throughput(
+				() -> DistanceOracle.forGraph(graph).distance(1, 199) > 0 ? 1 : 0);
+		Benchmarks.report("DistanceOracle.forGraph and one lookup", shared, "moves");
+	}
+
+}
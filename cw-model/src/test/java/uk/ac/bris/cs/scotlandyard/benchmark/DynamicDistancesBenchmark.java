@@ -0,0 +1,49 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle;
+import uk.ac.bris.cs.gamekit.graph.DynamicDistances;
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.model.MapGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Closes and reopens random edges of a map from {@link MapGenerator} with
+ * {@link DynamicDistances}, against computing a new {@link DistanceOracle}
+ * after every change. The argument is the map size, 2000 by default.
+ */
+public final class DynamicDistancesBenchmark {
+
+	public static void main(String[] args) {
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		UndirectedGraph<Integer, Transport> graph =
+				new UndirectedGraph<>(MapGenerator.generate(nodes, nodes).graph());
+		List<Edge<Integer, Transport>> edges = new ArrayList<>(graph.getEdges());
+		Random random = new Random(nodes);
+		System.out.printf("%,d nodes, %,d edges%n", nodes, edges.size() / 2);
+
+		Benchmarks.report("DistanceOracle.of", Benchmarks.throughput(
+				() -> DistanceOracle.of(graph) != null ? 1 : 0, 1), "tables");
+
+		DynamicDistances<Transport> all = DynamicDistances.of(graph);
+		Benchmarks.report("close and reopen, all transports", Benchmarks.throughput(() -> {
+			Edge<Integer, Transport> edge = edges.get(random.nextInt(edges.size()));
+			all.removeEdge(edge);
+			all.restoreEdge(edge);
+			return 1;
+		}, 10), "closures");
+
+		DynamicDistances<Transport> taxi = DynamicDistances.of(graph, Transport.TAXI::equals);
+		Benchmarks.report("close and reopen, taxi", Benchmarks.throughput(() -> {
+			Edge<Integer, Transport> edge = edges.get(random.nextInt(edges.size()));
+			taxi.removeEdge(edge);
+			taxi.restoreEdge(edge);
+			return 1;
+		}, 10), "closures");
+	}
+
+}
@@ -0,0 +1,47 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.MapGenerator;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader;
+
+/**
+ * Compares reading a large map from {@link MapGenerator} with
+ * {@link ScotlandYardGraphReader#fromLines} after reading all of its lines
+ * with streaming it through {@link ScotlandYardGraphReader#csrFromPath}
+ */
+public final class GraphReaderBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		Path path = Files.createTempFile("scotlandyard-generated", ".txt");
+		try {
+			MapGenerator.generate(nodes, 0).writeGraph(path);
+			double lines = Benchmarks.throughput(() -> {
+				try {
+					List<String> all = Files.readAllLines(path);
+					return ScotlandYardGraphReader.fromLines(all).size() > 0 ? 1 : 0;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, 1);
+			Benchmarks.report("readAllLines and fromLines", lines, "maps");
+			double stream = Benchmarks.throughput(() -> {
+				try {
+					return ScotlandYardGraphReader.csrFromPath(path).size() > 0 ? 1 : 0;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, 1);
+			Benchmarks.report("csrFromPath", stream, "maps");
+			System.out.printf("speedup: %.1fx%n", stream / lines);
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.MapBundle;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Compares setting up the standard map from the text files, parsing and
+ * computing the distance tables, with mapping a precompiled {@link MapBundle}
+ */
+public final class MapBundleBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		Path path = Files.createTempFile("scotlandyard-benchmark", ".bundle");
+		try {
+			StandardGame.standardBundle(path);
+			double text = Benchmarks.throughput(() -> {
+				try {
+					Graph<Integer, Transport> graph = StandardGame.standardCsrGraph();
+					StandardGame.pngMapPositionEntries();
+					int max = DistanceOracle.forGraph(graph).maxDistance();
+					for (Transport transport : Transport.values())
+						max += DistanceOracle.forGraph(graph, EnumSet.of(transport)).maxDistance();
+					return max > 0 ? 1 : 0;
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			Benchmarks.report("text files and distance tables", text, "setups");
+			double mapped = Benchmarks.throughput(() -> {
+				try {
+					MapBundle bundle = MapBundle.map(path);
+					int max = DistanceOracle.forGraph(bundle.graph()).maxDistance();
+					for (Transport transport : Transport.values()) max += DistanceOracle
+							.forGraph(bundle.graph(), EnumSet.of(transport)).maxDistance();
+					return max + bundle.positions().size() > 0 ? 1 : 0;
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			Benchmarks.report("mapped bundle", mapped, "setups");
+			System.out.printf("speedup: %.1fx%n", mapped / text);
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.auxiliary.ReferenceMoves;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.MoveBuffer;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardPlayer;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.dummyPlayer;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.MRX_LOCATIONS;
+
+/**
+ * Compares the edge walk populatemoves used to make, see
+ * {@link ReferenceMoves}, with the {@code Set<Move>} path of
+ * {@link ScotlandYardModel#populatemoves(ScotlandYardPlayer)} and the buffer
+ * path of {@link ScotlandYardModel#populatemoves(ScotlandYardPlayer, MoveBuffer)}
+ * for Mr.X at every standard starting location on {@code graph.txt}.<br>
+ * Both populatemoves paths use {@link uk.ac.bris.cs.scotlandyard.model.MoveGenerator};
+ * the speedup is that of the buffer path over the edge walk.
+ */
+public final class MoveGenerationBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		List<ScotlandYardModel> models = new ArrayList<>();
+		List<ScotlandYardPlayer> players = new ArrayList<>();
+		for (int i = 0; i < MRX_LOCATIONS.size(); i++) {
+			int location = MRX_LOCATIONS.get(i);
+			List<PlayerConfiguration> detectives = new ArrayList<>();
+			Colour[] colours = Colour.values();
+			for (int d = 1; d < colours.length; d++) {
+				detectives.add(new Builder(colours[d]).using(dummyPlayer())
+						.with(StandardGame.generateDetectiveTickets())
+						.at(DETECTIVE_LOCATIONS.get((i + d) % DETECTIVE_LOCATIONS.size()))
+						.build());
+			}
+			models.add(new ScotlandYardModel(StandardGame.ROUNDS, graph,
+					new Builder(BLACK).using(dummyPlayer())
+							.with(StandardGame.generateMrXTickets()).at(location).build(),
+					detectives.get(0),
+					detectives.subList(1, detectives.size()).toArray(new PlayerConfiguration[0])));
+			players.add(new ScotlandYardPlayer(dummyPlayer(), BLACK, location,
+					StandardGame.generateMrXTickets()));
+		}
+
+		double before = Benchmarks.throughput(() -> {
+			long moves = 0;
+			for (int i = 0; i < models.size(); i++) {
+				moves += ReferenceMoves.legalMoves(models.get(i), players.get(i)).size();
+			}
+			return moves;
+		});
+		Benchmarks.report("edge walk -> Set<Move>", before, "moves");
+
+		Benchmarks.report("populatemoves -> Set<Move>", Benchmarks.throughput(() -> {
+			long moves = 0;
+			for (int i = 0; i < models.size(); i++) {
+				moves += models.get(i).populatemoves(players.get(i)).size();
+			}
+			return moves;
+		}), "moves");
+
+		MoveBuffer buffer = new MoveBuffer();
+		double after = Benchmarks.throughput(() -> {
+			long moves = 0;
+			for (int i = 0; i < models.size(); i++) {
+				buffer.clear();
+				moves += models.get(i).populatemoves(players.get(i), buffer);
+			}
+			return moves;
+		});
+		Benchmarks.report("populatemoves -> MoveBuffer", after, "moves");
+		System.out.printf("speedup: %.1fx%n", after / before);
+	}
+
+}
@@ -0,0 +1,71 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.NeighbourSets;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Expands sets of 30 possible Mr.X locations by one BUS move, walking the
+ * {@link Edge}s of every location into a {@code Set<Integer>} and with
+ * {@link NeighbourSets}
+ */
+public final class NeighbourSetsBenchmark {
+
+	private static final int SETS = 64;
+	private static final int CANDIDATES = 30;
+
+	public static void main(String[] args) throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		NeighbourSets sets = NeighbourSets.forGraph(graph);
+		Random random = new Random(1);
+		List<List<Integer>> candidates = new ArrayList<>();
+		List<long[]> bits = new ArrayList<>();
+		for (int i = 0; i < SETS; i++) {
+			Set<Integer> from = new HashSet<>();
+			while (from.size() < CANDIDATES) from.add(1 + random.nextInt(graph.size()));
+			candidates.add(new ArrayList<>(from));
+			long[] set = sets.newSet();
+			for (int node : from) NeighbourSets.add(set, node);
+			bits.add(set);
+		}
+
+		double edges = Benchmarks.throughput(() -> {
+			long reached = 0;
+			for (List<Integer> from : candidates) {
+				Set<Integer> into = new HashSet<>();
+				for (int node : from) {
+					for (Edge<Integer, Transport> edge : graph.getEdgesFrom(graph.getNode(node))) {
+						if (edge.data() == Transport.BUS) into.add(edge.destination().value());
+					}
+				}
+				reached += into.size();
+			}
+			return reached > 0 ? SETS : 0;
+		});
+		Benchmarks.report("getEdgesFrom -> Set<Integer>", edges, "expansions");
+		long[] into = sets.newSet();
+		double bitsets = Benchmarks.throughput(() -> {
+			long reached = 0;
+			for (long[] from : bits) {
+				Arrays.fill(into, 0);
+				sets.expand(from, Ticket.BUS, into);
+				reached += NeighbourSets.count(into);
+			}
+			return reached > 0 ? SETS : 0;
+		});
+		Benchmarks.report("NeighbourSets.expand", bitsets, "expansions");
+		System.out.printf("speedup: %.1fx%n", bitsets / edges);
+	}
+
+}
@@ -0,0 +1,32 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle;
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle.Progress;
+import uk.ac.bris.cs.scotlandyard.model.MapGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Compares computing the distance table of a generated map one source at a
+ * time with the parallel search on the common pool, 10000 nodes by default
+ */
+public final class ParallelDistanceBenchmark {
+
+	public static void main(String[] args) {
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		CsrGraph<Transport> graph = MapGenerator.generate(nodes, 0).graph();
+		long pairs = (long) nodes * nodes;
+		double sequential = Benchmarks.throughput(
+				() -> DistanceOracle.of(graph).size() > 0 ? pairs : 0, 1);
+		Benchmarks.report("DistanceOracle.of, sequential", sequential, "pairs");
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		double parallel = Benchmarks.throughput(() -> DistanceOracle
+				.of(graph, data -> true, pool, Progress.NONE).size() > 0 ? pairs : 0, 1);
+		Benchmarks.report("DistanceOracle.of, " + pool.getParallelism() + " workers", parallel,
+				"pairs");
+		System.out.printf("speedup: %.1fx%n", parallel / sequential);
+	}
+
+}
@@ -0,0 +1,96 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.MRX_LOCATIONS;
+
+/**
+ * Restores the end of a recorded game by driving the players through
+ * {@link ScotlandYardModel#startRotate()}, by a validated
+ * {@link ScotlandYardModel#replay(List)} and by a trusted replay without
+ * notifications. Every run includes creating the model, which is also
+ * reported on its own.
+ */
+public final class ReplayBenchmark {
+
+	private static ScotlandYardModel game(Graph<Integer, Transport> graph, Player player) {
+		Colour[] colours = Colour.values();
+		List<PlayerConfiguration> detectives = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			detectives.add(new Builder(colours[i + 1]).using(player)
+					.with(StandardGame.generateDetectiveTickets())
+					.at(DETECTIVE_LOCATIONS.get(i)).build());
+		}
+		return new ScotlandYardModel(StandardGame.ROUNDS, graph,
+				new Builder(Colour.BLACK).using(player)
+						.with(StandardGame.generateMrXTickets()).at(MRX_LOCATIONS.get(0)).build(),
+				detectives.get(0), detectives.subList(1, 5).toArray(new PlayerConfiguration[0]));
+	}
+
+	private static Player replaying(List<Move> log, int[] next) {
+		return (view, location, moves, callback) -> callback.accept(log.get(next[0]++));
+	}
+
+	public static void main(String[] args) throws IOException {
+		// shared so that every model finds its move generator in the cache
+		Graph<Integer, Transport> graph = new ImmutableGraph<>(StandardGame.standardGraph());
+		// the longest of a few random games
+		List<Move> log = new ArrayList<>();
+		for (int seed = 0; seed < 50; seed++) {
+			Random random = new Random(seed);
+			List<Move> moves = new ArrayList<>();
+			ScotlandYardModel game = game(graph, (view, location, valid, callback) -> {
+				Move move = new ArrayList<>(valid).get(random.nextInt(valid.size()));
+				moves.add(move);
+				callback.accept(move);
+			});
+			while (!game.isGameOver()) game.startRotate();
+			if (moves.size() > log.size()) log = moves;
+		}
+		List<Move> recorded = log;
+		System.out.println("replaying " + recorded.size() + " moves");
+
+		report("create only", player -> game(graph, player));
+		int[] next = new int[1];
+		report("players through startRotate", player -> {
+			next[0] = 0;
+			ScotlandYardModel game = game(graph, replaying(recorded, next));
+			while (!game.isGameOver()) game.startRotate();
+			return game;
+		});
+		report("replay, validated", player -> {
+			ScotlandYardModel game = game(graph, player);
+			game.replay(recorded);
+			return game;
+		});
+		report("replay, trusted and quiet", player -> {
+			ScotlandYardModel game = game(graph, player);
+			game.replay(recorded, true, false);
+			return game;
+		});
+	}
+
+	private static void report(String name, Function<Player, ScotlandYardModel> restore) {
+		Player none = (view, location, moves, callback) -> {};
+		double games = Benchmarks.throughput(() -> restore.apply(none) != null ? 1 : 0);
+		Benchmarks.report(name, games, "games");
+		System.out.printf("%40s %16.2f us/game%n", "", 1e6 / games);
+	}
+
+}
@@ -0,0 +1,124 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameState;
+import uk.ac.bris.cs.scotlandyard.model.MapGenerator;
+import uk.ac.bris.cs.scotlandyard.model.MoveBuffer;
+import uk.ac.bris.cs.scotlandyard.model.MoveGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Perft;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Runs graph loading, move generation, distance tables and whole games on
+ * maps from {@link MapGenerator} of growing size. Rates are per node, per
+ * generated move, per node pair and per game, so a rate that drops as the
+ * map grows points at a super-linear hot spot.
+ *
+ * <br>
+ * Arguments are the map sizes, 1000, 10000 and 100000 by default. Distance
+ * tables above {@value #MAX_TABLE_NODES} nodes are skipped, they need
+ * hundreds of megabytes.
+ */
+public final class ScalingBenchmark {
+
+	private static final int MAX_TABLE_NODES = 10_000;
+	private static final int POSITIONS = 1000;
+
+	private static long load(Path path) {
+		try {
+			return ScotlandYardGraphReader.csrFromPath(path).size();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Mr.X with standard tickets at random locations on the map
+	private static long moves(MoveGenerator generator, int[] locations, MoveBuffer buffer) {
+		int[] tickets = new int[Ticket.values().length];
+		StandardGame.generateMrXTickets().forEach((ticket, count) ->
+				tickets[ticket.ordinal()] = count);
+		BitSet occupied = new BitSet();
+		long moves = 0;
+		for (int location : locations) {
+			buffer.clear();
+			moves += generator.generate(Colour.BLACK, location, tickets, occupied, true, buffer);
+		}
+		return moves;
+	}
+
+	// sets up a game with five detectives and plays random legal moves to the end
+	private static long game(CsrGraph<Transport> graph, Random random, MoveBuffer buffer) {
+		List<Integer> locations = new ArrayList<>();
+		while (locations.size() < 6) {
+			int location = graph.value(random.nextInt(graph.size()));
+			if (!locations.contains(location)) locations.add(location);
+		}
+		GameState state = Perft.start(graph, locations.get(0), locations.subList(1, 6));
+		while (!state.isGameOver()) {
+			buffer.clear();
+			int count = state.legalMoves(buffer);
+			state.apply(buffer.get(random.nextInt(count)));
+		}
+		return 1;
+	}
+
+	private static void run(int nodes) throws IOException {
+		System.out.printf("%n%,d nodes%n", nodes);
+		MapGenerator map = MapGenerator.generate(nodes, nodes);
+		Path path = Files.createTempFile("scotlandyard-scaling", ".txt");
+		try {
+			map.writeGraph(path);
+			int batch = Math.max(1, 100_000 / nodes);
+			Benchmarks.report("load, csrFromPath", Benchmarks.throughput(() -> load(path), batch),
+					"nodes");
+		} finally {
+			Files.deleteIfExists(path);
+		}
+
+		CsrGraph<Transport> graph = map.graph();
+		Benchmarks.report("MoveGenerator.of", Benchmarks.throughput(
+				() -> MoveGenerator.of(graph) != null ? nodes : 0, Math.max(1, 10_000 / nodes)),
+				"nodes");
+		MoveGenerator generator = MoveGenerator.forGraph(graph);
+		Random random = new Random(nodes);
+		int[] locations = new int[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++) locations[i] = graph.value(random.nextInt(nodes));
+		MoveBuffer buffer = new MoveBuffer();
+		Benchmarks.report("MoveGenerator.generate, Mr.X", Benchmarks.throughput(
+				() -> moves(generator, locations, buffer), 1), "moves");
+
+		if (nodes <= MAX_TABLE_NODES) {
+			Benchmarks.report("DistanceOracle.of", Benchmarks.throughput(
+					() -> DistanceOracle.of(graph).size() * (long) nodes, 1), "pairs");
+		}
+		else {
+			System.out.printf("%-40s %16s%n", "DistanceOracle.of", "skipped");
+		}
+
+		Benchmarks.report("setup and random playout", Benchmarks.throughput(
+				() -> game(graph, random, buffer), 1), "games");
+	}
+
+	public static void main(String[] args) throws IOException {
+		int[] sizes = args.length > 0
+				? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+				: new int[] {1_000, 10_000, 100_000};
+		for (int nodes : sizes) run(nodes);
+	}
+
+}
@@ -0,0 +1,79 @@
+package uk.ac.bris.cs.scotlandyard.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.auxiliary.ReferenceMoves;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardPlayer;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.dummyPlayer;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.MRX_LOCATIONS;
+
+/**
+ * Compares the {@code HashMap<Ticket, Integer>} that
+ * {@link ScotlandYardPlayer} used to keep with its ordinal indexed counts,
+ * by generating Mr.X's moves with DOUBLE and SECRET tickets at every standard
+ * starting location on {@code graph.txt}.<br>
+ * {@link ScotlandYardModel#populatemoves(ScotlandYardPlayer)} reads the counts
+ * array directly and can no longer run against a map, so both storages go
+ * through the edge walk populatemoves used to make, see
+ * {@link ReferenceMoves}; the games, detectives and moves are the same and only
+ * the ticket lookups differ.
+ */
+public final class TicketStorageBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		List<ScotlandYardModel> models = new ArrayList<>();
+		List<Map<Ticket, Integer>> maps = new ArrayList<>();
+		List<Map<Ticket, Integer>> arrays = new ArrayList<>();
+		for (int i = 0; i < MRX_LOCATIONS.size(); i++) {
+			List<PlayerConfiguration> detectives = new ArrayList<>();
+			Colour[] colours = Colour.values();
+			for (int d = 1; d < colours.length; d++) {
+				detectives.add(new Builder(colours[d]).using(dummyPlayer())
+						.with(StandardGame.generateDetectiveTickets())
+						.at(DETECTIVE_LOCATIONS.get((i + d) % DETECTIVE_LOCATIONS.size()))
+						.build());
+			}
+			models.add(new ScotlandYardModel(StandardGame.ROUNDS, graph,
+					new Builder(BLACK).using(dummyPlayer())
+							.with(StandardGame.generateMrXTickets()).at(MRX_LOCATIONS.get(i)).build(),
+					detectives.get(0),
+					detectives.subList(1, detectives.size()).toArray(new PlayerConfiguration[0])));
+			Map<Ticket, Integer> tickets = StandardGame.generateMrXTickets();
+			maps.add(new HashMap<>(tickets));
+			arrays.add(new ScotlandYardPlayer(dummyPlayer(), BLACK, MRX_LOCATIONS.get(i), tickets)
+					.tickets());
+		}
+
+		double map = Benchmarks.throughput(() -> generate(models, maps));
+		Benchmarks.report("Mr.X moves, HashMap tickets", map, "moves");
+		double array = Benchmarks.throughput(() -> generate(models, arrays));
+		Benchmarks.report("Mr.X moves, int[] tickets", array, "moves");
+		System.out.printf("speedup: %.1fx%n", array / map);
+	}
+
+	private static long generate(List<ScotlandYardModel> models, List<Map<Ticket, Integer>> tickets) {
+		long moves = 0;
+		for (int i = 0; i < models.size(); i++) {
+			moves += ReferenceMoves.legalMoves(models.get(i), BLACK, MRX_LOCATIONS.get(i),
+					tickets.get(i)).size();
+		}
+		return moves;
+	}
+
+}
@@ -0,0 +1,280 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.AsyncSpectator.OverflowPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests ordering, snapshots and overflow handling of {@link AsyncSpectator}
+ */
+public class AsyncSpectatorTest {
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		graph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(AsyncSpectatorTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	private static PlayerConfiguration firstMovePlayer(Colour colour, int location) {
+		return new PlayerConfiguration.Builder(colour)
+				.at(location)
+				.with(colour.isMrX() ? mrXTickets() : detectiveTickets())
+				.using((view, l, moves, callback) -> callback.accept(moves.iterator().next()))
+				.build();
+	}
+
+	private static ScotlandYardModel game() {
+		return new ScotlandYardModel(ofRounds(6, DEFAULT_REVEAL), graph,
+				firstMovePlayer(BLACK, 45), firstMovePlayer(BLUE, 94), firstMovePlayer(RED, 155));
+	}
+
+	/**
+	 * Records every notification along with what the view looked like
+	 */
+	private static final class Recorder implements Spectator {
+
+		final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+		private void record(String event, ScotlandYardView view) {
+			events.add(String.format("%s round=%d current=%s blue=%s", event,
+					view.getCurrentRound(), view.getCurrentPlayer(),
+					view.getPlayerLocation(BLUE).orElse(-1)));
+		}
+
+		@Override public void onMoveMade(ScotlandYardView view, Move move) {
+			record("move " + move, view);
+		}
+		@Override public void onRoundStarted(ScotlandYardView view, int round) {
+			record("round " + round, view);
+		}
+		@Override public void onRotationComplete(ScotlandYardView view) {
+			record("rotation", view);
+		}
+		@Override public void onGameOver(ScotlandYardView view, Set<Colour> winners) {
+			record("over " + winners, view);
+		}
+	}
+
+	/**
+	 * Runs submitted tasks only when asked to
+	 */
+	private static final class ManualExecutor implements java.util.concurrent.Executor {
+
+		final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+		@Override public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) tasks.poll().run();
+		}
+	}
+
+	private static Move move(int destination) {
+		return new TicketMove(BLUE, Ticket.TAXI, destination);
+	}
+
+	@Test
+	public void testDeliversSameNotificationsInOrder() throws InterruptedException {
+		Recorder direct = new Recorder();
+		Recorder delayed = new Recorder();
+		AsyncSpectator async = new AsyncSpectator.Builder(new Spectator() {
+			@Override public void onMoveMade(ScotlandYardView view, Move move) {
+				sleep(1);
+				delayed.onMoveMade(view, move);
+			}
+			@Override public void onRoundStarted(ScotlandYardView view, int round) {
+				delayed.onRoundStarted(view, round);
+			}
+			@Override public void onRotationComplete(ScotlandYardView view) {
+				delayed.onRotationComplete(view);
+			}
+			@Override public void onGameOver(ScotlandYardView view, Set<Colour> winners) {
+				delayed.onGameOver(view, winners);
+			}
+		}).capacity(4).build();
+		ScotlandYardModel game = game();
+		game.registerSpectator(direct);
+		game.registerSpectator(async);
+		while (!game.isGameOver()) game.startRotate();
+		assertThat(async.flush(Duration.ofSeconds(10))).isTrue();
+		assertThat(delayed.events).isNotEmpty().isEqualTo(direct.events);
+		assertThat(async.dropped()).isZero();
+		assertThat(async.delivered()).isEqualTo(direct.events.size());
+		assertThat(async.maxPending()).isBetween(1, 4);
+		assertThat(async.pending()).isZero();
+	}
+
+	@Test
+	public void testDropOldestKeepsNewest() {
+		ManualExecutor executor = new ManualExecutor();
+		Recorder recorder = new Recorder();
+		AsyncSpectator async = new AsyncSpectator.Builder(recorder).capacity(2)
+				.overflow(OverflowPolicy.DROP_OLDEST).executor(executor).build();
+		ScotlandYardModel game = game();
+		for (int i = 1; i <= 5; i++) async.onMoveMade(game, move(i));
+		assertThat(async.pending()).isEqualTo(2);
+		assertThat(async.dropped()).isEqualTo(3);
+		executor.runAll();
+		assertThat(recorder.events).hasSize(2);
+		assertThat(recorder.events.get(0)).startsWith("move " + move(4));
+		assertThat(recorder.events.get(1)).startsWith("move " + move(5));
+	}
+
+	@Test
+	public void testCoalesceDiscardsStateNotificationsFirst() {
+		ManualExecutor executor = new ManualExecutor();
+		Recorder recorder = new Recorder();
+		AsyncSpectator async = new AsyncSpectator.Builder(recorder).capacity(3)
+				.overflow(OverflowPolicy.COALESCE).executor(executor).build();
+		ScotlandYardModel game = game();
+		async.onMoveMade(game, move(1));
+		async.onRotationComplete(game);
+		async.onMoveMade(game, move(2));
+		async.onMoveMade(game, move(3));
+		async.onMoveMade(game, move(4));
+		executor.runAll();
+		assertThat(async.dropped()).isEqualTo(2);
+		assertThat(recorder.events).hasSize(3);
+		assertThat(recorder.events.get(0)).startsWith("move " + move(2));
+		assertThat(recorder.events.get(2)).startsWith("move " + move(4));
+	}
+
+	@Test
+	public void testBlockWaitsForSlowSpectator() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		Recorder recorder = new Recorder();
+		AsyncSpectator async = new AsyncSpectator.Builder(new Spectator() {
+			@Override public void onMoveMade(ScotlandYardView view, Move move) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new AssertionError(e);
+				}
+				recorder.onMoveMade(view, move);
+			}
+		}).capacity(1).build();
+		ScotlandYardModel game = game();
+		Thread producer = new Thread(() -> {
+			for (int i = 1; i <= 3; i++) async.onMoveMade(game, move(i));
+		});
+		producer.start();
+		producer.join(200);
+		assertThat(producer.isAlive()).isTrue();
+		assertThat(async.lag()).isGreaterThan(Duration.ZERO);
+		release.countDown();
+		producer.join(TimeUnit.SECONDS.toMillis(10));
+		assertThat(async.flush(Duration.ofSeconds(10))).isTrue();
+		assertThat(recorder.events).hasSize(3);
+		assertThat(recorder.events.get(2)).startsWith("move " + move(3));
+		assertThat(async.dropped()).isZero();
+		assertThat(async.maxLag()).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+	}
+
+	@Test
+	public void testViewIsSnapshotAtNotificationTime() {
+		ManualExecutor executor = new ManualExecutor();
+		Recorder recorder = new Recorder();
+		AsyncSpectator async = new AsyncSpectator.Builder(recorder).executor(executor).build();
+		ScotlandYardModel game = game();
+		async.onRotationComplete(game);
+		game.startRotate();
+		async.onRotationComplete(game);
+		executor.runAll();
+		assertThat(recorder.events).containsExactly(
+				"rotation round=0 current=BLACK blue=94",
+				"rotation round=" + game.getCurrentRound() + " current=BLACK blue="
+						+ game.getPlayerLocation(BLUE).get());
+	}
+
+	@Test
+	public void testSpectatorExceptionsAreCountedAndHandled() throws InterruptedException {
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		AsyncSpectator async = new AsyncSpectator.Builder(new Spectator() {
+			@Override public void onRotationComplete(ScotlandYardView view) {
+				throw new IllegalStateException("slow and broken");
+			}
+		}).onError(errors::add).build();
+		ScotlandYardModel game = game();
+		async.onRotationComplete(game);
+		async.onMoveMade(game, move(1));
+		assertThat(async.flush(Duration.ofSeconds(10))).isTrue();
+		assertThat(async.failures()).isEqualTo(1);
+		assertThat(async.delivered()).isEqualTo(1);
+		assertThat(errors).hasSize(1);
+		async.close();
+		async.onMoveMade(game, move(2));
+		assertThat(async.dropped()).isEqualTo(1);
+	}
+
+	@Test
+	public void testSpectatorErrorsDoNotStopDelivery() throws InterruptedException {
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		AsyncSpectator async = new AsyncSpectator.Builder(new Spectator() {
+			@Override public void onMoveMade(ScotlandYardView view, Move move) {
+				throw new AssertionError("broken spectator");
+			}
+		}).capacity(2).onError(errors::add).build();
+		ScotlandYardModel game = game();
+		// would block for good once the queue is full if a drain task died
+		for (int i = 1; i <= 10; i++) async.onMoveMade(game, move(i));
+		assertThat(async.flush(Duration.ofSeconds(10))).isTrue();
+		assertThat(async.failures()).isEqualTo(10);
+		assertThat(errors).hasSize(10).allMatch(e -> e instanceof AssertionError);
+	}
+
+	@Test
+	public void testRejectedDeliveryIsRetriedWithNextNotification() throws InterruptedException {
+		List<Throwable> errors = new ArrayList<>();
+		int[] rejections = {1};
+		Recorder recorder = new Recorder();
+		AsyncSpectator async = new AsyncSpectator.Builder(recorder).executor(command -> {
+			if (rejections[0]-- > 0) throw new RejectedExecutionException("busy");
+			command.run();
+		}).onError(errors::add).build();
+		ScotlandYardModel game = game();
+		async.onRotationComplete(game);
+		assertThat(async.flush(Duration.ofSeconds(1))).isTrue();
+		assertThat(errors).hasSize(1).allMatch(e -> e instanceof RejectedExecutionException);
+		async.onRotationComplete(game);
+		assertThat(async.delivered()).isEqualTo(2);
+		assertThat(recorder.events).hasSize(2);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+}
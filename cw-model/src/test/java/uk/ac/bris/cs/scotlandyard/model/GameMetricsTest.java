@@ -0,0 +1,130 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.GameMetrics.Operation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests the timings recorded by {@link ScotlandYardModel} through
+ * {@link GameMetrics}
+ */
+public class GameMetricsTest {
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		graph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(GameMetricsTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	private static PlayerConfiguration firstMovePlayer(Colour colour, int location) {
+		return new PlayerConfiguration.Builder(colour)
+				.at(location)
+				.with(colour.isMrX() ? mrXTickets() : detectiveTickets())
+				.using((view, l, moves, callback) -> callback.accept(moves.iterator().next()))
+				.build();
+	}
+
+	private static ScotlandYardModel game() {
+		return new ScotlandYardModel(ofRounds(6, DEFAULT_REVEAL), graph,
+				firstMovePlayer(BLACK, 45), firstMovePlayer(BLUE, 94), firstMovePlayer(RED, 155));
+	}
+
+	@Test
+	public void testGameRecordsEveryOperation() {
+		RecordingGameMetrics metrics = new RecordingGameMetrics();
+		ScotlandYardModel game = game();
+		game.setMetrics(metrics);
+		game.registerSpectator(new Spectator() {});
+		int rotations = 0;
+		while (!game.isGameOver()) {
+			game.startRotate();
+			rotations++;
+		}
+		long moves = metrics.count(Operation.VALIDATION);
+		assertThat(moves).isGreaterThanOrEqualTo(rotations);
+		assertThat(metrics.count(Operation.MOVE_GENERATION)).isEqualTo(moves);
+		assertThat(metrics.count(Operation.GAME_OVER_CHECK)).isEqualTo(moves);
+		assertThat(metrics.count(Operation.MOVE_APPLICATION)).isGreaterThanOrEqualTo(moves);
+		assertThat(metrics.count(Operation.SPECTATOR_DISPATCH)).isGreaterThan(moves);
+		for (Operation operation : Operation.values()) {
+			assertThat(metrics.percentileNanos(operation, 50))
+					.isLessThanOrEqualTo(metrics.percentileNanos(operation, 100));
+		}
+		assertThat(metrics.toString()).contains("MOVE_GENERATION", "SPECTATOR_DISPATCH");
+		metrics.reset();
+		assertThat(metrics.count(Operation.VALIDATION)).isZero();
+		assertThat(metrics.percentileNanos(Operation.VALIDATION, 99)).isZero();
+	}
+
+	@Test
+	public void testGameDoesNotWriteToStandardOutput() {
+		PrintStream out = System.out;
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(captured));
+		try {
+			ScotlandYardModel game = game();
+			game.registerSpectator(new Spectator() {});
+			while (!game.isGameOver()) game.startRotate();
+		} finally {
+			System.setOut(out);
+		}
+		assertThat(captured.toString()).isEmpty();
+	}
+
+	@Test
+	public void testDisabledMetricsAreNeverCalled() {
+		GameMetrics disabled = new GameMetrics() {
+			@Override public boolean enabled() { return false; }
+			@Override public void record(Operation operation, long nanos) {
+				throw new AssertionError("recorded " + operation);
+			}
+		};
+		ScotlandYardModel game = game();
+		game.setMetrics(disabled);
+		while (!game.isGameOver()) game.startRotate();
+	}
+
+	@Test
+	public void testPercentilesAreWithinBucketPrecision() {
+		RecordingGameMetrics metrics = new RecordingGameMetrics();
+		for (long nanos = 1; nanos <= 100_000; nanos++) metrics.record(Operation.VALIDATION, nanos);
+		assertThat(metrics.count(Operation.VALIDATION)).isEqualTo(100_000);
+		assertThat(metrics.meanNanos(Operation.VALIDATION)).isEqualTo(50_000.5);
+		assertThat(metrics.percentileNanos(Operation.VALIDATION, 50))
+				.isBetween(50_000L, 62_500L);
+		assertThat(metrics.percentileNanos(Operation.VALIDATION, 99))
+				.isBetween(99_000L, 123_750L);
+		assertThat(metrics.percentileNanos(Operation.VALIDATION, 0)).isEqualTo(1);
+	}
+
+	@Test
+	public void testBucketsCoverWholeRange() {
+		for (long value : new long[]{0, 1, 3, 4, 7, 8, 1000, 1 << 20, Long.MAX_VALUE}) {
+			int bucket = RecordingGameMetrics.bucket(value);
+			assertThat(RecordingGameMetrics.upperBound(bucket)).isGreaterThanOrEqualTo(value);
+			if (bucket > 0)
+				assertThat(RecordingGameMetrics.upperBound(bucket - 1)).isLessThan(value);
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.MRX_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.dummyPlayer;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests that {@link GameState} plays by the same rules as
+ * {@link ScotlandYardModel}
+ */
+public class GameStateTest {
+
+	private static final Colour[] DETECTIVES = {BLUE, GREEN, RED};
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		graph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(GameStateTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	private static PlayerConfiguration player(Colour colour, int location,
+	                                          Map<Ticket, Integer> tickets, Player player) {
+		return new Builder(colour).using(player).with(tickets).at(location).build();
+	}
+
+	private static ScotlandYardModel model(int game, Player player) {
+		List<PlayerConfiguration> detectives = new ArrayList<>();
+		for (int i = 0; i < DETECTIVES.length; i++) {
+			detectives.add(player(DETECTIVES[i],
+					DETECTIVE_LOCATIONS.get((game + i) % DETECTIVE_LOCATIONS.size()),
+					detectiveTickets(), player));
+		}
+		return new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), graph,
+				player(BLACK, MRX_LOCATIONS.get(game % MRX_LOCATIONS.size()), mrXTickets(), player),
+				detectives.get(0), detectives.get(1), detectives.get(2));
+	}
+
+	private static void assertSameTickets(GameState state, ScotlandYardView view) {
+		for (Colour colour : view.getPlayers()) {
+			for (Ticket ticket : Ticket.values()) {
+				assertThat(state.tickets(colour, ticket)).as("%s %s", colour, ticket)
+						.isEqualTo(view.getPlayerTickets(colour, ticket).orElse(0));
+			}
+		}
+	}
+
+	@Test
+	public void testRandomGamesMatchModel() {
+		for (int game = 0; game < 24; game++) {
+			Random random = new Random(game);
+			GameState[] state = new GameState[1];
+			int[] moves = new int[1];
+			ScotlandYardModel model = model(game, (view, location, valid, callback) -> {
+				GameState s = state[0];
+				assertThat(s.currentPlayer()).isEqualTo(view.getCurrentPlayer());
+				assertThat(s.round()).isEqualTo(view.getCurrentRound());
+				assertThat(s.location(s.currentPlayer())).isEqualTo(location);
+				assertSameTickets(s, view);
+				assertThat(s.isGameOver()).isFalse();
+				MoveBuffer buffer = new MoveBuffer();
+				s.legalMoves(buffer);
+				assertThat(buffer.toMoves()).hasSize(buffer.size())
+						.containsExactlyInAnyOrderElementsOf(valid);
+				Move move = new ArrayList<>(valid).get(random.nextInt(valid.size()));
+				assertThat(s.isLegal(MoveCodes.encode(move))).isTrue();
+				s.apply(move);
+				moves[0]++;
+				callback.accept(move);
+			});
+			state[0] = GameState.from(model, MRX_LOCATIONS.get(game % MRX_LOCATIONS.size()));
+			while (!model.isGameOver()) model.startRotate();
+			assertThat(moves[0]).isPositive();
+			assertThat(state[0].isGameOver()).as("game %d, %s", game, state[0]).isTrue();
+			assertThat(state[0].mrXWins())
+					.isEqualTo(model.getWinningPlayers().contains(BLACK));
+		}
+	}
+
+	@Test
+	public void testUndoRestoresState() {
+		GameState state = GameState.from(model(3, dummyPlayer()), MRX_LOCATIONS.get(3));
+		String initial = state.toString();
+		Random random = new Random(42);
+		List<String> states = new ArrayList<>();
+		MoveBuffer buffer = new MoveBuffer();
+		while (!state.isGameOver()) {
+			states.add(state.toString());
+			buffer.clear();
+			state.legalMoves(buffer);
+			state.apply(buffer.get(random.nextInt(buffer.size())));
+		}
+		assertThat(state.depth()).isEqualTo(states.size());
+		for (int i = states.size() - 1; i >= 0; i--) {
+			state.undo();
+			assertThat(state.toString()).isEqualTo(states.get(i));
+		}
+		assertThat(state.toString()).isEqualTo(initial);
+		assertThatThrownBy(state::undo).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testCopyIsIndependent() {
+		GameState state = GameState.from(model(5, dummyPlayer()), MRX_LOCATIONS.get(5));
+		GameState copy = state.copy();
+		assertThat(copy.toString()).isEqualTo(state.toString());
+		MoveBuffer buffer = new MoveBuffer();
+		copy.legalMoves(buffer);
+		copy.apply(buffer.get(0));
+		assertThat(copy.toString()).isNotEqualTo(state.toString());
+		assertThat(state.location(BLACK)).isEqualTo(MRX_LOCATIONS.get(5));
+		assertThat(state.round()).isZero();
+		assertThat(state.currentPlayer()).isEqualTo(BLACK);
+		assertThat(copy.depth()).isEqualTo(1);
+		assertThat(state.depth()).isZero();
+	}
+
+	@Test
+	public void testDetectiveTicketsGoToMrX() {
+		GameState state = GameState.from(model(0, dummyPlayer()), MRX_LOCATIONS.get(0));
+		MoveBuffer buffer = new MoveBuffer();
+		state.legalMoves(buffer);
+		state.apply(buffer.get(0));
+		buffer.clear();
+		state.legalMoves(buffer);
+		long move = buffer.get(0);
+		Ticket ticket = MoveCodes.firstTicket(move);
+		int before = state.tickets(BLACK, ticket);
+		state.apply(move);
+		assertThat(state.tickets(BLACK, ticket)).isEqualTo(before + 1);
+		assertThat(state.location(BLUE)).isEqualTo(MoveCodes.finalDestination(move));
+		assertThat(state.currentPlayer()).isEqualTo(GREEN);
+	}
+
+}
@@ -0,0 +1,182 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle;
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests {@link MapBundle} against parsing the text files of the standard map
+ */
+public class MapBundleTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] graphText;
+	private static byte[] positionText;
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		graphText = resource("graph.txt");
+		positionText = resource("pos.txt");
+		graph = StandardGame.standardGraph();
+	}
+
+	private static byte[] resource(String name) throws IOException {
+		try (InputStream stream = MapBundleTest.class.getClassLoader()
+				.getResourceAsStream(name)) {
+			return stream.readAllBytes();
+		}
+	}
+
+	private static List<String> edges(Graph<Integer, Transport> graph, Node<Integer> node) {
+		List<String> edges = new ArrayList<>();
+		for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node))
+			edges.add(edge.destination().value() + " " + edge.data());
+		return edges;
+	}
+
+	@Test
+	public void testMappedBundleHasSameGraph() throws IOException {
+		Path path = folder.getRoot().toPath().resolve("map.bundle");
+		MapBundle.write(path, graphText, positionText);
+		MapBundle bundle = MapBundle.map(path);
+		assertThat(bundle.graph().getNodes()).isEqualTo(graph.getNodes());
+		assertThat(bundle.graph().getEdges()).hasSameSizeAs(graph.getEdges());
+		for (Node<Integer> node : graph.getNodes())
+			assertThat(edges(bundle.graph(), node)).isEqualTo(edges(graph, node));
+	}
+
+	@Test
+	public void testBundleHasSamePositions() throws IOException {
+		MapBundle bundle = MapBundle.read(MapBundle.compile(graphText, positionText));
+		assertThat(StandardGame.pngMapPositionEntries(bundle))
+				.isEqualTo(StandardGame.pngMapPositionEntries());
+	}
+
+	@Test
+	public void testBundleHasSameDistances() {
+		MapBundle bundle = MapBundle.read(MapBundle.compile(graphText, positionText));
+		DistanceOracle all = DistanceOracle.of(graph);
+		for (Node<Integer> from : graph.getNodes()) {
+			for (Node<Integer> to : graph.getNodes()) {
+				assertThat(bundle.distances().distance(from.value(), to.value()))
+						.isEqualTo(all.distance(from.value(), to.value()));
+			}
+		}
+		for (Transport transport : Transport.values()) {
+			DistanceOracle expected = DistanceOracle.of(graph, transport::equals);
+			DistanceOracle actual = bundle.distances(transport);
+			assertThat(actual.maxDistance()).isEqualTo(expected.maxDistance());
+			assertThat(actual.table()).isEqualTo(expected.table());
+		}
+	}
+
+	@Test
+	public void testBundleDistancesAreShared() {
+		MapBundle bundle = MapBundle.read(MapBundle.compile(graphText, positionText));
+		assertThat(DistanceOracle.forGraph(bundle.graph())).isSameAs(bundle.distances());
+		assertThat(DistanceOracle.forGraph(bundle.graph(), EnumSet.of(Transport.BUS)))
+				.isSameAs(bundle.distances(Transport.BUS));
+	}
+
+	@Test
+	public void testMatchesChecksOnlyTheSourceFiles() {
+		MapBundle bundle = MapBundle.read(MapBundle.compile(graphText, positionText));
+		assertThat(bundle.matches(graphText, positionText)).isTrue();
+		byte[] changed = (new String(positionText, StandardCharsets.UTF_8) + "200 1 1\n")
+				.getBytes(StandardCharsets.UTF_8);
+		assertThat(bundle.matches(graphText, changed)).isFalse();
+		assertThat(bundle.matches(changed, positionText)).isFalse();
+	}
+
+	@Test
+	public void testCorruptBundleThrows() {
+		ByteBuffer buffer = MapBundle.compile(graphText, positionText);
+		ByteBuffer truncated = buffer.duplicate();
+		truncated.limit(buffer.limit() - 1);
+		assertThatThrownBy(() -> MapBundle.read(truncated))
+				.isInstanceOf(IllegalArgumentException.class);
+		ByteBuffer magic = ByteBuffer.allocate(buffer.remaining()).put(buffer.duplicate());
+		magic.putInt(0, 0);
+		magic.flip();
+		assertThatThrownBy(() -> MapBundle.read(magic))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> MapBundle.read(ByteBuffer.allocate(3)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	// changes an int of a compiled bundle and fixes up the content CRC
+	private static ByteBuffer withInt(int index, int value) {
+		ByteBuffer buffer = MapBundle.compile(graphText, positionText);
+		buffer.putInt(index, value);
+		CRC32 crc = new CRC32();
+		ByteBuffer content = buffer.duplicate();
+		content.position(3 * Integer.BYTES);
+		crc.update(content);
+		buffer.putInt(2 * Integer.BYTES, (int) crc.getValue());
+		return buffer;
+	}
+
+	@Test
+	public void testCorruptContentThrows() {
+		ByteBuffer buffer = MapBundle.compile(graphText, positionText);
+		int last = buffer.limit() - 5;
+		buffer.put(last, (byte) (buffer.get(last) ^ 1));
+		assertThatThrownBy(() -> MapBundle.read(buffer))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("corrupt");
+	}
+
+	@Test
+	public void testOutOfRangeNodeValuesThrow() {
+		// the first node value follows the 9 int header
+		for (int value : new int[] {Integer.MAX_VALUE, MapBundle.MAX_NODE_VALUE + 1, -1}) {
+			assertThatThrownBy(() -> MapBundle.read(withInt(9 * Integer.BYTES, value)))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessageContaining("node value");
+		}
+	}
+
+	@Test
+	public void testStandardBundleRecompilesCorruptFile() throws IOException {
+		Path path = folder.getRoot().toPath().resolve("corrupt.bundle");
+		ByteBuffer buffer = withInt(9 * Integer.BYTES, Integer.MAX_VALUE);
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		Files.write(path, bytes);
+		assertThat(StandardGame.standardBundle(path).graph().getNodes())
+				.isEqualTo(graph.getNodes());
+	}
+
+	@Test
+	public void testStandardBundleRecompilesStaleFile() throws IOException {
+		Path path = folder.getRoot().toPath().resolve("standard.bundle");
+		Files.write(path, new byte[] {1, 2, 3});
+		MapBundle bundle = StandardGame.standardBundle(path);
+		assertThat(bundle.matches(graphText, positionText)).isTrue();
+		assertThat(StandardGame.standardBundle(path).graph().getNodes())
+				.isEqualTo(bundle.graph().getNodes());
+	}
+
+}
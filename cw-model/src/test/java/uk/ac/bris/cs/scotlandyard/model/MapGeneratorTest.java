@@ -0,0 +1,77 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
+import uk.ac.bris.cs.gamekit.graph.DistanceOracle;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link MapGenerator}
+ */
+public class MapGeneratorTest {
+
+	@Test
+	public void testSameSeedGivesSameMap() {
+		assertThat(MapGenerator.generate(500, 7).graphLines())
+				.isEqualTo(MapGenerator.generate(500, 7).graphLines());
+		assertThat(MapGenerator.generate(500, 7).graphLines())
+				.isNotEqualTo(MapGenerator.generate(500, 8).graphLines());
+	}
+
+	@Test
+	public void testGraphReadsBackThroughReader() {
+		MapGenerator map = MapGenerator.generate(1000, 1);
+		CsrGraph<Transport> read = ScotlandYardGraphReader.csrFromLines(map.graphLines());
+		CsrGraph<Transport> built = map.graph();
+		assertThat(read.getNodes()).isEqualTo(built.getNodes()).hasSize(1000);
+		assertThat(read.getEdges()).isEqualTo(built.getEdges()).hasSize(map.edges() * 2);
+	}
+
+	@Test
+	public void testEveryTransportIsUsedAndTaxisConnectTheMap() {
+		MapGenerator map = MapGenerator.generate(2000, 3);
+		for (Transport transport : Transport.values())
+			assertThat(map.edges(transport)).as("%s edges", transport).isPositive();
+		assertThat(map.edges(Transport.TAXI)).isGreaterThan(map.edges(Transport.BUS));
+		assertThat(map.edges(Transport.BUS)).isGreaterThan(map.edges(Transport.UNDERGROUND));
+		assertThat(map.edges(Transport.UNDERGROUND)).isGreaterThan(map.edges(Transport.FERRY));
+
+		CsrGraph<Transport> graph = map.graph();
+		DistanceOracle taxi = DistanceOracle.of(graph, Transport.TAXI::equals);
+		for (Node<Integer> node : graph.getNodes())
+			assertThat(taxi.distance(1, node.value())).isNotEqualTo(DistanceOracle.UNREACHABLE);
+		assertThat(DistanceOracle.forGraph(graph, EnumSet.allOf(Transport.class)).maxDistance())
+				.isLessThan(taxi.maxDistance());
+	}
+
+	@Test
+	public void testPositionsCompileIntoBundle() throws Exception {
+		MapGenerator map = MapGenerator.generate(300, 5);
+		StringWriter graph = new StringWriter();
+		StringWriter positions = new StringWriter();
+		map.writeGraph(graph);
+		map.writePositions(positions);
+		MapBundle bundle = MapBundle.read(MapBundle.compile(
+				graph.toString().getBytes(StandardCharsets.UTF_8),
+				positions.toString().getBytes(StandardCharsets.UTF_8)));
+		assertThat(bundle.positions()).hasSize(300);
+		assertThat(bundle.graph().getNodes()).isEqualTo(map.graph().getNodes());
+		assertThat(Collections.max(bundle.positions().keySet())).isEqualTo(300);
+	}
+
+	@Test
+	public void testTooFewNodesThrows() {
+		assertThatThrownBy(() -> MapGenerator.generate(1, 0))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
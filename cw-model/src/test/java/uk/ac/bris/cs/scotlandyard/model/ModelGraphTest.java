@@ -0,0 +1,111 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.bris.cs.gamekit.graph.CsrGraph;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingBlue;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingMrX;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests that the graph returned by {@link ScotlandYardView#getGraph()} is a
+ * single shared instance for the whole game
+ */
+public class ModelGraphTest extends ParameterisedModelTestBase {
+
+	private static PlayerConfiguration firstMovePlayer(Colour colour, int location,
+	                                                   List<Graph<Integer, Transport>> seen) {
+		return new PlayerConfiguration.Builder(colour)
+				.at(location)
+				.with(colour.isMrX() ? mrXTickets() : detectiveTickets())
+				.using((view, l, moves, callback) -> {
+					seen.add(view.getGraph());
+					callback.accept(moves.iterator().next());
+				}).build();
+	}
+
+	@Test
+	public void testGetGraphReturnsSameInstanceForWholeGame() {
+		List<Graph<Integer, Transport>> seen = new ArrayList<>();
+		ScotlandYardGame game = createGame(
+				firstMovePlayer(BLACK, 45, seen),
+				firstMovePlayer(BLUE, 94, seen),
+				firstMovePlayer(RED, 155, seen));
+		Graph<Integer, Transport> graph = game.getGraph();
+		for (int i = 0; i < 5 && !game.isGameOver(); i++) game.startRotate();
+		assertThat(seen).isNotEmpty().allSatisfy(g -> assertThat(g).isSameAs(graph));
+		assertThat(game.getGraph()).isSameAs(graph);
+	}
+
+	@Test
+	public void testGetGraphOfMutableGraphIsSameInstance() {
+		ScotlandYardGame game = createGame(asList(true, false),
+				new UndirectedGraph<>(defaultGraph()), doNothingMrX(), doNothingBlue());
+		assertThat(game.getGraph()).isSameAs(game.getGraph());
+	}
+
+	@Test
+	public void testGetGraphOfCsrGraphIsGivenInstance() {
+		CsrGraph<Transport> graph = CsrGraph.copyOf(Transport.class, defaultGraph());
+		ScotlandYardGame game = createGame(asList(true, false), graph, doNothingMrX(),
+				doNothingBlue());
+		assertThat(game.getGraph()).isSameAs(graph);
+	}
+
+	private static PlayerConfiguration graphReadingPlayer(Colour colour, int location, int calls,
+	                                                     int[] identities) {
+		return new PlayerConfiguration.Builder(colour)
+				.at(location)
+				.with(colour.isMrX() ? mrXTickets() : detectiveTickets())
+				.using((view, l, moves, callback) -> {
+					for (int i = 0; i < calls; i++)
+						identities[0] ^= System.identityHashCode(view.getGraph());
+					callback.accept(moves.iterator().next());
+				}).build();
+	}
+
+	// bytes this thread allocates playing a whole game whose players call getGraph() on every move
+	private long allocatedByGame(int callsPerMove, int[] identities) {
+		com.sun.management.ThreadMXBean bean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		ScotlandYardGame game = createGame(
+				graphReadingPlayer(BLACK, 45, callsPerMove, identities),
+				graphReadingPlayer(BLUE, 94, callsPerMove, identities),
+				graphReadingPlayer(RED, 155, callsPerMove, identities));
+		long before = bean.getThreadAllocatedBytes(thread);
+		while (!game.isGameOver()) game.startRotate();
+		return bean.getThreadAllocatedBytes(thread) - before;
+	}
+
+	@Test
+	public void testGetGraphDoesNotAllocateDuringTurns() {
+		int[] identities = {0};
+		for (int i = 0; i < 3; i++) {
+			allocatedByGame(0, identities);
+			allocatedByGame(1000, identities);
+		}
+		long quiet = allocatedByGame(0, identities);
+		long reading = allocatedByGame(1000, identities);
+		// the same game with 1000 getGraph() calls per move, an ImmutableGraph
+		// wrapper per call would add at least 16 bytes per call
+		assertThat(reading - quiet)
+				.as("bytes allocated by getGraph() during turns (%d, %d, %d)",
+						quiet, reading, identities[0])
+				.isLessThan(4096);
+	}
+
+}
@@ -0,0 +1,204 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.dummyPlayer;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.MRX_LOCATIONS;
+
+/**
+ * Tests that {@link ScotlandYardModel#replay(List)} reaches the same position
+ * as playing the recorded moves through the players
+ */
+public class ModelReplayTest {
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+	}
+
+	private static ScotlandYardModel game(int seed, Player player) {
+		List<PlayerConfiguration> detectives = new ArrayList<>();
+		Colour[] colours = Colour.values();
+		for (int i = 0; i < 5; i++) {
+			detectives.add(new PlayerConfiguration.Builder(colours[i + 1]).using(player)
+					.with(StandardGame.generateDetectiveTickets())
+					.at(DETECTIVE_LOCATIONS.get((seed + i) % DETECTIVE_LOCATIONS.size())).build());
+		}
+		return new ScotlandYardModel(StandardGame.ROUNDS, graph,
+				new PlayerConfiguration.Builder(BLACK).using(player)
+						.with(StandardGame.generateMrXTickets())
+						.at(MRX_LOCATIONS.get(seed % MRX_LOCATIONS.size())).build(),
+				detectives.get(0), detectives.subList(1, 5).toArray(new PlayerConfiguration[0]));
+	}
+
+	// plays a game with random moves to the end and returns the moves made
+	private static List<Move> play(ScotlandYardModel game, List<Move> log) {
+		while (!game.isGameOver()) game.startRotate();
+		return log;
+	}
+
+	private static Player recording(Random random, List<Move> log) {
+		return (view, location, moves, callback) -> {
+			Move move = new ArrayList<>(moves).get(random.nextInt(moves.size()));
+			log.add(move);
+			callback.accept(move);
+		};
+	}
+
+	private static void assertSamePosition(ScotlandYardModel actual, ScotlandYardModel expected) {
+		assertThat(actual.hash()).isEqualTo(expected.hash());
+		assertThat(Zobrist.of(actual)).isEqualTo(Zobrist.of(expected));
+		assertThat(actual.getCurrentRound()).isEqualTo(expected.getCurrentRound());
+		assertThat(actual.getCurrentPlayer()).isEqualTo(expected.getCurrentPlayer());
+		assertThat(actual.isGameOver()).isEqualTo(expected.isGameOver());
+		assertThat(actual.getWinningPlayers()).isEqualTo(expected.getWinningPlayers());
+		assertThat(Zobrist.of(actual.snapshot())).isEqualTo(Zobrist.of(expected.snapshot()));
+	}
+
+	@Test
+	public void testReplayReachesPlayedPosition() {
+		for (int seed = 0; seed < 20; seed++) {
+			List<Move> log = new ArrayList<>();
+			ScotlandYardModel played = game(seed, recording(new Random(seed), log));
+			play(played, log);
+
+			ScotlandYardModel validated = game(seed, dummyPlayer());
+			validated.replay(log);
+			assertSamePosition(validated, played);
+
+			ScotlandYardModel trusted = game(seed, dummyPlayer());
+			trusted.replay(log, true, false);
+			assertSamePosition(trusted, played);
+		}
+	}
+
+	@Test
+	public void testPlayContinuesAfterReplayedPrefix() {
+		List<Move> log = new ArrayList<>();
+		ScotlandYardModel played = game(3, recording(new Random(42), log));
+		play(played, log);
+
+		// the players make the recorded moves once the replayed ones run out
+		int prefix = log.size() / 2;
+		List<Move> continued = new ArrayList<>(log.subList(0, prefix));
+		ScotlandYardModel resumed = game(3, (view, location, moves, callback) -> {
+			Move move = log.get(continued.size());
+			continued.add(move);
+			callback.accept(move);
+		});
+		resumed.replay(continued.subList(0, prefix), true, false);
+		play(resumed, continued);
+		assertThat(continued).isEqualTo(log);
+		assertSamePosition(resumed, played);
+	}
+
+	@Test
+	public void testSpectatorsAreNotifiedOnceAtTheEnd() {
+		List<Move> log = new ArrayList<>();
+		ScotlandYardModel played = game(1, recording(new Random(1), log));
+		play(played, log);
+
+		List<String> events = new ArrayList<>();
+		Spectator spectator = new Spectator() {
+			@Override public void onMoveMade(ScotlandYardView view, Move move) {
+				events.add("move");
+			}
+
+			@Override public void onRoundStarted(ScotlandYardView view, int round) {
+				events.add("round");
+			}
+
+			@Override public void onRotationComplete(ScotlandYardView view) {
+				events.add("rotation");
+			}
+
+			@Override public void onGameOver(ScotlandYardView view, Set<Colour> winners) {
+				events.add("over");
+			}
+		};
+		ScotlandYardModel notified = game(1, dummyPlayer());
+		notified.registerSpectator(spectator);
+		notified.replay(log);
+		assertThat(events).containsExactly("over");
+
+		events.clear();
+		ScotlandYardModel partial = game(1, dummyPlayer());
+		partial.registerSpectator(spectator);
+		partial.replay(log.subList(0, 6));
+		assertThat(events).containsExactly("rotation");
+
+		// a log that stops within a rotation completes nothing
+		events.clear();
+		ScotlandYardModel midway = game(1, dummyPlayer());
+		midway.registerSpectator(spectator);
+		midway.replay(log.subList(0, 4));
+		assertThat(midway.getCurrentPlayer()).isNotEqualTo(BLACK);
+		assertThat(events).isEmpty();
+
+		// nor does an empty log, although it is Mr.X's turn
+		events.clear();
+		ScotlandYardModel empty = game(1, dummyPlayer());
+		empty.registerSpectator(spectator);
+		empty.replay(List.of());
+		assertThat(empty.getCurrentPlayer()).isEqualTo(BLACK);
+		assertThat(events).isEmpty();
+
+		events.clear();
+		ScotlandYardModel quiet = game(1, dummyPlayer());
+		quiet.registerSpectator(spectator);
+		quiet.replay(log, true, false);
+		assertThat(events).isEmpty();
+	}
+
+	@Test
+	public void testInvalidMoveInLogThrows() {
+		ScotlandYardModel game = game(0, dummyPlayer());
+		assertThatThrownBy(() -> game.replay(List.of(taxi(BLACK, 1))))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testInvalidMoveLeavesEarlierMovesApplied() {
+		List<Move> log = new ArrayList<>();
+		ScotlandYardModel played = game(4, recording(new Random(4), log));
+		play(played, log);
+
+		ScotlandYardModel expected = game(4, dummyPlayer());
+		expected.replay(log.subList(0, 3), true, false);
+		List<Move> broken = new ArrayList<>(log.subList(0, 3));
+		broken.add(taxi(BLACK, 1));
+		ScotlandYardModel game = game(4, dummyPlayer());
+		assertThatThrownBy(() -> game.replay(broken))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertSamePosition(game, expected);
+	}
+
+	@Test
+	public void testMovesAfterGameOverThrow() {
+		List<Move> log = new ArrayList<>();
+		ScotlandYardModel played = game(2, recording(new Random(2), log));
+		play(played, log);
+		List<Move> extended = new ArrayList<>(log);
+		extended.add(log.get(0));
+		ScotlandYardModel game = game(2, dummyPlayer());
+		assertThatThrownBy(() -> game.replay(extended, true, false))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+}
@@ -3,6 +3,13 @@ package uk.ac.bris.cs.scotlandyard.model;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import uk.ac.bris.cs.gamekit.graph.CsrGraphTest;
+import uk.ac.bris.cs.gamekit.graph.DistanceOracleTest;
+import uk.ac.bris.cs.gamekit.graph.DynamicDistancesTest;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraphTest;
+import uk.ac.bris.cs.scotlandyard.ai.SimulationTest;
+import uk.ac.bris.cs.scotlandyard.auxiliary.ScotlandYardGraphReaderTest;
+
 /**
  * Includes all test for the actual game model
  */
@@ -16,5 +23,25 @@ import org.junit.runners.Suite;
 		ModelRoundTest.class,
 		ModelPlayerTest.class,
 		ModelValidMoveTest.class,
-		ModelSpectatorTest.class})
+		ModelSpectatorTest.class,
+		MoveGeneratorTest.class,
+		ModelGraphTest.class,
+		GameStateTest.class,
+		AsyncSpectatorTest.class,
+		GameMetricsTest.class,
+		SimulationTest.class,
+		ZobristTest.class,
+		MoveTableTest.class,
+		ScotlandYardPlayerTest.class,
+		ModelViewQueryTest.class,
+		PerftTest.class,
+		ModelReplayTest.class,
+		CsrGraphTest.class,
+		ScotlandYardGraphReaderTest.class,
+		NeighbourSetsTest.class,
+		DistanceOracleTest.class,
+		UndirectedGraphTest.class,
+		MapBundleTest.class,
+		MapGeneratorTest.class,
+		DynamicDistancesTest.class})
 public class ModelTest {}
@@ -0,0 +1,209 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests that the {@link ScotlandYardView} queries of {@link ScotlandYardModel}
+ * have no side effects and do not depend on being called, and the snapshots
+ * the model publishes for other threads
+ */
+public class ModelViewQueryTest {
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		graph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(ModelViewQueryTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	private static PlayerConfiguration firstMovePlayer(Colour colour, int location) {
+		return new PlayerConfiguration.Builder(colour)
+				.at(location)
+				.with(colour.isMrX() ? mrXTickets() : detectiveTickets())
+				.using((view, l, moves, callback) -> callback.accept(moves.iterator().next()))
+				.build();
+	}
+
+	// Mr.X is revealed in the first and third round
+	private static ScotlandYardModel game() {
+		return new ScotlandYardModel(List.of(true, false, true, false, false, false), graph,
+				firstMovePlayer(BLACK, 45), firstMovePlayer(BLUE, 94), firstMovePlayer(RED, 155));
+	}
+
+	@Test
+	public void testMrXLocationDoesNotDependOnReads() {
+		ScotlandYardModel read = game();
+		ScotlandYardModel unread = game();
+		List<Integer> locations = new ArrayList<>();
+		while (!read.isGameOver() && !unread.isGameOver()) {
+			read.startRotate();
+			unread.startRotate();
+			// reading every rotation must not change what is seen afterwards
+			locations.add(read.getPlayerLocation(BLACK).get());
+		}
+		assertThat(unread.getPlayerLocation(BLACK)).isEqualTo(read.getPlayerLocation(BLACK));
+		assertThat(locations.get(0)).isNotZero();
+	}
+
+	@Test
+	public void testQueriesDoNotChangeState() {
+		ScotlandYardModel game = game();
+		game.startRotate();
+		int round = game.getCurrentRound();
+		long hash = game.hash();
+		for (int i = 0; i < 3; i++) {
+			for (Colour colour : game.getPlayers()) {
+				game.getPlayerLocation(colour);
+				game.getPlayerTickets(colour, Ticket.TAXI);
+			}
+		}
+		assertThat(game.getCurrentRound()).isEqualTo(round);
+		assertThat(game.hash()).isEqualTo(hash);
+	}
+
+	@Test
+	public void testQueriesAreCached() {
+		ScotlandYardModel game = game();
+		assertThat(game.getPlayers()).isSameAs(game.getPlayers()).containsExactly(BLACK, BLUE, RED);
+		assertThat(game.getRounds()).isSameAs(game.getRounds());
+		assertThat(game.getPlayerLocation(BLUE)).isSameAs(game.getPlayerLocation(BLUE)).contains(94);
+		assertThat(game.getPlayerTickets(BLUE, Ticket.TAXI))
+				.isSameAs(game.getPlayerTickets(BLUE, Ticket.TAXI)).contains(11);
+		assertThat(game.getPlayerLocation(GREEN)).isEmpty();
+		assertThat(game.getPlayerTickets(GREEN, Ticket.TAXI)).isEmpty();
+		assertThat(game.getPlayerLocation(BLACK)).contains(0);
+	}
+
+	@Test
+	public void testSnapshotIsPublishedAfterEveryMove() {
+		ScotlandYardModel game = game();
+		ScotlandYardView initial = game.snapshot();
+		assertThat(Zobrist.of(initial)).isEqualTo(Zobrist.of(game));
+		while (!game.isGameOver()) {
+			game.startRotate();
+			assertThat(Zobrist.of(game.snapshot())).isEqualTo(Zobrist.of(game));
+			assertThat(game.snapshot().isGameOver()).isEqualTo(game.isGameOver());
+		}
+		assertThat(initial.getCurrentRound()).isZero();
+		assertThat(initial.getPlayerLocation(BLUE)).contains(94);
+	}
+
+	private static PlayerConfiguration recordingPlayer(Colour colour, int location,
+			List<Long> published) {
+		return new PlayerConfiguration.Builder(colour)
+				.at(location)
+				.with(colour.isMrX() ? mrXTickets() : detectiveTickets())
+				.using((view, l, moves, callback) -> {
+					published.add(Zobrist.of(((ScotlandYardModel) view).snapshot()));
+					callback.accept(moves.iterator().next());
+				})
+				.build();
+	}
+
+	@Test
+	public void testSpectatorsSeeSnapshotBeforeTheMove() {
+		// the published state when each player was asked for a move
+		List<Long> published = new ArrayList<>();
+		ScotlandYardModel game = new ScotlandYardModel(
+				List.of(true, false, true, false, false, false), graph,
+				recordingPlayer(BLACK, 45, published), recordingPlayer(BLUE, 94, published),
+				recordingPlayer(RED, 155, published));
+		List<Integer> rounds = new ArrayList<>();
+		game.registerSpectator(new Spectator() {
+			@Override public void onMoveMade(ScotlandYardView view, Move move) {
+				ScotlandYardView snapshot = game.snapshot();
+				assertThat(snapshot.getCurrentPlayer()).isEqualTo(move.colour());
+				assertThat(Zobrist.of(snapshot)).isEqualTo(published.get(published.size() - 1));
+				assertThat(snapshot.getCurrentRound()).isLessThanOrEqualTo(game.getCurrentRound());
+				rounds.add(snapshot.getCurrentRound());
+			}
+
+			@Override public void onRotationComplete(ScotlandYardView view) {
+				assertThat(Zobrist.of(game.snapshot())).isEqualTo(Zobrist.of(game));
+				assertThat(game.snapshot().getCurrentRound()).isEqualTo(game.getCurrentRound());
+			}
+
+			@Override public void onGameOver(ScotlandYardView view, Set<Colour> winners) {
+				assertThat(Zobrist.of(game.snapshot())).isEqualTo(Zobrist.of(game));
+				assertThat(game.snapshot().isGameOver()).isTrue();
+			}
+		});
+		while (!game.isGameOver()) game.startRotate();
+		assertThat(rounds).isNotEmpty().isSorted();
+	}
+
+	private static ScotlandYardView snapshotFromOtherThread(ScotlandYardModel game)
+			throws InterruptedException {
+		AtomicReference<ScotlandYardView> snapshot = new AtomicReference<>();
+		Thread reader = new Thread(() -> snapshot.set(game.snapshot()));
+		reader.start();
+		reader.join();
+		return snapshot.get();
+	}
+
+	@Test
+	public void testSnapshotIsOnlyTakenWhenAsked() throws InterruptedException {
+		ScotlandYardModel game = game();
+		ScotlandYardView initial = game.snapshot();
+		game.startRotate();
+		// nobody asked while the rotation was played, so no copy was taken
+		assertThat(snapshotFromOtherThread(game)).isSameAs(initial);
+		assertThat(game.isGameOver()).isFalse();
+		game.startRotate();
+		// another thread has asked, so every move is copied from now on
+		assertThat(Zobrist.of(snapshotFromOtherThread(game))).isEqualTo(Zobrist.of(game));
+		assertThat(Zobrist.of(game.snapshot())).isEqualTo(Zobrist.of(game));
+	}
+
+	@Test
+	public void testSnapshotsCanBeReadWhileGameIsPlayed() throws InterruptedException {
+		ScotlandYardModel game = game();
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			try {
+				int round = 0;
+				while (!done.get()) {
+					ScotlandYardView view = game.snapshot();
+					long hash = Zobrist.of(view);
+					assertThat(view.getCurrentRound()).isGreaterThanOrEqualTo(round);
+					round = view.getCurrentRound();
+					assertThat(Zobrist.of(view)).isEqualTo(hash);
+				}
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		});
+		reader.start();
+		while (!game.isGameOver()) {
+			game.startRotate();
+			Thread.yield();
+		}
+		done.set(true);
+		reader.join();
+		assertThat(failure.get()).isNull();
+	}
+
+}
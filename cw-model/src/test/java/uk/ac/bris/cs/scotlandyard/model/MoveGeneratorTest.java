@@ -0,0 +1,177 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.auxiliary.ReferenceMoves;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.MRX_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.dummyPlayer;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.makeTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.rounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+
+/**
+ * Tests that {@link MoveGenerator} generation and validation, as used by
+ * {@link ScotlandYardModel#populatemoves(ScotlandYardPlayer)}, agree with
+ * the edge walking moves of {@link ReferenceMoves}
+ */
+public class MoveGeneratorTest {
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		graph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(MoveGeneratorTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	private static PlayerConfiguration player(Colour colour, int location,
+	                                          Map<Ticket, Integer> tickets) {
+		return new Builder(colour).using(dummyPlayer()).with(tickets).at(location).build();
+	}
+
+	private static void assertSameMoves(ScotlandYardModel model, ScotlandYardPlayer p) {
+		MoveBuffer buffer = new MoveBuffer(1);
+		int generated = model.populatemoves(p, buffer);
+		assertThat(generated).isEqualTo(buffer.size());
+		Set<Move> expected = ReferenceMoves.legalMoves(model, p);
+		assertThat(buffer.toMoves()).hasSize(buffer.size())
+				.containsExactlyInAnyOrderElementsOf(expected);
+		assertThat(model.populatemoves(p)).isEqualTo(expected);
+	}
+
+	@Test
+	public void testMrXMovesMatchModelForAllStartingLocations() {
+		for (int i = 0; i < MRX_LOCATIONS.size(); i++) {
+			int location = MRX_LOCATIONS.get(i);
+			ScotlandYardModel model = new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), graph,
+					player(BLACK, location, mrXTickets()),
+					player(BLUE, DETECTIVE_LOCATIONS.get(i), detectiveTickets()),
+					player(RED, DETECTIVE_LOCATIONS.get(i + 1), detectiveTickets()));
+			assertSameMoves(model,
+					new ScotlandYardPlayer(dummyPlayer(), BLACK, location, mrXTickets()));
+		}
+	}
+
+	@Test
+	public void testMrXMovesMatchModelWithScarceTickets() {
+		// 194 has a ferry to 157, only one secret means no secret-secret double moves
+		for (Map<Ticket, Integer> tickets : List.of(
+				makeTickets(1, 0, 0, 1, 1),
+				makeTickets(0, 1, 1, 1, 1),
+				makeTickets(2, 1, 0, 1, 0),
+				makeTickets(0, 0, 0, 2, 2),
+				makeTickets(1, 1, 1, 1, 0))) {
+			for (int location : new int[]{194, 115, 46, 1}) {
+				ScotlandYardModel model = new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL),
+						graph, player(BLACK, location, tickets),
+						player(BLUE, 112, detectiveTickets()));
+				assertSameMoves(model,
+						new ScotlandYardPlayer(dummyPlayer(), BLACK, location, tickets));
+			}
+		}
+	}
+
+	@Test
+	public void testNoDoubleMovesOnLastRound() {
+		ScotlandYardModel model = new ScotlandYardModel(rounds(false), graph,
+				player(BLACK, 104, mrXTickets()), player(BLUE, 112, detectiveTickets()));
+		MoveBuffer buffer = new MoveBuffer();
+		model.populatemoves(new ScotlandYardPlayer(dummyPlayer(), BLACK, 104, mrXTickets()),
+				buffer);
+		for (int i = 0; i < buffer.size(); i++) {
+			assertThat(MoveCodes.isTicket(buffer.get(i))).isTrue();
+		}
+	}
+
+	@Test
+	public void testDetectiveMovesMatchModel() {
+		for (int location : DETECTIVE_LOCATIONS) {
+			ScotlandYardModel model = new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), graph,
+					player(BLACK, location == 35 ? 45 : 35, mrXTickets()),
+					player(BLUE, location, detectiveTickets()));
+			assertSameMoves(model,
+					new ScotlandYardPlayer(dummyPlayer(), BLUE, location, detectiveTickets()));
+		}
+	}
+
+	private static void assertValidationAgrees(ScotlandYardModel model, ScotlandYardPlayer p) {
+		Set<Move> valid = ReferenceMoves.legalMoves(model, p);
+		assertThat(model.populatemoves(p)).isEqualTo(valid);
+		Colour colour = p.colour();
+		assertThat(model.isvalidmove(p, new PassMove(colour))).isEqualTo(valid.isEmpty()
+				&& p.isDetective());
+		for (Ticket first : Ticket.values()) {
+			for (int one = 1; one <= graph.size(); one++) {
+				TicketMove single = new TicketMove(colour, first, one);
+				assertThat(model.isvalidmove(p, single)).as("%s", single)
+						.isEqualTo(valid.contains(single));
+				if (!valid.contains(new TicketMove(colour, first, one))
+						&& !valid.contains(new TicketMove(colour, SECRET, one))) continue;
+				for (Ticket second : Ticket.values()) {
+					for (int two = 1; two <= graph.size(); two++) {
+						DoubleMove x2 = new DoubleMove(colour, first, one, second, two);
+						assertThat(model.isvalidmove(p, x2)).as("%s", x2)
+								.isEqualTo(valid.contains(x2));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testValidationAgreesWithGeneratedMoves() {
+		for (Map<Ticket, Integer> tickets : List.of(
+				mrXTickets(),
+				makeTickets(1, 0, 0, 1, 1),
+				makeTickets(0, 1, 0, 1, 2))) {
+			for (int location : new int[]{194, 104, 46}) {
+				ScotlandYardModel model = new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL),
+						graph, player(BLACK, location, tickets),
+						player(BLUE, 116, detectiveTickets()));
+				assertValidationAgrees(model,
+						new ScotlandYardPlayer(dummyPlayer(), BLACK, location, tickets));
+			}
+		}
+		for (Map<Ticket, Integer> tickets : List.of(
+				makeTickets(0, 8, 0, 0, 0),
+				makeTickets(0, 0, 0, 0, 0))) {
+			ScotlandYardModel model = new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), graph,
+					player(BLACK, 104, mrXTickets()), player(BLUE, 128, tickets));
+			assertValidationAgrees(model,
+					new ScotlandYardPlayer(dummyPlayer(), BLUE, 128, tickets));
+		}
+	}
+
+	@Test
+	public void testCodesRoundTrip() {
+		Move[] moves = {
+				new PassMove(RED),
+				new TicketMove(BLUE, Ticket.UNDERGROUND, 199),
+				new DoubleMove(BLACK, Ticket.SECRET, 194, Ticket.TAXI, 157)};
+		for (Move move : moves) {
+			assertThat(MoveCodes.toMove(MoveCodes.encode(move))).isEqualTo(move);
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
+
+/**
+ * Tests interning of moves by {@link MoveTable} and the hashes of moves
+ */
+public class MoveTableTest {
+
+	private final MoveTable table = new MoveTable(200);
+
+	@Test
+	public void testSameCodeGivesSameInstance() {
+		long[] codes = {
+				MoveCodes.pass(BLUE),
+				MoveCodes.ticket(BLUE, TAXI, 1),
+				MoveCodes.ticket(BLACK, SECRET, 200),
+				MoveCodes.doubleMove(BLACK, TAXI, 1, BUS, 199)};
+		for (long code : codes) {
+			Move move = table.move(code);
+			assertThat(table.move(code)).isSameAs(move);
+			assertThat(move).isEqualTo(MoveCodes.toMove(code))
+					.hasSameHashCodeAs(MoveCodes.toMove(code));
+			assertThat(MoveCodes.encode(move)).isEqualTo(code);
+		}
+		assertThat(table.move(MoveCodes.pass(BLUE))).isSameAs(table.passMove(BLUE));
+		assertThat(table.ticketMove(BLUE, TAXI, 1)).isSameAs(table.move(codes[1]));
+		DoubleMove doubleMove = table.doubleMove(BLACK, TAXI, 1, BUS, 199);
+		assertThat(doubleMove).isSameAs(table.move(codes[3]));
+		assertThat(doubleMove.firstMove()).isSameAs(table.ticketMove(BLACK, TAXI, 1));
+	}
+
+	@Test
+	public void testDestinationsOutsideTableAreNotInterned() {
+		long code = MoveCodes.ticket(BLUE, TAXI, 201);
+		assertThat(table.move(code)).isNotSameAs(table.move(code))
+				.isEqualTo(table.move(code));
+		long doubleCode = MoveCodes.doubleMove(BLACK, TAXI, 201, TAXI, 1);
+		assertThat(table.move(doubleCode)).isEqualTo(MoveCodes.toMove(doubleCode));
+	}
+
+	@Test
+	public void testConcurrentLookupsGiveEqualMoves() {
+		Set<Move> moves = ConcurrentHashMap.newKeySet();
+		IntStream.range(0, 10_000).parallel().forEach(i -> moves.add(
+				table.move(MoveCodes.doubleMove(BLACK, TAXI, i % 200, SECRET, i % 7))));
+		// every pair of first and second destination occurs as 200 and 7 are coprime
+		assertThat(moves).hasSize(200 * 7);
+	}
+
+	@Test
+	public void testEqualsRespectsEveryField() {
+		TicketMove move = new TicketMove(BLUE, TAXI, 1);
+		assertThat(move).isEqualTo(new TicketMove(BLUE, TAXI, 1))
+				.hasSameHashCodeAs(new TicketMove(BLUE, TAXI, 1))
+				.isNotEqualTo(new TicketMove(BLACK, TAXI, 1))
+				.isNotEqualTo(new TicketMove(BLUE, BUS, 1))
+				.isNotEqualTo(new TicketMove(BLUE, TAXI, 2))
+				.isNotEqualTo(new PassMove(BLUE));
+		DoubleMove doubleMove = new DoubleMove(BLACK, TAXI, 1, DOUBLE, 2);
+		assertThat(doubleMove).isEqualTo(new DoubleMove(BLACK,
+				new TicketMove(BLACK, TAXI, 1), new TicketMove(BLACK, DOUBLE, 2)))
+				.isNotEqualTo(new DoubleMove(BLACK, TAXI, 2, DOUBLE, 1));
+		assertThat(new PassMove(BLUE)).isEqualTo(new PassMove(BLUE))
+				.isNotEqualTo(new PassMove(BLACK));
+	}
+
+	private static Object roundTrip(Object move) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(move);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+
+	@Test
+	public void testSerialisedMovesKeepEqualsAndHashCode() throws Exception {
+		TicketMove move = new TicketMove(BLUE, TAXI, 1);
+		assertThat(roundTrip(move)).isEqualTo(move).hasSameHashCodeAs(move);
+		DoubleMove doubleMove = new DoubleMove(BLACK, SECRET, 1, BUS, 2);
+		assertThat(roundTrip(doubleMove)).isEqualTo(doubleMove).hasSameHashCodeAs(doubleMove);
+	}
+
+}
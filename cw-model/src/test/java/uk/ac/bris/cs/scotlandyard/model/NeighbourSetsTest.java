@@ -0,0 +1,154 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests {@link NeighbourSets} against walking the edges of the standard map
+ */
+public class NeighbourSetsTest {
+
+	private static Graph<Integer, Transport> graph;
+	private static NeighbourSets sets;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+		sets = NeighbourSets.forGraph(graph);
+	}
+
+	private static Set<Integer> nodes(long[] set) {
+		Set<Integer> nodes = new TreeSet<>();
+		for (int n = NeighbourSets.next(set, 0); n >= 0; n = NeighbourSets.next(set, n + 1)) {
+			nodes.add(n);
+		}
+		return nodes;
+	}
+
+	private static long[] set(Iterable<Integer> nodes) {
+		long[] set = sets.newSet();
+		for (int node : nodes) NeighbourSets.add(set, node);
+		return set;
+	}
+
+	// walks the edges like the model does, null stands for any transport
+	private static Set<Integer> walk(Iterable<Integer> from, Transport transport) {
+		Set<Integer> reached = new TreeSet<>();
+		for (int node : from) {
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(graph.getNode(node))) {
+				if (transport == null || edge.data() == transport)
+					reached.add(edge.destination().value());
+			}
+		}
+		return reached;
+	}
+
+	@Test
+	public void testStandardMapFitsInFourWords() {
+		assertThat(sets.maxNode()).isEqualTo(199);
+		assertThat(sets.words()).isEqualTo(4);
+		assertThat(NeighbourSets.forGraph(graph)).isSameAs(sets);
+	}
+
+	@Test
+	public void testNeighboursOfEveryNode() {
+		for (Node<Integer> node : graph.getNodes()) {
+			List<Integer> from = List.of(node.value());
+			for (Transport transport : Transport.values()) {
+				long[] set = sets.newSet();
+				sets.neighbours(node.value(), transport, set);
+				assertThat(nodes(set)).isEqualTo(walk(from, transport));
+			}
+			long[] any = sets.newSet();
+			sets.neighbours(node.value(), any);
+			assertThat(nodes(any)).isEqualTo(walk(from, null));
+		}
+	}
+
+	@Test
+	public void testExpandRandomSets() {
+		Random random = new Random(7);
+		List<Integer> values = new ArrayList<>();
+		graph.getNodes().forEach(node -> values.add(node.value()));
+		for (int i = 0; i < 200; i++) {
+			Set<Integer> from = new TreeSet<>();
+			int size = random.nextInt(40);
+			while (from.size() < size) from.add(values.get(random.nextInt(values.size())));
+			long[] set = set(from);
+			assertThat(NeighbourSets.count(set)).isEqualTo(from.size());
+			for (Ticket ticket : new Ticket[] { Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND }) {
+				long[] reached = sets.newSet();
+				sets.expand(set, ticket, reached);
+				assertThat(nodes(reached))
+						.isEqualTo(walk(from, Transport.valueOf(ticket.name())));
+			}
+			long[] secret = sets.newSet();
+			sets.expand(set, Ticket.SECRET, secret);
+			long[] any = sets.newSet();
+			sets.expand(set, any);
+			assertThat(nodes(secret)).isEqualTo(nodes(any)).isEqualTo(walk(from, null));
+			long[] ferry = sets.newSet();
+			sets.expand(set, Transport.FERRY, ferry);
+			assertThat(nodes(ferry)).isEqualTo(walk(from, Transport.FERRY));
+		}
+	}
+
+	@Test
+	public void testSetHelpers() {
+		long[] a = set(List.of(1, 63, 64, 199));
+		long[] b = set(List.of(63, 128));
+		assertThat(NeighbourSets.contains(a, 64)).isTrue();
+		assertThat(NeighbourSets.contains(a, 65)).isFalse();
+		assertThat(NeighbourSets.contains(a, -1)).isFalse();
+		assertThat(NeighbourSets.contains(a, 10_000)).isFalse();
+		long[] union = a.clone();
+		NeighbourSets.or(union, b);
+		assertThat(nodes(union)).containsExactly(1, 63, 64, 128, 199);
+		long[] intersection = a.clone();
+		NeighbourSets.and(intersection, b);
+		assertThat(nodes(intersection)).containsExactly(63);
+		long[] difference = a.clone();
+		NeighbourSets.andNot(difference, b);
+		NeighbourSets.remove(difference, 199);
+		assertThat(nodes(difference)).containsExactly(1, 64);
+		assertThat(NeighbourSets.isEmpty(sets.newSet())).isTrue();
+		assertThat(NeighbourSets.next(a, 200)).isEqualTo(-1);
+		assertThat(NeighbourSets.next(a, 256)).isEqualTo(-1);
+	}
+
+	@Test
+	public void testExpandIntoSameSetThrows() {
+		long[] set = set(List.of(1));
+		assertThatThrownBy(() -> sets.expand(set, set)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> sets.expand(set, Ticket.DOUBLE, sets.newSet()))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testTooLargeNodeValueThrows() {
+		// 200001 nodes of 3126 words each in 6 rows overflow an int length
+		Graph<Integer, Transport> large = new UndirectedGraph<>();
+		large.addNode(new Node<>(1));
+		large.addNode(new Node<>(200_000));
+		large.addEdge(new Edge<>(new Node<>(1), new Node<>(200_000), Transport.TAXI));
+		assertThatThrownBy(() -> NeighbourSets.of(large))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("200000");
+	}
+
+}
@@ -0,0 +1,117 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import uk.ac.bris.cs.scotlandyard.auxiliary.ReferenceMoves;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.model.StandardGame.MRX_LOCATIONS;
+
+/**
+ * Checks {@link Perft} counts from a standard start against known values.
+ * Any change to move generation or to applying moves must keep these counts.
+ */
+public class PerftTest {
+
+	// positions at depth 0 to 6 with Mr.X at 35 and detectives at 26, 29, 50, 53 and 91
+	private static final long[] KNOWN = { 1, 94, 282, 2444, 7332, 21372, 106860 };
+	private static final long KNOWN_DEPTH_7 = 15764484;
+
+	private static GameState start;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		start = Perft.standardStart(MRX_LOCATIONS.get(0), DETECTIVE_LOCATIONS.subList(0, 5));
+	}
+
+	@Test
+	public void testKnownCounts() {
+		for (int depth = 0; depth < KNOWN.length; depth++) {
+			assertThat(Perft.count(start, depth)).as("depth %d", depth).isEqualTo(KNOWN[depth]);
+		}
+	}
+
+	@Test
+	public void testParallelCountMatchesKnownCount() {
+		assertThat(Perft.count(start, 7, ForkJoinPool.commonPool())).isEqualTo(KNOWN_DEPTH_7);
+		for (int depth = 0; depth < KNOWN.length; depth++) {
+			assertThat(Perft.count(start, depth, ForkJoinPool.commonPool()))
+					.as("depth %d", depth).isEqualTo(KNOWN[depth]);
+		}
+	}
+
+	@Test
+	public void testCountLeavesStateUnchanged() {
+		GameState state = start.copy();
+		long hash = state.hash();
+		Perft.count(state, 5);
+		Perft.count(state, 5, ForkJoinPool.commonPool());
+		assertThat(state.hash()).isEqualTo(hash);
+		assertThat(state.depth()).isZero();
+		assertThat(state.toString()).isEqualTo(start.toString());
+	}
+
+	// the moves of the current player by walking the graph, a pass if a detective is stuck
+	private static Set<Move> referenceMoves(ScotlandYardView view, int location) {
+		Colour colour = view.getCurrentPlayer();
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		for (Ticket ticket : Ticket.values())
+			tickets.put(ticket, view.getPlayerTickets(colour, ticket).orElseThrow());
+		Set<Move> moves = ReferenceMoves.legalMoves(view, colour, location, tickets);
+		if (moves.isEmpty() && colour.isDetective()) moves.add(new PassMove(colour));
+		return moves;
+	}
+
+	@Test
+	public void testFirstDepthMatchesModelMoves() throws IOException {
+		List<Set<Move>> given = new ArrayList<>();
+		List<Move> made = new ArrayList<>();
+		List<Set<Move>> expected = new ArrayList<>();
+		Player capture = (view, location, moves, callback) -> {
+			given.add(new HashSet<>(moves));
+			expected.add(referenceMoves(view, location));
+			made.add(moves.iterator().next());
+			callback.accept(made.get(made.size() - 1));
+		};
+		List<PlayerConfiguration> detectives = new ArrayList<>();
+		Colour[] colours = Colour.values();
+		for (int i = 0; i < 5; i++) {
+			detectives.add(new PlayerConfiguration.Builder(colours[i + 1]).using(capture)
+					.with(StandardGame.generateDetectiveTickets())
+					.at(DETECTIVE_LOCATIONS.get(i)).build());
+		}
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS,
+				StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(Colour.BLACK).using(capture)
+						.with(StandardGame.generateMrXTickets()).at(MRX_LOCATIONS.get(0)).build(),
+				detectives.get(0), detectives.subList(1, 5).toArray(new PlayerConfiguration[0]));
+		model.startRotate();
+		assertThat(given.get(0)).hasSize((int) KNOWN[1]);
+		assertThat(given).isEqualTo(expected);
+		GameState state = start.copy();
+		for (int i = 0; i < given.size(); i++) {
+			assertThat(Perft.count(state, 1)).isEqualTo(given.get(i).size());
+			state.apply(made.get(i));
+		}
+	}
+
+	@Test
+	public void testNegativeDepthThrows() {
+		assertThatThrownBy(() -> Perft.count(start, -1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Perft.count(start, -1, ForkJoinPool.commonPool()))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,58 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.dummyPlayer;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.makeTickets;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.UNDERGROUND;
+
+/**
+ * Tests the ticket counts of {@link ScotlandYardPlayer} and their map view
+ */
+public class ScotlandYardPlayerTest {
+
+	private static ScotlandYardPlayer player(Map<Ticket, Integer> tickets) {
+		return new ScotlandYardPlayer(dummyPlayer(), BLACK, 1, tickets);
+	}
+
+	@Test
+	public void testCountsFollowTicketChanges() {
+		ScotlandYardPlayer player = player(makeTickets(1, 2, 3, 4, 5));
+		player.removeTicket(TAXI);
+		player.addTicket(SECRET);
+		assertThat(player.ticketCount(TAXI)).isZero();
+		assertThat(player.hasTickets(TAXI)).isFalse();
+		assertThat(player.hasTickets(SECRET, 6)).isTrue();
+		assertThat(player.tickets()).containsOnly(entry(TAXI, 0), entry(BUS, 2),
+				entry(UNDERGROUND, 3), entry(DOUBLE, 4), entry(SECRET, 6));
+		assertThat(player.tickets()).isEqualTo(makeTickets(0, 2, 3, 4, 6));
+	}
+
+	@Test
+	public void testMapViewKeepsMissingTicketsMissing() {
+		Map<Ticket, Integer> tickets = new HashMap<>();
+		tickets.put(BUS, 2);
+		ScotlandYardPlayer player = player(tickets);
+		assertThat(player.tickets()).hasSize(1).containsKey(BUS).doesNotContainKey(TAXI);
+		assertThat(player.tickets().get(TAXI)).isNull();
+		assertThat(player.ticketCount(TAXI)).isZero();
+		assertThatThrownBy(() -> player.addTicket(TAXI)).isInstanceOf(IllegalArgumentException.class);
+		player.tickets().put(TAXI, 3);
+		assertThat(player.ticketCount(TAXI)).isEqualTo(3);
+		player.tickets().remove(BUS);
+		assertThat(player.tickets()).containsOnly(entry(TAXI, 3));
+		assertThat(player.hasTickets(BUS)).isFalse();
+	}
+
+}
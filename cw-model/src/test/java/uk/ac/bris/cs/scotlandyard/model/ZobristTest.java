@@ -0,0 +1,135 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.MRX_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.dummyPlayer;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests that the {@link Zobrist} hashes kept by {@link ScotlandYardModel} and
+ * {@link GameState} match a hash computed from scratch
+ */
+public class ZobristTest {
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		graph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(ZobristTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	private static PlayerConfiguration player(Colour colour, int location, Player player) {
+		return new Builder(colour).using(player).at(location)
+				.with(colour.isMrX() ? mrXTickets() : detectiveTickets()).build();
+	}
+
+	private static ScotlandYardModel model(int game, Player player) {
+		return new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), graph,
+				player(BLACK, MRX_LOCATIONS.get(game % MRX_LOCATIONS.size()), player),
+				player(BLUE, DETECTIVE_LOCATIONS.get(game % DETECTIVE_LOCATIONS.size()), player),
+				player(GREEN, DETECTIVE_LOCATIONS.get((game + 1) % DETECTIVE_LOCATIONS.size()), player),
+				player(RED, DETECTIVE_LOCATIONS.get((game + 2) % DETECTIVE_LOCATIONS.size()), player));
+	}
+
+	@Test
+	public void testIncrementalHashesMatchRecomputation() {
+		for (int game = 0; game < 16; game++) {
+			Random random = new Random(game);
+			GameState[] state = new GameState[1];
+			ScotlandYardModel[] model = new ScotlandYardModel[1];
+			model[0] = model(game, (view, location, valid, callback) -> {
+				GameState s = state[0];
+				assertThat(model[0].hash()).as("%s", s).isEqualTo(s.hash());
+				assertThat(s.copy().hash()).isEqualTo(s.hash());
+				if (view.getCurrentPlayer().isMrX())
+					assertThat(GameState.from(view, location).hash()).isEqualTo(s.hash());
+				Move move = new ArrayList<>(valid).get(random.nextInt(valid.size()));
+				s.apply(move);
+				callback.accept(move);
+			});
+			state[0] = GameState.from(model[0], MRX_LOCATIONS.get(game % MRX_LOCATIONS.size()));
+			while (!model[0].isGameOver()) model[0].startRotate();
+			assertThat(model[0].hash()).isEqualTo(state[0].hash());
+		}
+	}
+
+	@Test
+	public void testUndoRestoresHash() {
+		GameState state = GameState.from(model(3, dummyPlayer()), MRX_LOCATIONS.get(3));
+		Random random = new Random(7);
+		List<Long> hashes = new ArrayList<>();
+		MoveBuffer buffer = new MoveBuffer();
+		while (!state.isGameOver()) {
+			hashes.add(state.hash());
+			buffer.clear();
+			state.legalMoves(buffer);
+			state.apply(buffer.get(random.nextInt(buffer.size())));
+			assertThat(state.copy().hash()).isEqualTo(state.hash());
+		}
+		for (int i = hashes.size() - 1; i >= 0; i--) {
+			state.undo();
+			assertThat(state.hash()).isEqualTo(hashes.get(i));
+		}
+	}
+
+	@Test
+	public void testHashesOnlyCollideOnTranspositions() {
+		GameState state = GameState.from(model(0, dummyPlayer()), MRX_LOCATIONS.get(0));
+		MoveBuffer buffer = new MoveBuffer();
+		state.legalMoves(buffer);
+		// double moves through different intermediate nodes can reach the same position
+		Set<String> positions = new HashSet<>();
+		Set<Long> hashes = new HashSet<>();
+		for (int i = 0; i < buffer.size(); i++) {
+			state.apply(buffer.get(i));
+			positions.add(state.toString());
+			hashes.add(state.hash());
+			state.undo();
+		}
+		assertThat(positions.size()).isLessThan(buffer.size());
+		assertThat(hashes).hasSameSizeAs(positions);
+	}
+
+	@Test
+	public void testViewHashUsesRevealedLocation() {
+		ScotlandYardModel model = model(1, dummyPlayer());
+		// Mr.X has not been revealed yet so the view has him at 0
+		assertThat(Zobrist.of(model))
+				.isEqualTo(GameState.from(model, 0).hash())
+				.isNotEqualTo(model.hash());
+	}
+
+	@Test
+	public void testZeroTicketsHashLikeNoTickets() {
+		assertThat(Zobrist.tickets(BLUE, Ticket.SECRET, 0)).isZero();
+		assertThat(Zobrist.ticketChange(BLUE, Ticket.TAXI, 3, 3)).isZero();
+		assertThat(Zobrist.tickets(BLUE, Ticket.TAXI, 1)).isNotEqualTo(Zobrist.tickets(RED, Ticket.TAXI, 1));
+		assertThat(Zobrist.location(BLUE, 1)).isNotEqualTo(Zobrist.location(BLUE, 2));
+	}
+
+}